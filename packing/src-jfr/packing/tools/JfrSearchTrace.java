@@ -0,0 +1,248 @@
+
+package packing.tools;
+
+
+// Packing imports
+import packing.data.CompareEntry;
+import packing.data.Dataset;
+
+
+//##########
+// Java imports
+import java.io.IOException;
+
+import java.nio.file.Paths;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+
+/**
+ * Java Flight Recorder events that trace the search over time.
+ *
+ * Loaded by name by {@link SearchTrace}, such that only this class
+ * depends on the flight recorder API. An event is only created when its
+ * type is enabled by a running recording.
+ */
+class JfrSearchTrace extends SearchTrace.Tracer {
+    // The category of all events.
+    final private static String CATEGORY = "Packing";
+
+
+    /**-------------------------------------------------------------------------
+     * Event classes
+     * -------------------------------------------------------------------------
+     */
+    @Name("packing.GeneratorRun")
+    @Label("Generator Run")
+    @Description("A single run of a generator, from start to stop")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class GeneratorRun extends Event {
+        @Label("Generator")
+        String generator;
+        @Label("Rectangles")
+        int numRect;
+        @Label("Best Area")
+        long bestArea;
+        @Label("Time To Best (ms)")
+        long timeToBest;
+    }
+
+
+    @Name("packing.NewBest")
+    @Label("New Best Solution")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class NewBest extends Event {
+        @Label("Generator")
+        String generator;
+        @Label("Area")
+        long area;
+        @Label("Width")
+        int width;
+        @Label("Height")
+        int height;
+        @Label("Wasted (%)")
+        double wasted;
+    }
+
+
+    // Packing by the fast packers takes microseconds, hence only the
+    // slower invocations are recorded by default.
+    @Name("packing.Pack")
+    @Label("Pack")
+    @Description("A single invocation of a packer")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    @Threshold("1 ms")
+    static class Pack extends Event {
+        @Label("Packer")
+        String packer;
+        @Label("Rectangles")
+        int numRect;
+        @Label("Sheet Width")
+        int width;
+        @Label("Sheet Height")
+        int height;
+        @Label("Success")
+        boolean success;
+    }
+
+
+    @Name("packing.Generation")
+    @Label("Generation")
+    @Description("A single generation of a genetic population")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class Generation extends Event {
+        @Label("Population")
+        String population;
+        @Label("Generation")
+        long generation;
+        @Label("Size")
+        int size;
+        @Label("Best Area")
+        long bestArea;
+    }
+
+
+    // The types of the events, used to check whether they are enabled
+    // before creating them.
+    final private EventType runType = EventType.getEventType(GeneratorRun.class);
+    final private EventType newBestType = EventType.getEventType(NewBest.class);
+    final private EventType packType = EventType.getEventType(Pack.class);
+    final private EventType generationType
+            = EventType.getEventType(Generation.class);
+
+
+    /**-------------------------------------------------------------------------
+     * Functions
+     * -------------------------------------------------------------------------
+     */
+    @Override
+    Object beginRun() {
+        if (!runType.isEnabled()) return null;
+
+        GeneratorRun event = new GeneratorRun();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    void commitRun(Object event, Object generator, Dataset dataset,
+            Dataset best, long timeToBest) {
+        GeneratorRun run = (GeneratorRun) event;
+        run.end();
+        if (!run.shouldCommit()) return;
+
+        run.generator = generator.getClass().getSimpleName();
+        run.numRect = dataset.size();
+        run.bestArea = (best == null ? -1 : best.getArea());
+        run.timeToBest = timeToBest;
+        run.commit();
+    }
+
+    @Override
+    void newBest(Object generator, Dataset solution) {
+        if (!newBestType.isEnabled()) return;
+
+        NewBest event = new NewBest();
+        if (!event.shouldCommit()) return;
+
+        long recArea = 0;
+        for (CompareEntry entry : solution) {
+            recArea += entry.area();
+        }
+
+        event.generator = generator.getClass().getSimpleName();
+        event.area = solution.getArea();
+        event.width = solution.getWidth();
+        event.height = solution.getHeight();
+        event.wasted = (event.area == 0 ? 0
+                : 100.0 * (event.area - recArea) / event.area);
+        event.commit();
+    }
+
+    @Override
+    Object beginPack() {
+        if (!packType.isEnabled()) return null;
+
+        Pack event = new Pack();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    void commitPack(Object event, Object packer, Dataset dataset,
+            int width, int height, Dataset result) {
+        Pack pack = (Pack) event;
+        pack.end();
+        if (!pack.shouldCommit()) return;
+
+        pack.packer = packer.getClass().getSimpleName();
+        pack.numRect = dataset.size();
+        pack.width = width;
+        pack.height = height;
+        pack.success = (result != null);
+        pack.commit();
+    }
+
+    @Override
+    Object beginGeneration() {
+        if (!generationType.isEnabled()) return null;
+
+        Generation event = new Generation();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    void commitGeneration(Object event, Object population, long generation,
+            int size, long bestArea) {
+        Generation gen = (Generation) event;
+        gen.end();
+        if (!gen.shouldCommit()) return;
+
+        gen.population = population.getClass().getSimpleName();
+        gen.generation = generation;
+        gen.size = size;
+        gen.bestArea = bestArea;
+        gen.commit();
+    }
+
+    @Override
+    boolean startRecording(String file) {
+        if (!FlightRecorder.isAvailable()) {
+            return super.startRecording(file);
+        }
+
+        Recording recording = new Recording();
+        for (String name : new String[] {"packing.GeneratorRun",
+                "packing.NewBest", "packing.Pack", "packing.Generation"}) {
+            recording.enable(name);
+        }
+
+        try {
+            recording.setDestination(Paths.get(file));
+            recording.setToDisk(true);
+            recording.start();
+
+        } catch (IOException e) {
+            System.err.println(e);
+            recording.close();
+            return false;
+        }
+
+        return true;
+    }
+
+}
@@ -0,0 +1,269 @@
+
+package packing;
+
+
+// Package imports
+import packing.data.CompareEntry;
+import packing.data.Dataset;
+import packing.generator.Generator;
+import packing.io.SolutionCache;
+
+
+//##########
+// Java imports
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Solves many instances in a single process.
+ *
+ * The instances are solved by a fixed number of workers. Every job uses its
+ * own {@link PackingSolver} with its own time limit and output file. Every
+ * worker runs in its own thread group, such that stopping the threads of
+ * one job doesn't affect the jobs of the other workers. The generator stops
+ * the thread it runs on when the time is up, so every job runs on a thread
+ * of its own in the group of its worker.
+ */
+public class BatchSolver {
+    // The default directory of the output files, relative to the directory
+    // of the input files. Kept apart from the input files, such that the
+    // output files aren't read as input files by a next batch.
+    final public static String DEFAULT_OUT_DIR = "out";
+
+    // The input files.
+    final private List<File> inputs;
+    // The directory of the output files, or {@code null} to write the
+    // output files to the directory {@link #DEFAULT_OUT_DIR} next to
+    // the input files.
+    final private File outDir;
+    // The number of concurrent jobs.
+    final private int numJobs;
+    // The time limit of a single job in ms.
+    final private long timeLimit;
+    // Whether to only use the greedy generator.
+    final private boolean useGreedyPacker;
+    // The cache with the best known solutions, or {@code null}.
+    final private SolutionCache cache;
+
+
+    /**-------------------------------------------------------------------------
+     * Job result class
+     * -------------------------------------------------------------------------
+     */
+    private static class JobResult {
+        final private File input;
+        final private int numRect;
+        final private long area;
+        final private double wasted;
+        final private long timeToBest;
+        final private long time;
+
+        private JobResult(File input, int numRect, long area, double wasted,
+                long timeToBest, long time) {
+            this.input = input;
+            this.numRect = numRect;
+            this.area = area;
+            this.wasted = wasted;
+            this.timeToBest = timeToBest;
+            this.time = time;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-30s %6d %12d %8.3f %10d %10d",
+                    input.getName(), numRect, area, wasted, timeToBest, time);
+        }
+
+    }
+
+
+    /**-------------------------------------------------------------------------
+     * Constructor
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * @param inputs the input files.
+     * @param outDir the directory of the output files, or {@code null}
+     *     to write the output files to the directory
+     *     {@link #DEFAULT_OUT_DIR} next to the input files.
+     * @param numJobs the number of concurrent jobs.
+     * @param timeLimit the time limit of a single job in ms.
+     * @param useGreedyPacker whether to only use the greedy generator.
+     * @param cache the cache with the best known solutions, or {@code null}.
+     */
+    public BatchSolver(List<File> inputs, File outDir, int numJobs,
+            long timeLimit, boolean useGreedyPacker, SolutionCache cache) {
+        this.inputs = inputs;
+        this.outDir = outDir;
+        this.numJobs = Math.max(1, numJobs);
+        this.timeLimit = timeLimit;
+        this.useGreedyPacker = useGreedyPacker;
+        this.cache = cache;
+
+        if (outDir != null) outDir.mkdirs();
+    }
+
+
+    /**-------------------------------------------------------------------------
+     * Functions
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * Determines the input files of a batch.
+     *
+     * @param path a directory containing the input files, or a manifest
+     *     file with an input file on every line. Empty lines and lines
+     *     starting with '#' are ignored, and relative paths are relative
+     *     to the directory of the manifest.
+     * @return the input files.
+     * @throws IOException if the manifest could not be read.
+     */
+    public static List<File> readInputs(File path) throws IOException {
+        List<File> inputs = new ArrayList<>();
+
+        if (path.isDirectory()) {
+            File[] files = path.listFiles(File::isFile);
+            if (files != null) {
+                Arrays.sort(files);
+                inputs.addAll(Arrays.asList(files));
+            }
+
+        } else {
+            try (BufferedReader br = new BufferedReader(new FileReader(path))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    line = line.trim();
+                    if (line.isEmpty() || line.startsWith("#")) continue;
+
+                    File file = new File(line);
+                    if (!file.isAbsolute()) {
+                        file = new File(path.getAbsoluteFile().getParentFile(),
+                                line);
+                    }
+                    inputs.add(file);
+                }
+            }
+        }
+
+        return inputs;
+    }
+
+    /**
+     * Solves all instances and prints a summary of the jobs
+     * to the standard output.
+     */
+    public void run() {
+        AtomicInteger workerNum = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(numJobs, r ->
+                new Thread(new ThreadGroup("batch-worker-"
+                        + workerNum.incrementAndGet()), r));
+
+        List<Future<JobResult>> futures = new ArrayList<>();
+        for (File input : inputs) {
+            futures.add(pool.submit(() -> solveOnOwnThread(input)));
+        }
+        pool.shutdown();
+
+        System.out.println(String.format("%-30s %6s %12s %8s %10s %10s",
+                "instance", "n", "area", "waste%", "best(ms)", "time(ms)"));
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                System.out.println(futures.get(i).get());
+
+            } catch (ExecutionException e) {
+                System.out.println(inputs.get(i).getName() + " failed: "
+                        + e.getCause());
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pool.shutdownNow();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Solves a single instance on a new thread in the group of the
+     * calling thread, and waits for it.
+     *
+     * @param input the input file.
+     * @return the summary of the job.
+     * @throws Exception if the job failed.
+     */
+    private JobResult solveOnOwnThread(File input) throws Exception {
+        FutureTask<JobResult> job = new FutureTask<>(() -> solve(input));
+        new Thread(job, "batch-job-" + input.getName()).start();
+
+        try {
+            return job.get();
+
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw new IllegalStateException("Job stopped", e.getCause());
+        }
+    }
+
+    /**
+     * Solves a single instance.
+     *
+     * @param input the input file.
+     * @return the summary of the job.
+     */
+    private JobResult solve(File input) {
+        File dir = outDir;
+        if (dir == null) {
+            dir = new File(input.getAbsoluteFile().getParentFile(),
+                    DEFAULT_OUT_DIR);
+            dir.mkdirs();
+        }
+        File output = new File(dir, input.getName() + ".out");
+
+        PackingSolver solver = new PackingSolver();
+        solver.setStandalone(false);
+        solver.setTimeLimit(timeLimit);
+        solver.setCache(cache);
+
+        long start = System.currentTimeMillis();
+        Dataset result = solver.run(input.getPath(), output.getPath(),
+                useGreedyPacker);
+        long time = System.currentTimeMillis() - start;
+
+        if (result == null) {
+            throw new IllegalStateException("No solution generated");
+        }
+
+        long recArea = 0;
+        for (CompareEntry entry : result) {
+            recArea += entry.area();
+        }
+
+        long width = result.getEffectiveWidth();
+        long height = (result.isFixedHeight()
+                ? result.getHeight()
+                : result.getEffectiveHeight());
+        long area = width * height;
+        double wasted = (area == 0 ? 0 : 100.0 * (area - recArea) / area);
+
+        Generator gen = solver.getGenerator();
+        long timeToBest = (gen == null ? 0 : gen.getTimeToBest());
+
+        return new JobResult(input, result.size(), area, wasted,
+                timeToBest, time);
+    }
+
+}
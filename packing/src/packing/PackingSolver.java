@@ -3,25 +3,36 @@ package packing;
 
 
 // Package imports
+import packing.data.CompareEntry;
 import packing.data.Dataset;
 import packing.generator.*;
 import packing.gui.ShowDataset;
 import packing.io.AbstractReader;
 import packing.io.FileDataReader;
 import packing.io.OutputWriter;
+import packing.io.SolutionCache;
 import packing.io.StreamDataReader;
 import packing.packer.GreedyPackerFactory;
 import packing.packer.OptimalPackerFactory;
+import packing.packer.PackerFactory;
+import packing.packer.ShelfPackerFactory;
+import packing.tools.AsyncLogger;
 import packing.tools.Logger;
+import packing.tools.Metrics;
+import packing.tools.SearchTrace;
 import packing.tools.StreamLogger;
 
 
 //##########
 // Java imports
+import java.awt.Rectangle;
+
 import java.io.File;
 import java.io.IOException;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -72,69 +83,147 @@ public class PackingSolver {
     
     // The generator used for calculating the solution.
     private Generator gen;
+    
+    // The packer factories, shared by all solvers. Since a factory pools
+    // the packers per thread, a thread that solves several problems, like
+    // a worker of the {@link SolverDaemon}, reuses its packers.
+    final private static PackerFactory GREEDY = new GreedyPackerFactory();
+    final private static PackerFactory SHELF = new ShelfPackerFactory();
+    final private static PackerFactory OPTIMAL = new OptimalPackerFactory();
+    
+    // The cache with the best known solutions, or {@code null}.
+    private SolutionCache cache = null;
+    
+    // The maximum number of rectangles for which the genetic search
+    // is part of the portfolio.
+    final private static int MAX_GENETIC_SIZE = 500;
+    
+    // The minimum number of rectangles for which only the linear time
+    // shelf packer is used, since the other packers take too long.
+    final private static int LARGE_INPUT_SIZE = 100000;
+    
+    // The maximum size of the solution cache in bytes.
+    final private static long CACHE_SIZE = 64L * 1024 * 1024;
+    
+    // The default time limit in ms. 5*60*1000 = 300 000, use 5 sec space.
+    final public static long TIME_LIMIT = 300000L - 5000L;
+    
+    // The time limit of a single run in ms.
+    private long timeLimit = TIME_LIMIT;
+    
+    // Whether this solver is the only task of the application, and hence
+    // is allowed to terminate the application.
+    private boolean standalone = true;
+    
+    // Whether the time limit has passed before the generator was created.
+    private boolean timedOut = false;
+    
+    // Whether the generator has returned, after which the timer may not
+    // stop the thread of the run anymore.
+    private boolean finished = false;
 
 
     private void createGenerator(Dataset input, boolean useGreedyPacker) {
         if (gen != null) return;
         
         //according to the chart(v2)
-        if (useGreedyPacker) {
-            gen = new GreedyGenerator(new GreedyPackerFactory());
+        if (input.size() >= LARGE_INPUT_SIZE) {
+            gen = new LargeInputGenerator(SHELF);
+        } else if (useGreedyPacker) {
+            gen = new GreedyGenerator(GREEDY);
         } else if (input.size() >= 0 && input.size() <= 10) {
             // gen = new OptimalPointGenerator(new GreedyPackerFactory());
             // gen = new OptimalBoundingBoxGenerator(new OptimalPackerFactory());
-            gen = new MultiOptimalGenerator(
-                    new OptimalPointGenerator(new GreedyPackerFactory()),
-                    new OptimalBoundingBoxGenerator(new OptimalPackerFactory())
+            gen = new MultiOptimalGenerator(true,
+                    new OptimalPointGenerator(GREEDY),
+                    new OptimalBoundingBoxGenerator(OPTIMAL)
             );
             
-        } else if (input.size() > 10 && input.size() <= 25) {
-            /*
-            if (input.isFixedHeight()) {
-                gen = new GeneticGenerator(new GreedyPackerFactory());
-            } else {
-                gen = new WideToHighBoundingBoxGenerator(new GreedyPackerFactory());
-            }*/
-            gen = new GeneticCrossoverGenerator(new GreedyPackerFactory());
-            
-        } else if (input.size() > 25) {
-            if (input.isFixedHeight()) {
-                gen = new FixedHeightRandomSearchGenerator(new GreedyPackerFactory());
-            } else {
-                gen = new WideToHighBoundingBoxGenerator(new GreedyPackerFactory());
-            }
+        } else {
+            gen = createPortfolio(input);
         }
     }
     
-    
     /**
-     * Runs the application.
+     * Creates the generator for instances with more than 10 rectangles.
+     * The generators and their priors are chosen from the features
+     * of the instance:
+     * - Small instances favour the genetic search, while large instances
+     *   favour the random search (fixed height) or the wide-to-high
+     *   sweep (free height).
+     * - When many rectangles have the same size, most permutations of the
+     *   genetic search are equivalent, which makes it less effective.
+     * - When only a few rectangles fit on top of each other, the random
+     *   search of the order of the columns is more effective.
+     * - The genetic search is too expensive for large instances.
      * 
-     * @param fileName the used file name of the data file.
+     * @param input the instance to create the generator for.
+     * @return a portfolio of the chosen generators, or the generator itself
+     *     if only one generator was chosen.
      */
-    public void run(String inputFile, String outputFile, boolean useGreedyPacker) {
-        long startTime = System.currentTimeMillis();
+    private Generator createPortfolio(Dataset input) {
+        int n = input.size();
+        long[] sizes = new long[n];
+        long recHeights = 0;
+        int i = 0;
+        for (CompareEntry entry : input) {
+            Rectangle rec = entry.getNormalRec();
+            sizes[i++] = ((long) rec.width << 32) | rec.height;
+            recHeights += rec.height;
+        }
+        Arrays.sort(sizes);
+        int numDistinct = 0;
+        for (i = 0; i < n; i++) {
+            if (i == 0 || sizes[i] != sizes[i - 1]) numDistinct++;
+        }
+        double distinct = numDistinct / (double) n;
         
-        // Start the timer.
-        timer = new Timer(true);
-        timer.schedule
-            (new TimerTask() {
-            @Override
-            public void run() {
-                Generator gen = getGenerator();
-                synchronized(PackingSolver.this) {
-                    if (gen != null) {
-                        gen.interrupt();
-
-                    } else {
-                        System.exit(0);
-                    }
-                }
-            }
-        }, 300000L - 5000L); // 5*60*1000 = 300 000, use 5 sec space
-        //}, 60000L); // tmp
+        List<Generator> gens = new ArrayList<>();
+        List<Double> priors = new ArrayList<>();
+        double searchPrior = (n <= 25 ? 0.3 : 0.6);
+        if (input.isFixedHeight()) {
+            // The average number of rectangles on top of each other.
+            double rows = (double) input.getHeight() * n / recHeights;
+            if (rows < 4) searchPrior += 0.2;
+            gens.add(new FixedHeightRandomSearchGenerator(GREEDY, true));
+            
+        } else {
+            gens.add(new WideToHighBoundingBoxGenerator(GREEDY));
+        }
+        priors.add(searchPrior);
+        
+        if (n <= MAX_GENETIC_SIZE) {
+            double geneticPrior = (n <= 25 ? 0.6 : 0.3);
+            if (distinct < 0.25) geneticPrior /= 2;
+            gens.add(new GeneticCrossoverGenerator(GREEDY));
+            priors.add(geneticPrior);
+        }
         
+        if (gens.size() == 1) return gens.get(0);
         
+        // Run several generators at a time, up to the number of processors,
+        // where the portfolio shifts the processors towards the generators
+        // that produce improvements.
+        int slots = Math.min(gens.size(),
+                Math.max(2, Runtime.getRuntime().availableProcessors()));
+        double[] p = new double[priors.size()];
+        for (i = 0; i < p.length; i++) p[i] = priors.get(i);
+        return new PortfolioGenerator(slots, gens.toArray(new Generator[0]), p);
+    }
+    
+    
+    /**
+     * Runs the application.
+     * 
+     * @param inputFile the used file name of the data file, or {@code null}
+     *     to read from the standard input.
+     * @param outputFile the file name of the output file, or {@code null}
+     *     to write to the standard output.
+     * @param useGreedyPacker whether to only use the greedy generator.
+     * @return the generated solution, or {@code null} if no solution
+     *     was generated.
+     */
+    public Dataset run(String inputFile, String outputFile, boolean useGreedyPacker) {
         // Create the output writer.
         OutputWriter ow = null;
         if (outputFile == null) {
@@ -146,7 +235,8 @@ public class PackingSolver {
                 
             } catch (FileNotFoundException e) {
                 System.err.println(e);
-                System.exit(0);
+                if (standalone) System.exit(0);
+                return null;
             }
         }
         
@@ -159,10 +249,59 @@ public class PackingSolver {
             reader = new FileDataReader(inputFile, ow);
         }
         
+        Dataset result = run(reader, ow, useGreedyPacker);
+        closeOutput(ow, outputFile);
+        return result;
+    }
+    
+    /**
+     * Reads, solves and outputs a single instance.
+     * 
+     * @param reader the reader of the instance.
+     * @param ow the output writer for the solution.
+     * @param useGreedyPacker whether to only use the greedy generator.
+     * @return the generated solution, or {@code null} if no solution
+     *     was generated.
+     */
+    public Dataset run(AbstractReader reader, OutputWriter ow,
+            boolean useGreedyPacker) {
+        long startTime = System.currentTimeMillis();
+        
+        // Start the timer.
+        timer = new Timer(true);
+        timer.schedule
+            (new TimerTask() {
+            @Override
+            public void run() {
+                Generator gen = getGenerator();
+                synchronized(PackingSolver.this) {
+                    // The thread of the run may already run other code.
+                    if (finished) return;
+                    
+                    if (gen != null) {
+                        gen.interrupt();
+
+                    } else if (standalone) {
+                        System.exit(0);
+                        
+                    } else {
+                        timedOut = true;
+                    }
+                }
+            }
+        }, timeLimit);
+        //}, 60000L); // tmp
+        
         Dataset input = reader.readEntries();
         if (input == null) {
             timer.cancel();
-            return;
+            try {
+                ow.flush();
+                
+            } catch (IOException e) {
+                System.err.println(e);
+            }
+            return null;
         }
 
         //Logger.setDefaultLogger(new StreamLogger(System.err));
@@ -182,8 +321,22 @@ public class PackingSolver {
         }
         */
 
-        createGenerator(input, useGreedyPacker);
-        Dataset result = gen.generate(input);
+        // Use the best known solution when it is optimal, and otherwise
+        // as initial upper bound for the generator.
+        Dataset result = (cache == null ? null : cache.lookup(input));
+        if (result == null || result.getArea() > LowerBound.area(input)) {
+            synchronized(this) {
+                if (!timedOut) createGenerator(input, useGreedyPacker);
+            }
+            
+            if (gen != null) {
+                gen.setSeed(result);
+                result = gen.generate(input);
+            }
+        }
+        synchronized(this) {
+            finished = true;
+        }
         timer.cancel();
         
         // Output solution.
@@ -194,6 +347,8 @@ public class PackingSolver {
             System.err.println(e);
         }
         
+        if (cache != null && result != null) cache.store(result);
+        
         // tmp
         /*
         System.err.println(result);
@@ -201,6 +356,26 @@ public class PackingSolver {
                 + (System.currentTimeMillis() - startTime) + " ms");
         if (result != null) new ShowDataset(result);
         */
+        
+        return result;
+    }
+    
+    /**
+     * Closes the output writer if it writes to a file.
+     * 
+     * @param ow the output writer.
+     * @param outputFile the file name of the output file, or {@code null}
+     *     if the standard output is used.
+     */
+    private void closeOutput(OutputWriter ow, String outputFile) {
+        if (outputFile == null) return;
+        
+        try {
+            ow.close();
+            
+        } catch (IOException e) {
+            System.err.println(e);
+        }
     }
     
     /* 
@@ -209,6 +384,29 @@ public class PackingSolver {
     public Generator getGenerator() {
         return gen;
     }
+    
+    /**
+     * @param cache the cache with the best known solutions,
+     *     or {@code null} to disable caching.
+     */
+    public void setCache(SolutionCache cache) {
+        this.cache = cache;
+    }
+    
+    /**
+     * @param timeLimit the time limit of a run in ms.
+     */
+    public void setTimeLimit(long timeLimit) {
+        this.timeLimit = timeLimit;
+    }
+    
+    /**
+     * @param standalone whether this solver is the only task of the
+     *     application, and hence is allowed to terminate it.
+     */
+    public void setStandalone(boolean standalone) {
+        this.standalone = standalone;
+    }
 
     public static void main(String[] args) {
         String in = null;
@@ -229,7 +427,89 @@ public class PackingSolver {
             }
         }*/
         
-        new PackingSolver().run(in, out, useGreedyPacker);
+        // Use the search generators instead of only the greedy generator.
+        if (args != null && Arrays.stream(args).anyMatch("--search"::equals)) {
+            useGreedyPacker = false;
+        }
+        
+        SolutionCache cache = null;
+        String batch = null;
+        String outDir = null;
+        int port = -1;
+        int queueSize = 64;
+        long metricsPeriod = 0;
+        int jobs = Runtime.getRuntime().availableProcessors();
+        long timeLimit = TIME_LIMIT;
+        for (int i = 0; args != null && i < args.length - 1; i++) {
+            switch (args[i]) {
+                case "--cache":
+                    cache = new SolutionCache(new File(args[++i]), CACHE_SIZE);
+                    break;
+                case "--batch":
+                    batch = args[++i];
+                    break;
+                case "--out":
+                    outDir = args[++i];
+                    break;
+                case "--jobs":
+                    jobs = Integer.parseInt(args[++i]);
+                    break;
+                case "--time":
+                    timeLimit = (long) (1000 * Double.parseDouble(args[++i]));
+                    break;
+                case "--daemon":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--queue":
+                    queueSize = Integer.parseInt(args[++i]);
+                    break;
+                case "--metrics":
+                    metricsPeriod = (long) (1000 * Double.parseDouble(args[++i]));
+                    break;
+                case "--trace":
+                    SearchTrace.startRecording(args[++i]);
+                    break;
+                case "--log":
+                    Logger.setLevel(Logger.Type.valueOf(args[++i].toUpperCase()));
+                    Logger.setDefaultLogger(new AsyncLogger(
+                            new StreamLogger(System.err)));
+                    break;
+            }
+        }
+        
+        if (metricsPeriod > 0) {
+            Metrics.registerMBean();
+            Metrics.startDump(System.err, metricsPeriod);
+        }
+        
+        if (port >= 0) {
+            try {
+                new SolverDaemon(port, jobs, queueSize, timeLimit,
+                        useGreedyPacker, cache).run();
+                
+            } catch (IOException e) {
+                System.err.println(e);
+            }
+            return;
+        }
+        
+        if (batch != null) {
+            try {
+                List<File> inputs = BatchSolver.readInputs(new File(batch));
+                new BatchSolver(inputs, (outDir == null ? null : new File(outDir)),
+                        jobs, timeLimit, useGreedyPacker, cache).run();
+                
+            } catch (IOException e) {
+                System.err.println(e);
+            }
+            return;
+        }
+        
+        PackingSolver solver = new PackingSolver();
+        solver.setCache(cache);
+        solver.setTimeLimit(timeLimit);
+        solver.run(in, out, useGreedyPacker);
+        if (metricsPeriod > 0) System.err.print(Metrics.dump());
         /*
         for (File file : testFiles) {
             in = file.toString();
@@ -0,0 +1,255 @@
+
+package packing;
+
+
+// Package imports
+import packing.data.CompareEntry;
+import packing.data.Dataset;
+import packing.io.InstanceGenerator;
+import packing.io.InstanceGenerator.Distribution;
+import packing.packer.ArraySheetPackerFactory;
+import packing.packer.DecompositionPackerFactory;
+import packing.packer.GreedyPackerFactory;
+import packing.packer.Packer;
+import packing.packer.PackerFactory;
+import packing.packer.ShelfPackerFactory;
+import packing.packer.SheetPackerFactory;
+import packing.tools.SolutionValidator;
+
+
+//##########
+// Java imports
+import java.awt.Rectangle;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Measures the throughput of the packers as the number of rectangles grows.
+ *
+ * For every size, an instance is generated with {@link InstanceGenerator}
+ * and packed by every packer into a sheet of the instance height. The width
+ * of the sheet starts close to the width of a packing without waste, and is
+ * doubled until the packer succeeds. The rectangles are ordered on height,
+ * as the generators do. A packer is skipped for the larger sizes as soon as it
+ * exceeds the time limit, since the packers scale superlinearly.
+ */
+public class ScalingBenchmark {
+    // The number of threads of the decomposition packers.
+    final private static int THREADS
+            = Runtime.getRuntime().availableProcessors();
+    // The packers that can be benchmarked.
+    final private static Map<String, PackerFactory> PACKERS
+            = new LinkedHashMap<>();
+    static {
+        PACKERS.put("greedy", new GreedyPackerFactory());
+        PACKERS.put("sheet", new SheetPackerFactory());
+        PACKERS.put("arraysheet", new ArraySheetPackerFactory());
+        PACKERS.put("shelf", new ShelfPackerFactory());
+        PACKERS.put("decomp-greedy",
+                new DecompositionPackerFactory(new GreedyPackerFactory(),
+                        THREADS));
+        PACKERS.put("decomp-arraysheet",
+                new DecompositionPackerFactory(new ArraySheetPackerFactory(),
+                        THREADS));
+    }
+
+    // The numbers of rectangles of the instances.
+    final private int[] sizes;
+    // The names of the packers to benchmark.
+    final private List<String> packers;
+    // The distribution of the sizes of the rectangles.
+    final private Distribution dist;
+    // The height of the instances, or {@link InstanceGenerator#AUTO}.
+    final private int height;
+    // Whether rotations are allowed.
+    final private boolean rotation;
+    // The seed of the instances.
+    final private long seed;
+    // The time after which a packer is not run on larger sizes in ms.
+    final private long timeLimit;
+
+
+    /**-------------------------------------------------------------------------
+     * Constructor
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * @param sizes the numbers of rectangles of the instances.
+     * @param packers the names of the packers to benchmark.
+     * @param dist the distribution of the sizes of the rectangles.
+     * @param height the height of the instances, or
+     *     {@link InstanceGenerator#AUTO} for square packings.
+     * @param rotation whether rotations are allowed.
+     * @param seed the seed of the instances.
+     * @param timeLimit the time after which a packer is not run on larger
+     *     sizes in ms.
+     */
+    public ScalingBenchmark(int[] sizes, List<String> packers,
+            Distribution dist, int height, boolean rotation, long seed,
+            long timeLimit) {
+        for (String name : packers) {
+            if (!PACKERS.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown packer: " + name);
+            }
+        }
+
+        this.sizes = sizes;
+        this.packers = packers;
+        this.dist = dist;
+        this.height = height;
+        this.rotation = rotation;
+        this.seed = seed;
+        this.timeLimit = timeLimit;
+    }
+
+
+    /**-------------------------------------------------------------------------
+     * Functions
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * Runs the benchmark and prints a row for every size and packer
+     * to the standard output.
+     */
+    public void run() {
+        System.out.println(String.format("%-10s %-12s %9s %12s %8s %8s  %s",
+                "n", "packer", "time(ms)", "rect/s", "waste%", "opt%",
+                "valid"));
+
+        List<String> active = new ArrayList<>(packers);
+        for (int n : sizes) {
+            if (active.isEmpty()) break;
+
+            InstanceGenerator gen = new InstanceGenerator(n, dist, 100,
+                    height, rotation, seed);
+            Dataset dataset = gen.generate();
+            dataset.setOrdering(CompareEntry.SORT_HEIGHT);
+
+            // The width of a packing without waste, and the width in which
+            // the rectangles always fit next to each other.
+            long area = 0;
+            long maxWidth = 0;
+            for (CompareEntry entry : dataset) {
+                Rectangle rec = entry.getRec();
+                area += (long) rec.width * rec.height;
+                maxWidth += rec.width;
+            }
+            long minWidth = (area + dataset.getHeight() - 1)
+                    / dataset.getHeight();
+
+            for (String name : new ArrayList<>(active)) {
+                // Start with a sheet with little waste, and double the width
+                // until the packer succeeds. Only the last run is timed.
+                long width = minWidth + minWidth / 10;
+                Dataset result;
+                long time;
+                do {
+                    width = Math.min(width, maxWidth);
+                    Packer packer = PACKERS.get(name).create(
+                            (int) Math.min(Integer.MAX_VALUE, width),
+                            dataset.getHeight());
+
+                    long start = System.nanoTime();
+                    result = packer.pack(dataset);
+                    time = (System.nanoTime() - start) / 1000000;
+                    width *= 2;
+                } while (result == null && width / 2 < maxWidth);
+
+                System.out.println(format(n, name, time, result,
+                        gen.getOptimalArea()));
+                if (time > timeLimit) active.remove(name);
+            }
+        }
+    }
+
+    /**
+     * @param n the number of rectangles.
+     * @param name the name of the packer.
+     * @param time the time it took to pack in ms.
+     * @param result the packing, or {@code null} if none was found.
+     * @param optimalArea the optimal area, or {@code -1} if unknown.
+     * @return a row of the benchmark table.
+     */
+    private static String format(int n, String name, long time,
+            Dataset result, long optimalArea) {
+        double rate = 1000.0 * n / Math.max(1, time);
+        if (result == null) {
+            return String.format("%-10d %-12s %9d %12.0f %8s %8s  %s",
+                    n, name, time, rate, "-", "-", "failed");
+        }
+
+        long recArea = 0;
+        for (CompareEntry entry : result) {
+            recArea += (long) entry.getRec().width * entry.getRec().height;
+        }
+        long area = (long) result.getEffectiveWidth() * result.getHeight();
+        double wasted = 100.0 * (area - recArea) / area;
+        String opt = (optimalArea < 0 ? "-" : String.format("%.3f",
+                100.0 * area / optimalArea));
+        String error = SolutionValidator.validate(result);
+
+        return String.format("%-10d %-12s %9d %12.0f %8.3f %8s  %s",
+                n, name, time, rate, wasted, opt,
+                (error == null ? "yes" : error));
+    }
+
+    /**
+     * Usage: {@code ScalingBenchmark [--sizes <n,n,...>]
+     *     [--packers <name,name,...>] [--dist <distribution>]
+     *     [--height <height>] [--rotation yes|no] [--seed <seed>] [--time <sec>]}
+     *
+     * @param args the arguments.
+     */
+    public static void main(String[] args) {
+        int[] sizes = new int[] {1000, 10000, 100000, 1000000};
+        List<String> packers = new ArrayList<>();
+        packers.add("greedy");
+        packers.add("arraysheet");
+        Distribution dist = Distribution.UNIFORM;
+        int height = InstanceGenerator.AUTO;
+        boolean rotation = false;
+        long seed = 0;
+        long timeLimit = 60000;
+
+        for (int i = 0; i < args.length - 1; i++) {
+            switch (args[i]) {
+                case "--sizes":
+                    String[] values = args[++i].split(",");
+                    sizes = new int[values.length];
+                    for (int j = 0; j < values.length; j++) {
+                        sizes[j] = Integer.parseInt(values[j].trim());
+                    }
+                    break;
+                case "--packers":
+                    packers.clear();
+                    for (String name : args[++i].split(",")) {
+                        packers.add(name.trim());
+                    }
+                    break;
+                case "--dist":
+                    dist = InstanceGenerator.parseDistribution(args[++i]);
+                    break;
+                case "--height":
+                    height = Integer.parseInt(args[++i]);
+                    break;
+                case "--rotation":
+                    rotation = args[++i].equals("yes");
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--time":
+                    timeLimit = (long) (Double.parseDouble(args[++i]) * 1000);
+                    break;
+            }
+        }
+
+        new ScalingBenchmark(sizes, packers, dist, height, rotation, seed,
+                timeLimit).run();
+    }
+
+}
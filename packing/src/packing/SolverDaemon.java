@@ -0,0 +1,355 @@
+
+package packing;
+
+
+// Package imports
+import packing.io.OutputWriter;
+import packing.io.SolutionCache;
+import packing.io.StreamDataReader;
+
+
+//##########
+// Java imports
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+/**
+ * Long running solver that accepts problems on a loopback socket.
+ *
+ * A client connects and sends a problem in the input format. The solution
+ * is sent back in the output format, after which the connection is closed.
+ * A client that sends the line {@code status} instead receives the current
+ * queue depth and latency statistics.
+ *
+ * The requests are read by a pool of readers, such that a slow client
+ * doesn't block the other clients. Accepted problems are put in a bounded
+ * queue in which the problems with the least rectangles go first. Problems
+ * are rejected when the queue is full. The queued problems are solved by a
+ * fixed number of workers. Every problem is solved by a new
+ * {@link PackingSolver} on the long lived thread of a worker, such that the
+ * worker reuses the packers it pooled for the previous problems. The
+ * generator stops the thread it runs on when the time is up, which the
+ * worker survives. Every worker has its own thread group, which confines
+ * the threads that a generator stops to the problem of the worker.
+ */
+public class SolverDaemon {
+    // The command for requesting the status of the daemon.
+    final public static String STATUS = "status";
+    // The maximum time to wait for a client to send its problem in ms.
+    final private static int READ_TIMEOUT = 10000;
+
+    // The port to listen on.
+    final private int port;
+    // The number of workers.
+    final private int numWorkers;
+    // The maximum number of queued problems.
+    final private int capacity;
+    // The time limit of a single problem in ms.
+    final private long timeLimit;
+    // Whether to only use the greedy generator.
+    final private boolean useGreedyPacker;
+    // The cache with the best known solutions, or {@code null}.
+    final private SolutionCache cache;
+
+    // The queued problems. Also used as lock for the statistics.
+    final private PriorityQueue<Job> queue = new PriorityQueue<>(
+            Comparator.comparingInt((Job job) -> job.numRect)
+                    .thenComparingLong(job -> job.seq));
+
+    // Statistics.
+    private long numJobs = 0;
+    private long started = 0;
+    private int running = 0;
+    private long completed = 0;
+    private long rejected = 0;
+    private long totalWait = 0;
+    private long totalLatency = 0;
+    private long maxLatency = 0;
+
+
+    /**-------------------------------------------------------------------------
+     * Job class
+     * -------------------------------------------------------------------------
+     */
+    private static class Job {
+        // The connection of the client.
+        final private Socket socket;
+        // The problem in the input format.
+        final private String problem;
+        // The number of rectangles of the problem.
+        final private int numRect;
+        // The order of arrival.
+        final private long seq;
+        // The time of arrival.
+        final private long arrival = System.currentTimeMillis();
+
+        private Job(Socket socket, String problem, int numRect, long seq) {
+            this.socket = socket;
+            this.problem = problem;
+            this.numRect = numRect;
+            this.seq = seq;
+        }
+
+    }
+
+
+    /**-------------------------------------------------------------------------
+     * Constructor
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * @param port the port to listen on.
+     * @param numWorkers the number of workers.
+     * @param capacity the maximum number of queued problems.
+     * @param timeLimit the time limit of a single problem in ms.
+     * @param useGreedyPacker whether to only use the greedy generator.
+     * @param cache the cache with the best known solutions, or {@code null}.
+     */
+    public SolverDaemon(int port, int numWorkers, int capacity,
+            long timeLimit, boolean useGreedyPacker, SolutionCache cache) {
+        this.port = port;
+        this.numWorkers = Math.max(1, numWorkers);
+        this.capacity = Math.max(1, capacity);
+        this.timeLimit = timeLimit;
+        this.useGreedyPacker = useGreedyPacker;
+        this.cache = cache;
+    }
+
+
+    /**-------------------------------------------------------------------------
+     * Functions
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * Starts the workers and accepts clients until the application
+     * is terminated.
+     *
+     * @throws IOException if the socket could not be opened.
+     */
+    public void run() throws IOException {
+        try (ServerSocket server = new ServerSocket(port, 50,
+                InetAddress.getLoopbackAddress())) {
+            System.err.println("Listening on "
+                    + server.getLocalSocketAddress());
+
+            // Every worker has its own thread group, such that stopping
+            // the threads of one problem doesn't affect the other workers.
+            for (int i = 0; i < numWorkers; i++) {
+                String name = "daemon-worker-" + (i + 1);
+                new Thread(new ThreadGroup(name), this::work, name).start();
+            }
+
+            // A reader is only busy while a request is read, which is bounded
+            // by the read time-out.
+            ExecutorService readers = Executors.newCachedThreadPool();
+            try {
+                while (true) {
+                    Socket socket = server.accept();
+                    readers.execute(() -> {
+                        try {
+                            accept(socket);
+
+                        } catch (IOException e) {
+                            System.err.println(e);
+                            close(socket);
+                        }
+                    });
+                }
+
+            } finally {
+                readers.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Reads the request of a client and either answers a status request,
+     * queues the problem or rejects it.
+     *
+     * @param socket the connection of the client.
+     * @throws IOException if the request could not be read.
+     */
+    private void accept(Socket socket) throws IOException {
+        socket.setSoTimeout(READ_TIMEOUT);
+        BufferedReader br = new BufferedReader(new InputStreamReader(
+                socket.getInputStream(), StandardCharsets.UTF_8));
+
+        // The problem consists of three header lines, followed by
+        // a line for every rectangle.
+        StringBuilder sb = new StringBuilder();
+        int numLines = 0;
+        int numRect = -1;
+        String line;
+        while ((numRect < 0 || numLines < numRect + 3)
+                && (line = br.readLine()) != null) {
+            if (line.isEmpty()) continue;
+
+            if (numLines == 0 && line.trim().equals(STATUS)) {
+                reply(socket, status());
+                return;
+            }
+
+            sb.append(line).append('\n');
+            if (++numLines == 3) {
+                try {
+                    numRect = Integer.parseInt(
+                            line.substring(line.lastIndexOf(' ') + 1));
+
+                } catch (NumberFormatException e) {
+                    reply(socket, "error: illegal input\n");
+                    return;
+                }
+            }
+        }
+
+        if (numRect < 0) {
+            reply(socket, "error: illegal input\n");
+            return;
+        }
+
+        synchronized(queue) {
+            if (queue.size() >= capacity) {
+                rejected++;
+
+            } else {
+                queue.add(new Job(socket, sb.toString(), numRect, numJobs++));
+                queue.notify();
+                return;
+            }
+        }
+
+        reply(socket, "rejected: queue full\n");
+    }
+
+    /**
+     * Solves the queued problems. Never returns.
+     */
+    private void work() {
+        while (true) {
+            Job job;
+            synchronized(queue) {
+                while (queue.isEmpty()) {
+                    try {
+                        queue.wait();
+
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+
+                job = queue.poll();
+                started++;
+                running++;
+                totalWait += System.currentTimeMillis() - job.arrival;
+            }
+
+            try {
+                solve(job);
+
+            } finally {
+                close(job.socket);
+                long latency = System.currentTimeMillis() - job.arrival;
+                synchronized(queue) {
+                    running--;
+                    completed++;
+                    totalLatency += latency;
+                    maxLatency = Math.max(maxLatency, latency);
+                }
+            }
+        }
+    }
+
+    /**
+     * Solves a problem and sends the solution to the client.
+     *
+     * @param job the problem to solve.
+     */
+    private void solve(Job job) {
+        try {
+            OutputWriter ow = new OutputWriter(job.socket.getOutputStream());
+            StreamDataReader reader = new StreamDataReader(
+                    new ByteArrayInputStream(
+                            job.problem.getBytes(StandardCharsets.UTF_8)), ow);
+
+            PackingSolver solver = new PackingSolver();
+            solver.setStandalone(false);
+            solver.setTimeLimit(timeLimit);
+            solver.setCache(cache);
+            solver.run(reader, ow, useGreedyPacker);
+
+        } catch (ThreadDeath e) {
+            // The generator catches its own stop, except when the time was
+            // up just as it returned. Then the solution isn't sent.
+
+        } catch (Exception e) {
+            System.err.println(e);
+        }
+    }
+
+    /**
+     * @return the queue depth and latency statistics.
+     */
+    private String status() {
+        synchronized(queue) {
+            return "queue depth: " + queue.size() + "/" + capacity + "\n"
+                    + "running: " + running + "\n"
+                    + "completed: " + completed + "\n"
+                    + "rejected: " + rejected + "\n"
+                    + "mean wait: " + (started == 0 ? 0
+                            : totalWait / started) + " ms\n"
+                    + "mean latency: " + (completed == 0 ? 0
+                            : totalLatency / completed) + " ms\n"
+                    + "max latency: " + maxLatency + " ms\n";
+        }
+    }
+
+    /**
+     * Sends a message to the client and closes the connection.
+     *
+     * @param socket the connection of the client.
+     * @param message the message to send.
+     */
+    private void reply(Socket socket, String message) {
+        try {
+            OutputStream out = socket.getOutputStream();
+            out.write(message.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+
+        } catch (IOException e) {
+            System.err.println(e);
+
+        } finally {
+            close(socket);
+        }
+    }
+
+    /**
+     * Closes the connection of a client.
+     *
+     * @param socket the connection to close.
+     */
+    private void close(Socket socket) {
+        try {
+            socket.close();
+
+        } catch (IOException e) {
+            System.err.println(e);
+        }
+    }
+
+}
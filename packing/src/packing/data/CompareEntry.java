@@ -48,7 +48,7 @@ public abstract class CompareEntry
     
     // Sort rectangles by decreasing area
     final public static Comparator<CompareEntry> SORT_AREA = Collections.reverseOrder(
-            Comparator.comparingInt((CompareEntry entry) -> entry.getRec().height * entry.getRec().width)
+            Comparator.comparingLong((CompareEntry entry) -> (long) entry.getRec().height * entry.getRec().width)
                     .thenComparing((CompareEntry entry) -> entry.getRec().height)
     );
     
@@ -126,7 +126,7 @@ public abstract class CompareEntry
     /**
      * @return the area of the rectangle.
      */
-    public abstract int area();
+    public abstract long area();
     
     /**
      * Sets the location of the rectangle.
@@ -13,6 +13,8 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Random;
 import java.util.Stack;
 import java.util.function.Predicate;
 
@@ -45,6 +47,9 @@ public class Dataset
     
     // The list of entries
     protected List<CompareEntry> list;
+    
+    // The entries indexed on id, used by {@link #copyFrom(Dataset)}.
+    private CompareEntry[] idIndex = null;
 
     /**-------------------------------------------------------------------------
      * Entry class
@@ -151,8 +156,8 @@ public class Dataset
         }
         
         @Override
-        public int area() {
-            return rec.width * rec.height;
+        public long area() {
+            return (long) rec.width * rec.height;
         }
         
         @Override
@@ -405,8 +410,8 @@ public class Dataset
     /**
      * @return the area of the sheet.
      */
-    public int getArea() {
-        return width * height;
+    public long getArea() {
+        return (long) width * height;
     }
     
     /**
@@ -514,6 +519,15 @@ public class Dataset
         Collections.shuffle(list);
     }
     
+    /**
+     * Shuffles the entries using the provided source of randomness.
+     * 
+     * @param random the random used for shuffling.
+     */
+    public void shuffle(Random random) {
+        Collections.shuffle(list, random);
+    }
+    
     public void swap(int i, int j) {
         Collections.swap(list, i, j);
     }
@@ -525,6 +539,38 @@ public class Dataset
         }
     }
     
+    /**
+     * Copies the order, rotations and locations of the entries, and the
+     * size of the sheet, of the given dataset into this dataset. Unlike
+     * {@link #clone()}, no new entries are created.
+     * 
+     * @param other the dataset to copy. Must contain entries with the same
+     *     ids as this dataset.
+     */
+    public void copyFrom(Dataset other) {
+        int maxId = -1;
+        for (CompareEntry entry : list) {
+            maxId = Math.max(maxId, entry.getId());
+        }
+        if (idIndex == null || idIndex.length <= maxId) {
+            idIndex = new CompareEntry[maxId + 1];
+        }
+        for (CompareEntry entry : list) {
+            idIndex[entry.getId()] = entry;
+        }
+        
+        ListIterator<CompareEntry> it = list.listIterator();
+        for (CompareEntry source : other) {
+            CompareEntry entry = idIndex[source.getId()];
+            if (allowRot) entry.setRotation(source.useRotation());
+            Rectangle rec = source.getRec();
+            entry.setLocation(rec.x, rec.y);
+            it.next();
+            it.set(entry);
+        }
+        setSize(other.getWidth(), other.getHeight());
+    }
+    
     /**
      * If there were any modifications, update {@link #list}.
      */
@@ -7,6 +7,7 @@ package packing.data;
 import java.awt.Rectangle;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.Random;
 import java.util.function.Predicate;
 
 
@@ -94,6 +95,11 @@ public abstract class DatasetDecorator
         dataset.shuffle();
     }
     
+    @Override
+    public void shuffle(Random random) {
+        dataset.shuffle(random);
+    }
+    
     @Override
     public void swap(int i, int j) {
         dataset.swap(i, j);
@@ -104,6 +110,12 @@ public abstract class DatasetDecorator
         dataset.rotate(i);
     }
     
+    @Override
+    public void copyFrom(Dataset other) {
+        dataset.copyFrom(other);
+        setSize(other.getWidth(), other.getHeight());
+    }
+    
     public Dataset getDataset() {
         if (dataset instanceof DatasetDecorator) {
             return ((DatasetDecorator) dataset).getDataset();
@@ -6,6 +6,9 @@ package packing.data;
 // Java imports
 import java.awt.Rectangle;
 
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 
 
@@ -16,12 +19,25 @@ public class DatasetFactory {
     
     
     public static Dataset process(List<String> input) {
+        return process(input.iterator());
+    }
+    
+    /**
+     * Creates a dataset from the lines of the input. The lines are
+     * processed one at a time, so they can be streamed from the source
+     * without keeping the whole input in memory.
+     * 
+     * @param input the non-empty lines of the input.
+     * @return the dataset, or {@code null} if the input has an illegal format.
+     */
+    public static Dataset process(Iterator<String> input) {
         int height;
         boolean rotation;
         int numRect;
         
+        if (!input.hasNext()) return null;
         // Determine the height
-        String line = input.get(0);
+        String line = input.next();
         if (line.endsWith("free")) {
             height = -1;
             
@@ -41,11 +57,13 @@ public class DatasetFactory {
         }
         
         // Determine whether rotations are allowed or not.
-        line = input.get(1);
+        if (!input.hasNext()) return null;
+        line = input.next();
         rotation = line.endsWith("yes");
         
         // Determine the number of rectangles.
-        line = input.get(2);
+        if (!input.hasNext()) return null;
+        line = input.next();
         int loc = line.length();
         while (line.charAt(--loc) != ' ') { }
         
@@ -60,21 +78,24 @@ public class DatasetFactory {
         }
         
         // Create the dataset.
-        Dataset dataset = createDataset(height, rotation, numRect, input);
+        Dataset dataset = createDataset(height, rotation, numRect);
         
         // Fill the dataset.
-        for (int i = 3; i < input.size(); i++) {
-            line = input.get(i);
+        while (input.hasNext()) {
+            line = input.next();
             
             if (!line.equals("")) {
-                String[] coords = line.split(" ");
+                int space = line.indexOf(' ');
                 
                 try {
-                    int recWidth  = Integer.parseInt(coords[0]);
-                    int recHeight = Integer.parseInt(coords[1]);
+                    int recWidth  = Integer.parseInt(line.substring(0, space));
+                    int end = line.indexOf(' ', space + 1);
+                    int recHeight = Integer.parseInt(line.substring(space + 1,
+                            (end == -1 ? line.length() : end)));
                     dataset.add(new Rectangle(recWidth, recHeight));
                     
-                } catch (NumberFormatException e) {
+                } catch (NumberFormatException |
+                        StringIndexOutOfBoundsException e) {
                     System.err.println("File does not have the correct format");
                     return null;
                 }
@@ -85,8 +106,92 @@ public class DatasetFactory {
     }
     
     
+    /**
+     * Sorts the entries of the dataset in a canonical order. Two datasets
+     * that contain the same multiset of rectangles have the same canonical
+     * order of rectangle sizes, independent of the order of the input.
+     * If rotations are allowed, the sizes are compared with the shortest
+     * side first. Entries with equal sizes are ordered by id.
+     * 
+     * @param dataset the dataset to order.
+     * @return the entries of the dataset in canonical order.
+     */
+    public static CompareEntry[] canonicalEntries(Dataset dataset) {
+        boolean rot = dataset.allowRotation();
+        CompareEntry[] entries = new CompareEntry[dataset.size()];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = dataset.get(i);
+        }
+        
+        Arrays.sort(entries, Comparator
+                .comparingInt((CompareEntry e) -> canonicalWidth(e, rot))
+                .thenComparingInt(e -> canonicalHeight(e, rot))
+                .thenComparingInt(CompareEntry::getId));
+        return entries;
+    }
+    
+    /**
+     * @param entry the entry.
+     * @param rot whether rotations are allowed.
+     * @return the width of the entry in canonical orientation.
+     */
+    public static int canonicalWidth(CompareEntry entry, boolean rot) {
+        Rectangle rec = entry.getNormalRec();
+        return (rot ? Math.min(rec.width, rec.height) : rec.width);
+    }
+    
+    /**
+     * @param entry the entry.
+     * @param rot whether rotations are allowed.
+     * @return the height of the entry in canonical orientation.
+     */
+    public static int canonicalHeight(CompareEntry entry, boolean rot) {
+        Rectangle rec = entry.getNormalRec();
+        return (rot ? Math.max(rec.width, rec.height) : rec.height);
+    }
+    
+    /**
+     * Calculates a fingerprint of the instance described by the dataset.
+     * The fingerprint only depends on the multiset of rectangles, the
+     * height restriction and whether rotations are allowed, and hence
+     * is equal for permutations of the same input.
+     * 
+     * @param dataset the dataset to calculate the fingerprint of.
+     * @return the fingerprint of the dataset.
+     */
+    public static long fingerprint(Dataset dataset) {
+        boolean rot = dataset.allowRotation();
+        long hash = 0xcbf29ce484222325L;
+        hash = mix(hash, dataset.isFixedHeight() ? dataset.getHeight() : -1);
+        hash = mix(hash, rot ? 1 : 0);
+        hash = mix(hash, dataset.size());
+        
+        for (CompareEntry entry : canonicalEntries(dataset)) {
+            hash = mix(hash, canonicalWidth(entry, rot));
+            hash = mix(hash, canonicalHeight(entry, rot));
+        }
+        
+        return hash;
+    }
+    
+    /**
+     * Mixes a value into a FNV-1a style hash.
+     * 
+     * @param hash the current hash.
+     * @param value the value to add.
+     * @return the new hash.
+     */
+    private static long mix(long hash, int value) {
+        for (int i = 0; i < 4; i++) {
+            hash ^= (value >>> (8 * i)) & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        
+        return hash;
+    }
+    
     private static Dataset createDataset(int height, boolean rotation,
-                                         int numRect, List<String> input) {
+                                         int numRect) {
         if (true) {// todo
             return new Dataset(height, rotation, numRect);
         }
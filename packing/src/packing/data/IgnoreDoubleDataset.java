@@ -13,6 +13,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Random;
 import java.util.function.Predicate;
 
 
@@ -190,7 +191,7 @@ public class IgnoreDoubleDataset
         }
         
         @Override
-        public int area() {
+        public long area() {
             return entries.get(Math.max(entryPointer, 0)).area();
         }
         
@@ -533,6 +534,12 @@ public class IgnoreDoubleDataset
         super.shuffle();
     }
     
+    @Override
+    public void shuffle(Random random) {
+        update();
+        super.shuffle(random);
+    }
+    
     @Override
     public Iterator<CompareEntry> iterator() {
         return new IgnoreDoubleIterator();
@@ -28,7 +28,7 @@ public class MergedEntryDataset
         final List<CompareEntry> entries;
         
         // Cumulative area of all entries of this merged entry.
-        private int coveredArea = 0;
+        private long coveredArea = 0;
         
         /**
          * Default constructor.
@@ -85,7 +85,7 @@ public class MergedEntryDataset
         /**
          * @return the amount of wasted area in this merged entry.
          */
-        public int wastedArea() {
+        public long wastedArea() {
             return super.area() - coveredArea;
         }
         
@@ -6,6 +6,7 @@ package packing.data;
 import packing.genetic.CrossoverPopulation;
 import packing.tools.MultiTool;
 import packing.tools.Logger;
+import packing.tools.Logger.Type;
 
 
 //##########
@@ -23,6 +24,7 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -34,8 +36,9 @@ public class PolishDataset
     // The used random variable.
     final private static Random random = new Random();
     
-    // Counter for the operators. Must be static.
-    private static int opCounter = 0;
+    // Counter for the operators. Must be static, and hence atomic since
+    // datasets of concurrent jobs create operators at the same time.
+    final private static AtomicInteger opCounter = new AtomicInteger();
     
     // Map containing a map from the id's to the corresponding entries.
     final private Map<Integer, CompareEntry> entryMap = new HashMap<>();
@@ -64,10 +67,10 @@ public class PolishDataset
         private PolishDataset pd;
         
         // The total wasted area of the operator.
-        private int wastedArea = 0;
+        private long wastedArea = 0;
         
         // The total area of the operator (covered + wasted).
-        private int area = 0;
+        private long area = 0;
         
         // The involved entries.
         private CompareEntry[] entries = null; // Two direct involved entries.
@@ -81,7 +84,7 @@ public class PolishDataset
          * @param dir the direcion of the operator.
          */
         public Operator(Direction dir, PolishDataset pd) {
-            super(opCounter++);
+            super(opCounter.getAndIncrement());
             this.dir = dir;
             this.pd = pd;
         }
@@ -145,14 +148,14 @@ public class PolishDataset
          * 
          * @param wa the new amount of wasted area.
          */
-        public void setWastedArea(int wa) {
+        public void setWastedArea(long wa) {
             wastedArea = wa;
         }
         
         /**
          * @return the amount of wasted area.
          */
-        public int wastedArea() {
+        public long wastedArea() {
             return wastedArea;
         }
         
@@ -161,7 +164,7 @@ public class PolishDataset
          * 
          * @param area the new total area.
          */
-        public void setArea(int area) {
+        public void setArea(long area) {
             this.area = area;
         }
         
@@ -169,7 +172,7 @@ public class PolishDataset
          * @return the total area (covered + wasted).
          */
         @Override
-        public int area() {
+        public long area() {
             return area;
         }
         
@@ -561,8 +564,10 @@ public class PolishDataset
                     // tmp
                     List<CompareEntry> tmp = list;
                     list = newList;
-                    Logger.write("regen[0]: " + hints[hintCounter - 1]);
-                    Logger.write("regen[1]: " + toShortString());
+                    if (Logger.isEnabled(Type.DEBUG)) {
+                        Logger.write("regen[0]: " + hints[hintCounter - 1]);
+                        Logger.write("regen[1]: " + toShortString());
+                    }
                     list = tmp;
                     
                 } else {
@@ -584,7 +589,7 @@ public class PolishDataset
                     // tmp
                     List<CompareEntry> tmp = list;
                     list = newList;
-                    Logger.write("regen[2]: " + toShortString());
+                    if (Logger.isEnabled(Type.DEBUG)) Logger.write("regen[2]: " + toShortString());
                     list = tmp;
                 }
                 
@@ -702,10 +707,10 @@ public class PolishDataset
             
             list.removeAll(first);
             list.removeAll(last);
-            Logger.write(list);
+            if (Logger.isEnabled(Type.DEBUG)) Logger.write(list);
             list.addAll(lastPos - first.size() - last.size() + 1, first);
             list.addAll(firstPos - first.size() + 1, last);
-            Logger.write("pd: " + toShortString());
+            if (Logger.isEnabled(Type.DEBUG)) Logger.write("pd: " + toShortString());
             return;
         }
     }
@@ -763,7 +768,7 @@ public class PolishDataset
             list.add(op);
         }
         
-        Logger.write("init: " + toShortString());
+        if (Logger.isEnabled(Type.DEBUG)) Logger.write("init: " + toShortString());
         calcEffectiveSize();
     }
     
@@ -0,0 +1,167 @@
+
+package packing.generator;
+
+
+//##########
+// Java imports
+import java.util.Arrays;
+
+
+/**
+ * Min-heap of bounding boxes, ordered on area and then on width.
+ *
+ * A box is stored as a single long {@code width << 32 | height}, and its
+ * area is kept in a parallel array, such that no objects are created for
+ * the boxes. The area does not fit next to the width in a single long,
+ * since the area of a box may need more than 32 bits.
+ */
+class BoxHeap {
+    // The areas and boxes in heap order.
+    private long[] areas;
+    private long[] boxes;
+    // The number of boxes in the heap.
+    private int size = 0;
+
+
+    /**-------------------------------------------------------------------------
+     * Constructor
+     * -------------------------------------------------------------------------
+     */
+    public BoxHeap() {
+        this(16);
+    }
+
+    /**
+     * @param capacity the initial capacity of the heap.
+     */
+    public BoxHeap(int capacity) {
+        areas = new long[Math.max(1, capacity)];
+        boxes = new long[areas.length];
+    }
+
+
+    /**-------------------------------------------------------------------------
+     * Functions
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * @param width the width of the box.
+     * @param height the height of the box.
+     * @return the box as a single long.
+     */
+    public static long box(int width, int height) {
+        return ((long) width << 32) | (height & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @param box the box.
+     * @return the width of the box.
+     */
+    public static int width(long box) {
+        return (int) (box >>> 32);
+    }
+
+    /**
+     * @param box the box.
+     * @return the height of the box.
+     */
+    public static int height(long box) {
+        return (int) box;
+    }
+
+    /**
+     * Adds a box with its actual area.
+     *
+     * @param width the width of the box.
+     * @param height the height of the box.
+     */
+    public void add(int width, int height) {
+        add(box(width, height), (long) width * height);
+    }
+
+    /**
+     * Adds a box with the given area, which may differ from the area
+     * of the box, e.g. for a lower bound of a box that is determined later.
+     *
+     * @param box the box.
+     * @param area the area to order the box on.
+     */
+    public void add(long box, long area) {
+        if (size == areas.length) {
+            areas = Arrays.copyOf(areas, 2 * size);
+            boxes = Arrays.copyOf(boxes, 2 * size);
+        }
+
+        // Move the parents down until the box fits.
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(area, box, areas[parent], boxes[parent])) break;
+            areas[i] = areas[parent];
+            boxes[i] = boxes[parent];
+            i = parent;
+        }
+        areas[i] = area;
+        boxes[i] = box;
+    }
+
+    /**
+     * @return the area of the minimal box.
+     * @throws IllegalStateException if the heap is empty.
+     */
+    public long peekArea() {
+        if (size == 0) throw new IllegalStateException("The heap is empty.");
+        return areas[0];
+    }
+
+    /**
+     * Removes the minimal box.
+     *
+     * @return the minimal box.
+     * @throws IllegalStateException if the heap is empty.
+     */
+    public long poll() {
+        if (size == 0) throw new IllegalStateException("The heap is empty.");
+        long min = boxes[0];
+
+        // Move the children of the last box up until it fits.
+        long area = areas[--size];
+        long box = boxes[size];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && less(areas[child + 1], boxes[child + 1],
+                    areas[child], boxes[child])) {
+                child++;
+            }
+            if (!less(areas[child], boxes[child], area, box)) break;
+            areas[i] = areas[child];
+            boxes[i] = boxes[child];
+            i = child;
+        }
+        areas[i] = area;
+        boxes[i] = box;
+
+        return min;
+    }
+
+    /**
+     * @return whether the heap contains no boxes.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the number of boxes in the heap.
+     */
+    public int size() {
+        return size;
+    }
+
+    private static boolean less(long area1, long box1, long area2, long box2) {
+        return area1 < area2 || (area1 == area2 && box1 < box2);
+    }
+
+}
@@ -7,21 +7,45 @@ import packing.data.CompareEntry;
 import packing.data.Dataset;
 import packing.packer.Packer;
 import packing.packer.PackerFactory;
+import packing.tools.ThreadMonitor;
 
 
 //##########
+// Java imports
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 
 /**
  * Class description here.
  */
 public class FixedHeightRandomSearchGenerator extends Generator {
-    static {
+    {
         name = "fixed height random search";
     }
 
+    // Whether to run a search worker for every thread it may use.
+    final private boolean parallel;
+
+    // The width of the best solution found so far. Shared by all workers,
+    // and only ever decreased.
+    final private AtomicInteger widthBound
+            = new AtomicInteger(Integer.MAX_VALUE);
+
     public FixedHeightRandomSearchGenerator(PackerFactory factory) {
+        this(factory, false);
+    }
+
+    /**
+     * @param factory the factory used to create the packers.
+     * @param parallel whether to start a search worker for every
+     *     thread it may use, see {@link #setMaxThreads(int)}.
+     */
+    public FixedHeightRandomSearchGenerator(PackerFactory factory,
+            boolean parallel) {
         super(factory);
+        this.parallel = parallel;
     }
     
     @Override
@@ -31,11 +55,10 @@ public class FixedHeightRandomSearchGenerator extends Generator {
         dataset.setRotation(CompareEntry.NO_ROTATION);
         
         int height = dataset.getHeight();
-        int width;
-        int minArea = 0;
+        long minArea = 0;
         
         for (CompareEntry entry : dataset) {
-            minArea += entry.getRec().width * entry.getRec().height;
+            minArea += (long) entry.getRec().width * entry.getRec().height;
         }
         
         if (minArea % height != 0) {
@@ -43,29 +66,79 @@ public class FixedHeightRandomSearchGenerator extends Generator {
         }
         
         best = generateUpperBound(dataset);
-        width = best.getWidth();
+        widthBound.set(best.getWidth());
         
         //System.err.printf("Found initial solution: [%d x %d] (%.5f%% wasted space)\n", best.getWidth(), best.getHeight(),
         //        100 * (best.getArea() - minArea) / (double) best.getArea());
         
-        // %%explaination needed%%
-        while (height * width > minArea) {
-            // Random Search
-            dataset.shuffle();
-            dataset.setRotation(CompareEntry.RANDOM_ROTATION);
-            
-            Packer packer = packerFactory.create(width, height);
-            Dataset packed = packer.pack(dataset);
-            
-            if (packed != null) {
-                if (packed.getArea() < best.getArea()) {
-                    System.err.printf("Found new solution: [%d x %d] (%.5f%% wasted space)\n", packed.getWidth(), packed.getHeight(),
-                            100 * (packed.getArea() - minArea) / (double) packed.getArea());
-                    best = packed;
-                    width = packed.getWidth();
-                }
+        if (parallel) {
+            for (int i = 1; i < getMaxThreads(); i++) {
+                ThreadMonitor.startThread(createRunnable(i, dataset.clone(),
+                        height, minArea));
             }
         }
 
+        createRunnable(0, dataset, height, minArea).run();
+    }
+
+    /**
+     * Creates a random search worker. Each worker uses its own random
+     * and its own dataset, and only shares the width bound.
+     *
+     * @param worker the index of the worker, see {@link #checkPause(int)}.
+     * @param dataset the dataset to be shuffled by this worker.
+     * @param height the height of the sheet.
+     * @param minArea the minimal area of any solution.
+     * @return a runnable that searches until the minimal area is reached.
+     */
+    private Runnable createRunnable(int worker, Dataset dataset, int height,
+            long minArea) {
+        return () -> {
+            Random random = new Random();
+            Predicate<CompareEntry> randomRotation
+                    = entry -> random.nextBoolean();
+
+            int width;
+            // Stop when the best solution has reached the lower bound.
+            // A solution of a concurrent generator also bounds the width,
+            // since all solutions have the same height.
+            while ((long) height * (width = (int) Math.min(widthBound.get(),
+                    getSharedArea() / height)) > lowerBound) {
+                checkPause(worker);
+                // Random Search
+                dataset.shuffle(random);
+                dataset.setRotation(randomRotation);
+
+                // Only strict improvements are of interest, so pack in a
+                // sheet that is narrower than the current bound.
+                Packer packer = packerFactory.obtain(width - 1, height);
+                Dataset packed = packer.pack(dataset);
+
+                if (packed != null) {
+                    updateBest(packed, minArea);
+                }
+            }
+        };
+    }
+
+    /**
+     * Lowers the shared width bound and updates the best solution
+     * if the packed dataset is an improvement.
+     *
+     * @param packed the packed dataset.
+     * @param minArea the minimal area of any solution.
+     */
+    private void updateBest(Dataset packed, long minArea) {
+        int width = packed.getWidth();
+        int bound;
+        while (width < (bound = widthBound.get())) {
+            if (!widthBound.compareAndSet(bound, width)) continue;
+
+            if (updateBest(packed)) {
+                System.err.printf("Found new solution: [%d x %d] (%.5f%% wasted space)\n", packed.getWidth(), packed.getHeight(),
+                        100 * (packed.getArea() - minArea) / (double) packed.getArea());
+            }
+            return;
+        }
     }
 }
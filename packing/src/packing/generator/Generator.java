@@ -7,6 +7,11 @@ import packing.data.CompareEntry;
 import packing.data.Dataset;
 import packing.packer.Packer;
 import packing.packer.PackerFactory;
+import packing.tools.Logger;
+import packing.tools.Metrics;
+import packing.tools.NullLog;
+import packing.tools.SearchTrace;
+import packing.tools.SolutionValidator;
 import packing.tools.ThreadMonitor;
 
 
@@ -14,6 +19,7 @@ import packing.tools.ThreadMonitor;
 // Java imports
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 
 
@@ -23,21 +29,79 @@ import java.util.function.Predicate;
 public abstract class Generator {
     protected PackerFactory packerFactory;
     protected Dataset best = null;
+    // A lower bound on the area of any solution.
+    protected long lowerBound = 0;
     private volatile Thread genThread;
+    // Whether the generator has been interrupted.
+    private volatile boolean interrupted = false;
+    // The best solution of the generators running concurrently with
+    // this generator, or {@code null} if it runs on its own.
+    private volatile SharedBest shared = null;
+    // The time at which the generator started.
+    private long startTime;
+    // The time it took to find the best solution.
+    private volatile long timeToBest = -1;
+    // Whether the last run proved that its best solution is optimal.
+    private volatile boolean proved = false;
+    // A known solution that is used as initial upper bound, or {@code null}.
+    private Dataset seed = null;
+    // The number of times this generator improved the shared best solution.
+    final private AtomicInteger numSharedImprovements = new AtomicInteger();
+    // The number of search threads that may run. The other threads wait
+    // at their next pause point.
+    private volatile int runThreads = Integer.MAX_VALUE;
+    // The lock used for waiting while paused.
+    final private Object pauseLock = new Object();
+    // The maximum number of threads the generator may search with.
+    private int maxThreads = Runtime.getRuntime().availableProcessors();
+    
+    // The statistics of all generators of this class.
+    final private Metrics.Counter runs;
+    final private Metrics.Histogram timeToFirstHist;
+    final private Metrics.Histogram timeToBestHist;
+    final private Metrics.Series bestAreas;
+
+    // The name of the algorithm.
+    protected String name;
 
-    protected static String name;
+    static {
+        // Initialize the logger before any search thread uses it. A thread
+        // that is stopped while it initializes a class leaves that class
+        // unusable for the rest of the process, e.g. for the next jobs of
+        // a batch.
+        Logger.isEnabled(Logger.Type.DEBUG);
+        NullLog.getInstance();
+    }
 
     public Generator(PackerFactory factory) {
         this.packerFactory = factory;
+        
+        String prefix = getClass().getSimpleName() + ".";
+        runs = Metrics.counter(prefix + "runs");
+        timeToFirstHist = Metrics.histogram(prefix + "timeToFirstMs");
+        timeToBestHist = Metrics.histogram(prefix + "timeToBestMs");
+        bestAreas = Metrics.series(prefix + "bestArea");
     }
     
     public Dataset generate(Dataset dataset) {
         genThread = Thread.currentThread();
+        startTime = System.currentTimeMillis();
+        timeToBest = -1;
+        proved = false;
+        best = null;
+        Object event = SearchTrace.beginRun();
 
         System.err.printf("Algorithm: %s\n", name);
         
         try {
-            generateSolution(dataset);
+            lowerBound = LowerBound.area(dataset);
+            if (seed != null) updateBest(seed.clone());
+            // Don't start when interrupted before the thread was known.
+            if (!interrupted) {
+                generateSolution(dataset);
+                // Only a run that wasn't stopped proves anything.
+                proved = !interrupted && provesOptimality();
+            }
             
         } catch (ThreadDeath e) {
             // tmp
@@ -48,11 +112,22 @@ public abstract class Generator {
                 Thread.sleep(0);
             } catch (InterruptedException e2) { } 
             
-        } catch (Exception e) {
+        } catch (Exception | Error e) {
+            // Errors are reported as well, since the returned best
+            // solution would otherwise hide them.
             e.printStackTrace(System.err);
             
         } finally {
             ThreadMonitor.killAll();
+            genThread = null;
+            // An interrupt only applies to a single run. It isn't cleared
+            // at the start of the run, since an interrupt may arrive
+            // before the run has started.
+            interrupted = false;
+            runs.increment();
+            if (timeToBest >= 0) timeToBestHist.record(timeToBest);
+            
+            SearchTrace.commitRun(event, this, dataset, best, timeToBest);
             return best;
         }
     }
@@ -70,7 +145,6 @@ public abstract class Generator {
      */
     public Dataset generateUpperBound(Dataset dataset) {
         int height = dataset.getHeight();
-        int width = Integer.MAX_VALUE;
 
         if (height == 0 && !dataset.isFixedHeight()) {
             for (CompareEntry entry : dataset) {
@@ -78,6 +152,21 @@ public abstract class Generator {
             }
         }
 
+        return generateUpperBound(dataset, height);
+    }
+    
+    /**
+     * Packs the dataset into a sheet of the given height for every
+     * combination of the default orderings and rotations, and keeps
+     * the best packing.
+     * 
+     * @param dataset the dataset to pack.
+     * @param height the height of the sheet.
+     * @return the best solution found so far.
+     */
+    public Dataset generateUpperBound(Dataset dataset, int height) {
+        int width = Integer.MAX_VALUE;
+
         for (Predicate<CompareEntry> predicate :
                 Arrays.asList(CompareEntry.NO_ROTATION,
                         CompareEntry.LONGEST_SIDE_VERTIAL)) {
@@ -89,13 +178,11 @@ public abstract class Generator {
                             CompareEntry.SORT_WIDTH, 
                             CompareEntry.SORT_LONGEST_SIDE)) {
                 dataset.setOrdering(comparator);
-                Packer packer = packerFactory.create(width, height);
+                Packer packer = packerFactory.obtain(width, height);
+                if (best != null) packer.setCutoffArea(best.getArea());
                 Dataset packed = packer.pack(dataset);
                 
-                if (packed != null &&
-                        (best == null ||
-                         packed.getArea() < best.getArea())) {
-                    best = packed;
+                if (packed != null && updateBest(packed)) {
                     width = packed.getWidth();
                 }
             }
@@ -104,6 +191,209 @@ public abstract class Generator {
         return best;
     }
     
+    /**
+     * Replaces the best solution if the given dataset has a smaller area,
+     * and offers it to the generators running concurrently. Solutions that
+     * violate the height restriction are ignored, and solutions that would
+     * be an improvement are validated first.
+     * 
+     * @param dataset the new solution.
+     * @return whether the best solution was replaced.
+     */
+    protected boolean updateBest(Dataset dataset) {
+        if (dataset.isFixedHeight() &&
+                dataset.getEffectiveHeight() > dataset.getHeight()) {
+            return false;
+        }
+        
+        Dataset curBest = best;
+        if (curBest == null || dataset.getArea() < curBest.getArea() ||
+                (shared != null && dataset.getArea() < shared.getArea())) {
+            String error = SolutionValidator.validate(dataset);
+            if (error != null) {
+                System.err.println("Rejected invalid solution of "
+                        + getClass().getSimpleName() + ": " + error);
+                return false;
+            }
+        }
+        
+        if (shared != null && shared.offer(dataset)) {
+            numSharedImprovements.incrementAndGet();
+        }
+        
+        synchronized(this) {
+            if (best != null && best.getArea() <= dataset.getArea()) {
+                return false;
+            }
+            
+            long time = System.currentTimeMillis() - startTime;
+            if (best == null) timeToFirstHist.record(time);
+            best = dataset;
+            timeToBest = time;
+            bestAreas.record(time, dataset.getArea());
+            SearchTrace.newBest(this, dataset);
+            return true;
+        }
+    }
+    
+    /**
+     * Sets a known solution of the dataset that is used as initial best
+     * solution, and hence as initial upper bound, by the next call to
+     * {@link #generate(Dataset)}.
+     * 
+     * @param seed the known solution, or {@code null} to start
+     *     without a solution.
+     */
+    public void setSeed(Dataset seed) {
+        this.seed = seed;
+    }
+    
+    /**
+     * Sets the best solution shared with the generators that run
+     * concurrently with this generator.
+     * 
+     * @param shared the shared best solution, or {@code null} if
+     *     the generator runs on its own.
+     */
+    public void setShared(SharedBest shared) {
+        this.shared = shared;
+    }
+    
+    /**
+     * @return the area of the best solution found by the generators
+     *     running concurrently, or {@link Long#MAX_VALUE} if there is
+     *     no such solution.
+     */
+    protected long getSharedArea() {
+        SharedBest s = shared;
+        return (s == null ? Long.MAX_VALUE : s.getArea());
+    }
+    
+    /**
+     * @return the number of times this generator improved the best
+     *     solution shared with the generators running concurrently.
+     */
+    int getNumSharedImprovements() {
+        return numSharedImprovements.get();
+    }
+    
+    /**
+     * Pauses or resumes the generator. A paused generator waits at its
+     * next call to {@link #checkPause()}.
+     * 
+     * @param paused whether the generator should be paused.
+     */
+    void setPaused(boolean paused) {
+        setRunThreads(paused ? 0 : Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Limits the number of search threads that may run. The search thread
+     * with index {@code i} waits at its next call to
+     * {@link #checkPause(int)} while {@code i >= runThreads}.
+     * 
+     * @param runThreads the number of search threads that may run,
+     *     where 0 pauses the generator.
+     */
+    void setRunThreads(int runThreads) {
+        synchronized(pauseLock) {
+            this.runThreads = Math.max(0, runThreads);
+            pauseLock.notifyAll();
+        }
+    }
+    
+    /**
+     * Waits while the generator is paused. Equivalent to
+     * {@link #checkPause(int)} for the first search thread.
+     */
+    protected void checkPause() {
+        checkPause(0);
+    }
+    
+    /**
+     * Waits while the given search thread may not run. Generators that can
+     * be paused call this regularly from all their search threads, outside
+     * of any locks, where every thread passes its own index.
+     * 
+     * @param thread the index of the calling search thread, starting at 0.
+     */
+    protected void checkPause(int thread) {
+        if (thread < runThreads) return;
+        
+        synchronized(pauseLock) {
+            while (thread >= runThreads) {
+                try {
+                    pauseLock.wait();
+                    
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Limits the number of threads the generator searches with, e.g. when
+     * it shares the processors with other generators.
+     * 
+     * @param maxThreads the maximum number of threads.
+     */
+    public void setMaxThreads(int maxThreads) {
+        this.maxThreads = Math.max(1, maxThreads);
+    }
+    
+    /**
+     * @return the maximum number of threads the generator may search with.
+     *     Defaults to the number of available processors.
+     */
+    protected int getMaxThreads() {
+        return maxThreads;
+    }
+    
+    /**
+     * @return the time in milliseconds it took to find the best solution
+     *     via {@link #updateBest(Dataset)}, or {@code -1} if unknown.
+     */
+    public long getTimeToBest() {
+        return timeToBest;
+    }
+    
+    /**
+     * @return whether the generator proves the optimality of its solution
+     *     when it finishes.
+     */
+    public boolean isExact() {
+        return false;
+    }
+    
+    /**
+     * @return whether a run that finished normally proves that its best
+     *     solution is optimal. Defaults to {@link #isExact()}.
+     */
+    protected boolean provesOptimality() {
+        return isExact();
+    }
+    
+    /**
+     * @return whether the last run finished normally, and proved that its
+     *     best solution is optimal. This is never the case when the run
+     *     was interrupted or failed.
+     */
+    public boolean hasProvedOptimality() {
+        return proved;
+    }
+    
+    /**
+     * @return whether the best solution found so far, possibly by another
+     *     generator, has reached the lower bound, and hence is optimal.
+     */
+    protected boolean isOptimal() {
+        Dataset b = best;
+        return (b != null && b.getArea() <= lowerBound)
+                || getSharedArea() <= lowerBound;
+    }
+    
     /**
      * Interrupts the generator when the time is up.
      * 
@@ -116,7 +406,10 @@ public abstract class Generator {
     @SuppressWarnings("deprecation")
     public void interrupt() {
         //System.err.println("INTERRUPT!");
-        genThread.stop();
+        interrupted = true;
+        setPaused(false);
+        Thread thread = genThread;
+        if (thread != null) thread.stop();
     }
     
 }
\ No newline at end of file
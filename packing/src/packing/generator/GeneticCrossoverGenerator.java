@@ -6,6 +6,7 @@ import packing.data.Dataset;
 import packing.genetic.CrossoverPopulation;
 import packing.genetic.Population;
 import packing.packer.PackerFactory;
+import packing.tools.Metrics;
 import packing.tools.ThreadMonitor;
 
 
@@ -17,6 +18,9 @@ import packing.tools.ThreadMonitor;
  */
 public class GeneticCrossoverGenerator
         extends Generator {
+    // The number of generations of all crossover generators.
+    final private static Metrics.Counter GENERATIONS
+            = Metrics.counter("GeneticCrossoverGenerator.generations");
     
     public GeneticCrossoverGenerator(PackerFactory pf) {
         super(pf);
@@ -27,42 +31,32 @@ public class GeneticCrossoverGenerator
     public void generateSolution(Dataset dataset) {
         generateUpperBound(dataset);
         
-        for (int i = 4; i < Runtime.getRuntime().availableProcessors(); i++) {
-            ThreadMonitor.startThread(createRunnable(dataset.clone()));
+        for (int i = 4; i < getMaxThreads(); i++) {
+            ThreadMonitor.startThread(createRunnable(i - 3, dataset.clone()));
         }
         
-        createRunnable(dataset).run();
+        createRunnable(0, dataset).run();
     }
     
     /**
      * 
+     * @param worker the index of the worker, see {@link #checkPause(int)}.
      * @param dataset
      * @return 
      */
-    private Runnable createRunnable(Dataset dataset) {
+    private Runnable createRunnable(int worker, Dataset dataset) {
         return () -> {
             Population pop = new CrossoverPopulation(dataset);
             
-            while (true) {
+            while (!isOptimal()) {
+                checkPause(worker);
                 pop.calculateFitness();
                 pop.performSelection();
                 pop.performMutation();
                 updateBest(pop.getBest());
+                GENERATIONS.increment();
             }
         };
     }
     
-    /**
-     * Updates the best dataset if a new best was found.
-     * 
-     * @param dataset 
-     */
-    private void updateBest(Dataset dataset) {
-        synchronized(best) {
-            if (dataset.getArea() < best.getArea()) {
-                best = dataset;
-            }
-        }
-    }
-    
 }
@@ -7,6 +7,7 @@ import packing.data.CompareEntry;
 import packing.data.Dataset;
 import packing.genetic.RandomPopulation;
 import packing.packer.PackerFactory;
+import packing.tools.Metrics;
 
 
 //##########
@@ -19,8 +20,11 @@ import java.awt.Rectangle;
  */
 public class GeneticGenerator
         extends Generator {
+    // The number of generations of all genetic generators.
+    final private static Metrics.Counter GENERATIONS
+            = Metrics.counter("GeneticGenerator.generations");
 
-    static {
+    {
         name = "genetic";
     }
     
@@ -36,12 +40,12 @@ public class GeneticGenerator
         int height = dataset.getHeight();
         int width;
         int minWidth = 0;
-        int minArea = 0;
+        long minArea = 0;
         int generation = 0;
         
         for (CompareEntry entry : dataset) {
             Rectangle rect = entry.getRec();
-            minArea += rect.width * rect.height;
+            minArea += (long) rect.width * rect.height;
             minWidth = Math.max(minWidth, rect.width);
         }
         
@@ -61,15 +65,17 @@ public class GeneticGenerator
         Dataset current;
         
         try {
-            while (best.getArea() > minArea && width > minWidth) {
+            while (!isOptimal() && width > minWidth) {
+                checkPause();
                 generation++;
+                GENERATIONS.increment();
                 population.calculateFitness();
                 current = population.getBest();
                 
                 if (current.getArea() < best.getArea()) {
                     //System.err.printf("Found new solution: [%d x %d] (%.5f%% wasted space)\n", current.getWidth(), current.getHeight(),
                     //        100 * (current.getArea() - minArea) / (double) current.getArea());
-                    best = current;
+                    updateBest(current.clone());
                 }
                 
                 population.performSelection();
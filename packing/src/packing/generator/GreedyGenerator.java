@@ -14,7 +14,7 @@ import packing.packer.PackerFactory;
  */
 public class GreedyGenerator extends Generator {
 
-    static {
+    {
         name = "greedy";
     }
 
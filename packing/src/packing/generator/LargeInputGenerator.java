@@ -0,0 +1,68 @@
+
+package packing.generator;
+
+
+// Packing imports
+import packing.data.CompareEntry;
+import packing.data.Dataset;
+import packing.packer.PackerFactory;
+
+
+//##########
+// Java imports
+import java.awt.Rectangle;
+
+
+/**
+ * Generates a greedy solution for instances that are too large for the
+ * other generators. Should be used with a packer that takes linear time,
+ * e.g. the one of {@link packing.packer.ShelfPackerFactory}.
+ *
+ * For a free height, the greedy upper bound uses a sheet with the height of
+ * the highest rectangle, whose width does not even fit in an int for large
+ * instances. Instead, the height of a square with the area of the rectangles
+ * is used.
+ */
+public class LargeInputGenerator extends Generator {
+    {
+        name = "large";
+    }
+
+
+    public LargeInputGenerator(PackerFactory factory) {
+        super(factory);
+    }
+
+
+    @Override
+    public void generateSolution(Dataset dataset) {
+        dataset.setRotation(CompareEntry.NO_ROTATION);
+        int height = (dataset.isFixedHeight()
+                ? dataset.getHeight()
+                : squareHeight(dataset));
+        best = generateUpperBound(dataset, height);
+    }
+
+    /**
+     * @param dataset the dataset to determine the height for.
+     * @return the height of a square with the area of the rectangles,
+     *     or the longest side that must fit if that is higher.
+     */
+    private static int squareHeight(Dataset dataset) {
+        long area = 0;
+        int minHeight = 0;
+        for (CompareEntry entry : dataset) {
+            Rectangle rec = entry.getNormalRec();
+            area += (long) rec.width * rec.height;
+            // The upper bound also packs the rectangles with their
+            // longest side vertical.
+            minHeight = Math.max(minHeight, (dataset.allowRotation()
+                    ? Math.max(rec.width, rec.height)
+                    : rec.height));
+        }
+
+        return (int) Math.max(minHeight, Math.min(Integer.MAX_VALUE,
+                (long) Math.ceil(Math.sqrt(area))));
+    }
+
+}
@@ -0,0 +1,563 @@
+package packing.generator;
+
+
+// Packing imports
+import packing.data.CompareEntry;
+import packing.data.Dataset;
+
+
+//##########
+// Java imports
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+
+/**
+ * Computes lower bounds on the area of the bounding box of any packing of
+ * a dataset. A generator whose best solution has reached this bound can
+ * stop, since its solution is optimal.
+ *
+ * For a fixed height, the width is bounded using the continuous bound,
+ * the Martello-Monaci-Vigo bound L2, and the dual feasible functions of
+ * Fekete and Schepers applied to the heights of the rectangles.
+ * For a free height, the height of every possible width is bounded by
+ * the rectangles that cannot be placed next to each other.
+ */
+public class LowerBound {
+    // The largest k for which the dual feasible function u^(k) is used.
+    final private static int MAX_K = 20;
+
+    // The maximal number of rectangles for which the pairwise stacking
+    // height is used for the free height bound.
+    final private static int MAX_PAIR_RECS = 1000;
+
+    // The maximal number of values of epsilon tried when rotations are
+    // allowed, since then every try costs linear time.
+    final private static int MAX_EPSILONS = 256;
+
+
+    /**
+     * @param dataset the dataset to bound.
+     * @return a lower bound on the area of the bounding box of any
+     *     packing of the dataset.
+     */
+    public static long area(Dataset dataset) {
+        long area;
+        if (dataset.isFixedHeight()) {
+            area = (long) dataset.getHeight() * width(dataset);
+
+        } else {
+            area = freeHeightArea(dataset);
+        }
+
+        return area;
+    }
+
+    /**
+     * @param dataset the dataset to bound. Must have a fixed height.
+     * @return a lower bound on the width of any packing of the dataset.
+     */
+    public static int width(Dataset dataset) {
+        int sheetHeight = dataset.getHeight();
+        boolean rotation = dataset.allowRotation();
+        int n = dataset.size();
+        int[] widths = new int[n];
+        int[] heights = new int[n];
+
+        long area = 0;
+        int maxWidth = 0;
+        int i = 0;
+        for (CompareEntry entry : dataset) {
+            Rectangle rec = entry.getNormalRec();
+            widths[i] = rec.width;
+            heights[i++] = rec.height;
+            area += (long) rec.width * rec.height;
+
+            // The smallest width among the orientations that fit.
+            int minWidth = (rec.height <= sheetHeight
+                    ? rec.width : Integer.MAX_VALUE);
+            if (rotation && rec.width <= sheetHeight) {
+                minWidth = Math.min(minWidth, rec.height);
+            }
+            maxWidth = Math.max(maxWidth, minWidth);
+        }
+
+        long bound = Math.max(maxWidth, ceilDiv(area, sheetHeight));
+        if (!rotation) {
+            bound = Math.max(bound, martelloVigo(widths, heights,
+                    sheetHeight));
+        }
+        bound = Math.max(bound, dualFeasible(widths, heights,
+                sheetHeight, rotation));
+
+        return (int) Math.min(Integer.MAX_VALUE, bound);
+    }
+
+    /**
+     * Determines a lower bound on the height of a bounding box with the
+     * given width, using the rectangles that cannot be placed next to
+     * each other. Use {@link HeightBound} for bounding many widths.
+     *
+     * @param dataset input set
+     * @param width width of current boundingBox
+     * @param minArea minimum needed area
+     * @return minimum height required for this box
+     */
+    public static int height(Dataset dataset, int width, long minArea) {
+        return new HeightBound(dataset, minArea).height(width);
+    }
+
+
+    /**-------------------------------------------------------------------------
+     * Height bound class
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * Lower bound on the height of a bounding box as function of its width.
+     * Without rotations, the height is at least the height of the highest
+     * rectangle, the height of any pair of rectangles which together are
+     * wider then the box, and the height of the rectangles wider then half
+     * the box plus, for an even width, the highest rectangle of exactly
+     * half the width, if any.
+     * The rectangles are sorted on width once, such that the bound of a
+     * width takes linear instead of quadratic time.
+     */
+    public static class HeightBound {
+        // Whether rotations are allowed.
+        final private boolean rotation;
+        // The total area of the rectangles.
+        final private long minArea;
+        // The widths and heights of the rectangles, sorted on width
+        // and then on height.
+        final private int[] widths;
+        final private int[] heights;
+        // The total height of the rectangles before every index.
+        final private long[] prefixHeights;
+        // The index of the highest rectangle from every index on, and the
+        // height of the highest other rectangle from that index on, or -1.
+        final private int[] suffixHighest;
+        final private int[] suffixSecond;
+        // The height of the highest rectangle.
+        final private int maxHeight;
+
+
+        /**
+         * @param dataset the dataset to bound.
+         * @param minArea minimum needed area.
+         */
+        public HeightBound(Dataset dataset, long minArea) {
+            this.rotation = dataset.allowRotation();
+            this.minArea = minArea;
+
+            int n = dataset.size();
+            long[] recs = new long[n];
+            int i = 0;
+            for (CompareEntry entry : dataset) {
+                Rectangle rect = entry.getRec();
+                recs[i++] = ((long) rect.width << 32) | rect.height;
+            }
+            Arrays.sort(recs);
+
+            widths = new int[n];
+            heights = new int[n];
+            prefixHeights = new long[n + 1];
+            int max = 0;
+            for (i = 0; i < n; i++) {
+                widths[i] = (int) (recs[i] >>> 32);
+                heights[i] = (int) recs[i];
+                prefixHeights[i + 1] = prefixHeights[i] + heights[i];
+                max = Math.max(max, heights[i]);
+            }
+            maxHeight = max;
+
+            suffixHighest = new int[n + 1];
+            suffixSecond = new int[n + 1];
+            suffixHighest[n] = -1;
+            suffixSecond[n] = -1;
+            for (i = n - 1; i >= 0; i--) {
+                int highest = suffixHighest[i + 1];
+                if (highest == -1 || heights[i] > heights[highest]) {
+                    suffixHighest[i] = i;
+                    suffixSecond[i] = (highest == -1 ? -1 : heights[highest]);
+
+                } else {
+                    suffixHighest[i] = highest;
+                    suffixSecond[i] = Math.max(suffixSecond[i + 1],
+                            heights[i]);
+                }
+            }
+        }
+
+        /**
+         * @param width width of current boundingBox
+         * @return a lower bound of {@link #height(int)} which takes
+         *     constant time.
+         */
+        public int quickHeight(int width) {
+            if (width == 0) return Integer.MAX_VALUE;
+            if (rotation) return (int) Math.min(Integer.MAX_VALUE,
+                    minArea / width);
+            return (int) Math.max(maxHeight, Math.min(Integer.MAX_VALUE,
+                    ceilDiv(minArea, width)));
+        }
+
+        /**
+         * @param width width of current boundingBox
+         * @return minimum height required for this box
+         */
+        public int height(int width) {
+            if (width == 0 || rotation) return quickHeight(width);
+
+            int n = widths.length;
+            long minHeight = maxHeight;
+
+            // The pairs which together are wider then the box. The
+            // narrower the first rectangle, the wider the second must be.
+            int k = 0;
+            for (int i = n - 1; i >= 0; i--) {
+                while (k < n && (long) widths[k] + widths[i] <= width) k++;
+                if (k == n) break;
+                int other = (suffixHighest[k] != i
+                        ? heights[suffixHighest[k]]
+                        : suffixSecond[k]);
+                if (other != -1) {
+                    minHeight = Math.max(minHeight,
+                            (long) heights[i] + other);
+                }
+            }
+
+            // The rectangles wider then half the box must be stacked. For
+            // an even width, neither of them fits next to a rectangle of
+            // exactly half the width, so any single such rectangle is
+            // stacked as well. The highest one gives the tightest bound,
+            // and is the last one since the rectangles are sorted on
+            // height within the same width. For an odd width there is no
+            // such rectangle, since e.g. a 2-wide one fits next to a
+            // 3-wide one in a box of width 5.
+            int wideStart = countBelow(widths, width / 2 + 1);
+            long stackHeight = prefixHeights[n] - prefixHeights[wideStart];
+            if (width % 2 == 0) {
+                int halfStart = countBelow(widths, width / 2);
+                if (halfStart < wideStart) {
+                    stackHeight += heights[wideStart - 1];
+                }
+            }
+            minHeight = Math.max(minHeight, stackHeight);
+
+            // if current box is smaller than minimum box, increase height
+            // to be sufficient
+            minHeight = Math.max(minHeight, ceilDiv(minArea, width));
+
+            return (int) Math.min(Integer.MAX_VALUE, minHeight);
+        }
+
+    }
+
+
+    /**-------------------------------------------------------------------------
+     * Fixed height bounds
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * Computes the bound L2 of Martello, Monaci and Vigo for strip packing,
+     * where the heights of the rectangles play the role of the strip width.
+     * For every {@code alpha <= H/2}, the rectangles are divided into
+     * J1 = {h > H - alpha}, J2 = {H/2 < h <= H - alpha} and
+     * J3 = {alpha <= h <= H/2}. No two rectangles of J1 and J2 can be
+     * placed above each other, and rectangles of J3 can only be placed
+     * above those of J2.
+     *
+     * @param widths the widths of the rectangles.
+     * @param heights the heights of the rectangles.
+     * @param sheetHeight the height of the sheet.
+     * @return a lower bound on the width.
+     */
+    private static long martelloVigo(int[] widths, int[] heights,
+            int sheetHeight) {
+        int n = widths.length;
+        Integer[] order = sortedOrder(heights);
+
+        int[] sortedHeights = new int[n];
+        long[] sumWidth = new long[n + 1];
+        long[] sumArea = new long[n + 1];
+        long[] sumFree = new long[n + 1];
+        for (int i = 0; i < n; i++) {
+            int w = widths[order[i]];
+            int h = heights[order[i]];
+            sortedHeights[i] = h;
+            sumWidth[i + 1] = sumWidth[i] + w;
+            sumArea[i + 1] = sumArea[i] + (long) w * h;
+            sumFree[i + 1] = sumFree[i] + (long) w * (sheetHeight - h);
+        }
+
+        int half = countAtMost(sortedHeights, sheetHeight / 2);
+        // Without J3, all rectangles higher then half the sheet.
+        long bound = sumWidth[n] - sumWidth[half];
+
+        for (int i = 0; i < half; i++) {
+            int alpha = sortedHeights[i];
+            if (i > 0 && alpha == sortedHeights[i - 1]) continue;
+
+            int j2 = countAtMost(sortedHeights, sheetHeight - alpha);
+            long j3Area = sumArea[half] - sumArea[i];
+            long j2Free = sumFree[j2] - sumFree[half];
+
+            long alphaBound = (sumWidth[n] - sumWidth[half])
+                    + Math.max(0, ceilDiv(j3Area - j2Free, sheetHeight));
+            bound = Math.max(bound, alphaBound);
+        }
+
+        return bound;
+    }
+
+    /**
+     * Computes the bounds obtained by applying the dual feasible functions
+     * u^(k) and f_epsilon of Fekete and Schepers to the heights of the
+     * rectangles. For any such function f, no vertical line can cross
+     * rectangles whose values of f sum up to more then 1, so the sum of
+     * {@code width * f(height / H)} is a lower bound on the width.
+     * When rotations are allowed, every rectangle contributes the minimum
+     * over its orientations that fit.
+     *
+     * @param widths the widths of the rectangles.
+     * @param heights the heights of the rectangles.
+     * @param sheetHeight the height of the sheet.
+     * @param rotation whether the rectangles may be rotated.
+     * @return a lower bound on the width.
+     */
+    private static long dualFeasible(int[] widths, int[] heights,
+            int sheetHeight, boolean rotation) {
+        int n = widths.length;
+        long bound = 0;
+
+        for (int k = 1; k <= MAX_K; k++) {
+            long sum = 0;
+            for (int i = 0; i < n; i++) {
+                long value = (long) widths[i]
+                        * uk(heights[i], k, sheetHeight);
+                if (rotation && widths[i] <= sheetHeight) {
+                    long rotValue = (long) heights[i]
+                            * uk(widths[i], k, sheetHeight);
+                    if (heights[i] > sheetHeight || rotValue < value) {
+                        value = rotValue;
+                    }
+                }
+                sum += value;
+            }
+            bound = Math.max(bound, ceilDiv(sum, (long) sheetHeight * k));
+        }
+
+        // The values of epsilon to try, as heights.
+        int[] alphas = Arrays.stream(rotation ? concat(widths, heights) : heights)
+                .filter(h -> 2 * h <= sheetHeight)
+                .distinct()
+                .sorted()
+                .toArray();
+        int step = (rotation ? alphas.length / MAX_EPSILONS + 1 : 1);
+
+        for (int a = 0; a < alphas.length; a += step) {
+            int alpha = alphas[a];
+            long sum = 0;
+            for (int i = 0; i < n; i++) {
+                long value = (long) widths[i]
+                        * fEpsilon(heights[i], alpha, sheetHeight);
+                if (rotation && widths[i] <= sheetHeight) {
+                    long rotValue = (long) heights[i]
+                            * fEpsilon(widths[i], alpha, sheetHeight);
+                    if (heights[i] > sheetHeight || rotValue < value) {
+                        value = rotValue;
+                    }
+                }
+                sum += value;
+            }
+            bound = Math.max(bound, ceilDiv(sum, sheetHeight));
+        }
+
+        return bound;
+    }
+
+    /**
+     * @return {@code H * k * u^(k)(h / H)}.
+     */
+    private static long uk(int h, int k, int sheetHeight) {
+        if ((long) (k + 1) * h % sheetHeight == 0) {
+            return (long) h * k;
+        }
+        return (long) (k + 1) * h / sheetHeight * sheetHeight;
+    }
+
+    /**
+     * @return {@code H * f_epsilon(h / H)} with {@code epsilon = alpha / H}.
+     */
+    private static long fEpsilon(int h, int alpha, int sheetHeight) {
+        if (h > sheetHeight - alpha) return sheetHeight;
+        if (h >= alpha) return h;
+        return 0;
+    }
+
+
+    /**-------------------------------------------------------------------------
+     * Free height bounds
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * Computes a lower bound on the area of the bounding box when the
+     * height is free. For every width W, the height is at least the height
+     * of the highest rectangle, the total height of the rectangles wider
+     * then W/2 and the height of any pair of rectangles which together are
+     * wider then W. These bounds only change at a finite number of widths,
+     * so it suffices to take the minimum over these widths.
+     *
+     * @param dataset the dataset to bound.
+     * @return a lower bound on the area of the bounding box.
+     */
+    private static long freeHeightArea(Dataset dataset) {
+        int n = dataset.size();
+        int[] widths = new int[n];
+        int[] heights = new int[n];
+        long area = 0;
+        int maxWidth = 0;
+        int maxHeight = 0;
+        int i = 0;
+        for (CompareEntry entry : dataset) {
+            Rectangle rec = entry.getNormalRec();
+            widths[i] = rec.width;
+            heights[i++] = rec.height;
+            area += (long) rec.width * rec.height;
+            maxWidth = Math.max(maxWidth, rec.width);
+            maxHeight = Math.max(maxHeight, rec.height);
+        }
+
+        if (dataset.allowRotation() || n == 0) return area;
+
+        // Sort on decreasing width, and keep track of the total height.
+        Integer[] order = sortedOrder(widths);
+        int[] sortedWidths = new int[n];
+        long[] stackHeights = new long[n + 1];
+        for (i = 0; i < n; i++) {
+            int j = order[n - 1 - i];
+            sortedWidths[i] = widths[j];
+            stackHeights[i + 1] = stackHeights[i] + heights[j];
+        }
+
+        // The widths at which the bounds change.
+        long[] pairWidths = new long[0];
+        long[] pairHeights = new long[0];
+        if (n <= MAX_PAIR_RECS) {
+            int numPairs = n * (n - 1) / 2;
+            long[] pairs = new long[numPairs];
+            int p = 0;
+            for (i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    pairs[p++] = ((long) (widths[i] + widths[j]) << 32)
+                            | (heights[i] + heights[j]);
+                }
+            }
+            Arrays.sort(pairs);
+
+            // Keep, for every pair width, the highest pair that is at
+            // least as wide.
+            pairWidths = new long[numPairs];
+            pairHeights = new long[numPairs];
+            long max = 0;
+            for (p = numPairs - 1; p >= 0; p--) {
+                pairWidths[p] = pairs[p] >>> 32;
+                max = Math.max(max, pairs[p] & 0xFFFFFFFFL);
+                pairHeights[p] = max;
+            }
+        }
+
+        long[] candidates = new long[1 + n + pairWidths.length];
+        int c = 0;
+        candidates[c++] = maxWidth;
+        for (i = 0; i < n; i++) {
+            if (2L * widths[i] >= maxWidth) candidates[c++] = 2L * widths[i];
+        }
+        for (long pairWidth : pairWidths) {
+            if (pairWidth >= maxWidth) candidates[c++] = pairWidth;
+        }
+
+        long bound = Long.MAX_VALUE;
+        for (int k = 0; k < c; k++) {
+            long w = candidates[k];
+
+            // Rectangles with 2 * width > w.
+            int lo = 0, hi = n;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (2L * sortedWidths[mid] > w) lo = mid + 1;
+                else hi = mid;
+            }
+            long h = Math.max(maxHeight, stackHeights[lo]);
+
+            // Pairs with width > w.
+            lo = 0;
+            hi = pairWidths.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (pairWidths[mid] > w) hi = mid;
+                else lo = mid + 1;
+            }
+            if (lo < pairWidths.length) h = Math.max(h, pairHeights[lo]);
+
+            bound = Math.min(bound, Math.max(area, w * h));
+        }
+
+        return bound;
+    }
+
+
+    /**-------------------------------------------------------------------------
+     * Tools
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * @return the indices of the given values, sorted on increasing value.
+     */
+    private static Integer[] sortedOrder(int[] values) {
+        Integer[] order = new Integer[values.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (i1, i2) -> Integer.compare(
+                values[i1], values[i2]));
+        return order;
+    }
+
+    /**
+     * @return the number of values in the sorted array that are at most
+     *     the given value.
+     */
+    private static int countAtMost(int[] sorted, int value) {
+        int lo = 0, hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] <= value) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * @return the number of values in the sorted array that are less
+     *     then the given value.
+     */
+    private static int countBelow(int[] sorted, int value) {
+        int lo = 0, hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < value) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static long ceilDiv(long a, long b) {
+        return -Math.floorDiv(-a, b);
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        int[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+}
@@ -4,39 +4,158 @@ package packing.generator;
 
 // Packing imports.
 import packing.data.Dataset;
-import packing.packer.PackerFactory;
+import packing.tools.Logger;
+import packing.tools.Logger.Type;
+import packing.tools.ThreadMonitor;
 
 
 //##########
+// Java imports
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
- * 
+ * Generator that combines the solutions of multiple generators.
+ *
+ * By default the generators are executed one after another, and the
+ * solution with the smallest area is kept. In racing mode the generators
+ * run concurrently and share their best solution as a pruning bound. The
+ * race ends as soon as one of the generators proves that its solution is
+ * optimal, after which the other generators are cancelled.
  */
 public class MultiOptimalGenerator
         extends Generator {
-    final private Generator gen1;
-    final private Generator gen2;
-    
+    final private Generator[] gens;
+    // Whether the generators should run concurrently.
+    final private boolean racing;
+    // Whether one of the generators proved that its solution is optimal
+    // during the last run.
+    private volatile boolean optimal = false;
+
     public MultiOptimalGenerator(Generator gen1, Generator gen2) {
+        this(false, gen1, gen2);
+    }
+
+    /**
+     * @param racing whether to run the generators concurrently.
+     * @param gens the generators to combine.
+     */
+    public MultiOptimalGenerator(boolean racing, Generator... gens) {
         super(null);
-        this.gen1 = gen1;
-        this.gen2 = gen2;
+        this.racing = racing;
+        this.gens = gens;
+    }
+
+    @Override
+    public boolean isExact() {
+        for (Generator gen : gens) {
+            if (gen.isExact()) return true;
+        }
+
+        return false;
     }
-    
+
+    @Override
+    protected boolean provesOptimality() {
+        return optimal || (best != null && best.getArea() <= lowerBound);
+    }
+
     @Override
     public void generateSolution(Dataset dataset) {
-        best = gen1.generate(dataset);
-        System.err.println("finished gen1");
-        Dataset probBest = gen2.generate(dataset);
-        System.err.println("finished gen2");
-        
-        best.calcEffectiveSize();
-        probBest.calcEffectiveSize();
-        
-        if (best.getArea() > probBest.getArea()) {
-            best = probBest;
+        optimal = false;
+        if (racing) {
+            race(dataset);
+            return;
+        }
+
+        for (int i = 0; i < gens.length; i++) {
+            Dataset probBest = gens[i].generate(dataset);
+            System.err.println("finished gen" + (i + 1));
+            if (gens[i].hasProvedOptimality()) optimal = true;
+            if (probBest == null) continue;
+
+            probBest.calcEffectiveSize();
+            if (best == null || best.getArea() > probBest.getArea()) {
+                best = probBest;
+            }
+        }
+    }
+
+    /**
+     * Runs all generators concurrently on their own copy of the dataset.
+     * Every generator runs in its own thread group, such that killing the
+     * threads of one generator doesn't affect the other generators. The
+     * race only ends early when an exact generator finishes normally,
+     * since an exact generator that failed or was stopped proves nothing.
+     *
+     * @param dataset the dataset to generate a solution for.
+     */
+    private void race(Dataset dataset) {
+        SharedBest shared = new SharedBest();
+        if (best != null) shared.offer(best);
+        // Released when the first generator proves that its solution is
+        // optimal, or when all generators are finished.
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger(gens.length);
+        Thread[] threads = new Thread[gens.length];
+        ThreadGroup[] groups = new ThreadGroup[gens.length];
+
+        try {
+            for (int i = 0; i < gens.length; i++) {
+                Generator gen = gens[i];
+                Dataset copy = dataset.clone();
+                int num = i + 1;
+                gen.setShared(shared);
+
+                groups[i] = new ThreadGroup("gen" + num);
+                threads[i] = ThreadMonitor.startThread(groups[i], () -> {
+                    Dataset result = gen.generate(copy);
+                    if (result != null) {
+                        result.calcEffectiveSize();
+                        shared.offer(result);
+                    }
+
+                    if (Logger.isEnabled(Type.DEBUG)) {
+                        Logger.write(String.format("finished gen%d (best after %d ms)",
+                                num, gen.getTimeToBest()));
+                    }
+                    if (gen.hasProvedOptimality()) optimal = true;
+                    if (running.decrementAndGet() == 0 || optimal
+                            || shared.getArea() <= lowerBound) {
+                        done.countDown();
+                    }
+                });
+
+                if (threads[i] == null && running.decrementAndGet() == 0) {
+                    done.countDown();
+                }
+            }
+
+            done.await();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+        } finally {
+            // Cancel the generators that are still running.
+            for (int i = 0; i < gens.length; i++) {
+                while (threads[i] != null && threads[i].isAlive()) {
+                    gens[i].interrupt();
+                    try {
+                        threads[i].join(10);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+
+                gens[i].setShared(null);
+                if (groups[i] != null) ThreadMonitor.destroyGroup(groups[i]);
+            }
+
+            best = shared.getBest();
         }
     }
-    
+
 }
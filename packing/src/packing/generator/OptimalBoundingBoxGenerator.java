@@ -9,6 +9,7 @@ import packing.data.Dataset;
 import packing.gui.ShowDataset;
 import packing.packer.*;
 import packing.tools.Logger;
+import packing.tools.Logger.Type;
 import packing.tools.MultiTool;
 import packing.tools.StreamLogger;
 
@@ -26,7 +27,7 @@ import java.util.*;
  */
 public class OptimalBoundingBoxGenerator extends Generator {
 
-    static {
+    {
         name = "optimal";
     }
 
@@ -34,32 +35,37 @@ public class OptimalBoundingBoxGenerator extends Generator {
         super(factory);
     }
 
+    @Override
+    public boolean isExact() {
+        // Only an optimal packer proves that a box cannot be packed.
+        return packerFactory instanceof OptimalPackerFactory;
+    }
+
     @Override
     public void generateSolution(Dataset dataset) {
-        best = null;
         /** Calculate the total area of the rectangles as a lower bound.
          Try packing the rectangles into every possible bounding box of
          that size, increasing the area if it doesn't fit. Return when a
          solution is found.
          See Algorithms Overview for ways to generate the bounding boxes. */
-        int minArea = 0;
+        long minArea = 0;
         int minWidth = 0;       // width of the widest rectanlge
         int minHeight = 0;
-        int maxArea;            // area of the greedy solution
+        long maxArea;           // area of the greedy solution
         int maxWidth;           // width of the greedy solution
         int maxHeight;
         int greedyWidth = 0;    // height to create greedy solution
         int greedyHeight = 0;   // width to create greedy solution
         int width = 0;
         int height = 0;
-        int area = 0;
+        long area = 0;
 
-        PriorityQueue<Rectangle> boundingBoxHeap;
+        CandidateBoxes candidates;
 
         // Determine minArea, greedyWidth, greedyHeight, minWidth, minHeight.
         for (CompareEntry entry : dataset) {
             Rectangle rect = entry.getRec();
-            minArea += rect.width * rect.height;
+            minArea += (long) rect.width * rect.height;
             greedyWidth += rect.width;
             greedyHeight = Math.max(greedyHeight, rect.height);
             minWidth = Math.max(minWidth, rect.width);
@@ -82,17 +88,39 @@ public class OptimalBoundingBoxGenerator extends Generator {
         NavigableSet<Integer> widths = calculateSubsetSums(dataset, true);
         NavigableSet<Integer> heights = calculateSubsetSums(dataset, false);
 
-        boundingBoxHeap = createInitialHeap(dataset, widths, heights, minArea);
+        candidates = new CandidateBoxes(dataset, widths, heights, minArea);
 
         Dataset foundSol = null;
-        best = greedyPacked;
+        updateBest(greedyPacked);
         while (foundSol == null) {
-            Rectangle rect = boundingBoxHeap.poll();// get minimum boundingbox
-            Logger.write(rect + " BoundingBox");
+            long box = candidates.poll();// get minimum boundingbox
+            if (box == -1) {
+                // No bounding boxes are left, so keep the best solution.
+                foundSol = best;
+                break;
+            }
+            Rectangle rect = new Rectangle(BoxHeap.width(box),
+                    BoxHeap.height(box));
+            if (Logger.isEnabled(Type.DEBUG)) Logger.write(rect + " BoundingBox");
+
+            if ((long) rect.width * rect.height < lowerBound) {
+                // Skip the boxes that are smaller then the lower bound.
+                Integer h = (dataset.isFixedHeight() ? null
+                        : heights.ceiling((int) Math.min(Integer.MAX_VALUE,
+                                (lowerBound + rect.width - 1) / rect.width)));
+                if (h != null) {
+                    candidates.add(rect.width, h);
+                }
 
-            if ((rect.width * rect.height) >= greedyPacked.getArea()) {
-                Logger.write(String.format("Using greedy solution... [%dx%d]", greedyPacked.getWidth(), greedyPacked.getHeight()));
-                foundSol = greedyPacked;
+            } else if ((long) rect.width * rect.height >= best.getArea()) {
+                if (Logger.isEnabled(Type.DEBUG)) {
+                    Logger.write(String.format("Using best known solution... [%dx%d]", best.getWidth(), best.getHeight()));
+                }
+                foundSol = best;
+            } else if ((long) rect.width * rect.height >= getSharedArea()) {
+                // A concurrently running generator already found a solution
+                // that is at least as good as any remaining box.
+                foundSol = best;
             } else {
                 //System.out.println(rect.width + "width");
                 width = rect.width;
@@ -101,7 +129,7 @@ public class OptimalBoundingBoxGenerator extends Generator {
                 dataset.setHeight(height);
                 //System.out.println("" + dataset.getArea());
                 //System.out.println(dataset.getHeight() + " height and width " + dataset.getWidth());
-                Packer packer = packerFactory.create(width, height); //create packing instance for said box
+                Packer packer = packerFactory.obtain(width, height); //create packing instance for said box
                 //System.out.println("tst");
                 Dataset packed = packer.pack(dataset); // try to pack the box
 
@@ -113,13 +141,12 @@ public class OptimalBoundingBoxGenerator extends Generator {
                     //System.out.println("Nope");
                     Integer h = heights.higher(height);
                     if (h != null) {
-                        rect.setSize(width, h);
-                        boundingBoxHeap.add(rect);
+                        candidates.add(width, h);
                     }
                 }
             }
         }
-        best = foundSol;
+        updateBest(foundSol);
         Logger.write("Finished");
     }
 
@@ -153,107 +180,82 @@ public class OptimalBoundingBoxGenerator extends Generator {
     }
 
     /**
-     * Determine minHeight for current box.
-     *
-     * @param dataset input set
-     * @param width   width of current boundingBox
-     * @param minArea minimum needed area
-     * @return minimum height required for this box
+     * Enumerates the candidate bounding boxes by increasing area. Every
+     * width starts with a lower bound on its area that takes constant
+     * time, and the lowest height of a width is only determined when the
+     * width reaches the front of the heap. The widths that are never
+     * reached by the search thus cost no more then a heap entry.
      */
-    public int determineHeight(Dataset dataset, int width, int minArea) {
-        if (width == 0) {
-            //System.err.println("width: " + width);
-            return Integer.MAX_VALUE;
-        }
-        if (dataset.allowRotation()) {
-            return minArea / width;
-        }
-
-        int minHeight = 0;
-        int possibleHeight = 0;
-        int minHeightHalfWidth = Integer.MAX_VALUE;
+    private static class CandidateBoxes {
+        // The candidate boxes. A box with height 0 still needs its
+        // lowest height.
+        final private BoxHeap heap;
+        // Whether the height of the boxes is fixed.
+        final private boolean fixedHeight;
+        // The height of the sheet, if fixed.
+        final private int sheetHeight;
+        // The achievable heights.
+        final private NavigableSet<Integer> heights;
+        // The lower bound on the height of every width.
+        final private LowerBound.HeightBound bound;
 
-        //Logger.write(minArea);
-
-        for (CompareEntry entry : dataset) {
-            Rectangle rect = entry.getRec();
-            if (rect.width == (width / 2)) {
-                // rectangle of half width with smalles height
-                minHeightHalfWidth = Math.min(minHeightHalfWidth, rect.height);
+        /**
+         * @param dataset input set
+         * @param widths the candidate widths
+         * @param heights the candidate heights
+         * @param minArea minimum area for boundingBox
+         */
+        private CandidateBoxes(Dataset dataset, NavigableSet<Integer> widths,
+                NavigableSet<Integer> heights, long minArea) {
+            this.heap = new BoxHeap(widths.size());
+            this.fixedHeight = dataset.isFixedHeight();
+            this.sheetHeight = dataset.getHeight();
+            this.heights = heights;
+            this.bound = new LowerBound.HeightBound(dataset, minArea);
+
+            for (int width : widths) {
+                if (width <= 0) continue;
+                long height = (fixedHeight
+                        ? sheetHeight
+                        : bound.quickHeight(width));
+                heap.add(BoxHeap.box(width, 0), width * height);
             }
+        }
 
-            if (rect.width > (width / 2)) {
-                // all rectangles greater than half the width need to be stacked
-                possibleHeight += rect.height;
-            }
+        /**
+         * Removes the box with the minimal area.
+         *
+         * @return the box with the minimal area, or -1 if there are
+         *     none left.
+         */
+        private long poll() {
+            while (!heap.isEmpty()) {
+                long box = heap.poll();
+                if (BoxHeap.height(box) != 0) return box;
+
+                // Determine the lowest height, and put the box back.
+                int width = BoxHeap.width(box);
+                int minHeight = bound.height(width);
+                if (fixedHeight) {
+                    if (minHeight > sheetHeight) continue;
+                    heap.add(width, sheetHeight);
 
-            for (CompareEntry entry1 : dataset) {
-                if (entry1 == entry) {
-                    continue;
-                }
-                Rectangle rect1 = entry1.getRec();
-                // every pair greater than full width need to be stacked
-                if (rect.width + rect1.width > width) {
-                    minHeight = Math.max(minHeight, rect.height + rect1.height);
+                } else {
+                    Integer h = heights.ceiling(minHeight);
+                    if (h == null) continue;
+                    heap.add(width, h);
                 }
             }
-
-            if (minHeight < rect.height) {
-                minHeight = rect.height;
-            }
+            return -1;
         }
 
-        if (minHeightHalfWidth < Integer.MAX_VALUE) {
-            possibleHeight += minHeightHalfWidth;
-            minHeight = Math.max(minHeight, possibleHeight);
-        }
-        // if current box is smaller than minimum box, increase height
-        // to be sufficient
-        if ((minHeight * width) < minArea) {
-            //round up
-            minHeight = (int) Math.ceil((double) minArea / width);
-        }
-        //Logger.write(width + " width and height " + minHeight);
-
-        return minHeight;
-    }
-
-    /**
-     * @param dataset  input set
-     * @param minWidth minimum width for boundingBox
-     * @param maxWidth maximum width for boundingBox
-     * @param minArea  minimum area for boundingBox
-     * @return a heap with the initial set of boxes, containing boxes
-     * of every width between minWidth and maxWidth, with an appropriate minHeight
-     */
-    public PriorityQueue<Rectangle> createInitialHeap(Dataset dataset, NavigableSet<Integer> widths,
-                                                      NavigableSet<Integer> heights, int minArea) {
-        PriorityQueue<Rectangle> initialHeap = new PriorityQueue<>(Comparator.comparingLong(
-                rec -> ((long) rec.width) * ((long) rec.height)
-        ));
-        // Loop over all possible widths
-        for (int i : widths) {
-            if (i <= 0) {
-                //System.out.println("width: " + i);
-                continue;
-            }
-            int height;
-
-            if (dataset.isFixedHeight()) {
-                if (determineHeight(dataset, i, minArea) > dataset.getHeight()) continue;
-                height = dataset.getHeight();
-            } else {
-                Integer h = heights.ceiling(determineHeight(dataset, i, minArea));
-                if (h == null) continue;
-                height = h;
-            }
-            // System.out.println(i + "Width and Height" + height);
-            Rectangle rect = new Rectangle(i, height);
-            initialHeap.add(rect);
-            //System.out.println("added");
+        /**
+         * @param width the width of the box.
+         * @param height the height of the box.
+         */
+        private void add(int width, int height) {
+            heap.add(width, height);
         }
-
-        return initialHeap;
     }
 
     // tmp
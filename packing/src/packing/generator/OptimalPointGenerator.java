@@ -10,561 +10,752 @@ import packing.gui.ShowDataset;
 import packing.packer.GreedyPackerFactory;
 import packing.packer.PackerFactory;
 import packing.tools.Logger;
+import packing.tools.Metrics;
 import packing.tools.MultiTool;
 
 
 //##########
 // Java imports
-import java.awt.Point;
 import java.awt.Rectangle;
 
-import java.util.Stack;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
  * Keeps track of all points of the possible locations of the rectangles.
+ * 
+ * The search tree is divided over multiple workers. Each worker owns its
+ * own search state, and the subtrees of the first {@link #SPLIT_DEPTH}
+ * levels are handed out as separate tasks to a work stealing pool.
+ * The workers only share the area of the best solution found so far.
  */
 public class OptimalPointGenerator extends Generator {
 
-    static {
+    {
         name = "optimal point";
     }
 
-    // Stack for keeping track of the linked list manipulations
-    // over the iterations.
-    final private Stack<LinkAction> nodeActions = new Stack<LinkAction>();
-    // Stack for keeping track of the current node over the iterations.
-    final private Stack<PointNode> curNodeStack = new Stack<PointNode>();
+    // The number of levels of the search tree for which every subtree
+    // is handed out as a separate task.
+    final private static int SPLIT_DEPTH = 2;
     
-    // These points represent the fist and the last elements of the chain.
-    private PointNode last;
-    private PointNode first;
+    // The statistics of all optimal point generators.
+    final private static Metrics.Counter NODES
+            = Metrics.counter("OptimalPointGenerator.nodes");
+    final private static Metrics.Counter PRUNED
+            = Metrics.counter("OptimalPointGenerator.pruned");
     
-    // The current node that is being processed.
-    private PointNode curNode;
+    // The area of the best solution found so far, shared by all workers.
+    final private AtomicLong bestArea
+            = new AtomicLong(Long.MAX_VALUE);
     
-    // The current width of the dataset.
-    private int width = 0;
+    // Whether the search has been stopped.
+    private volatile boolean cancelled = false;
     
     // The dataset to generate.
     private Dataset dataset;
-    // Dataset that ignores doubles.
-    private IgnoreDoubleDataset doubleDataset;
     
-    // Variables to keep track of the amount of wasted space.
-    private int wastedSpace = 0;
-    private int wastedWidth = 0;
-    private int wastedHeight = 0;
-    private int totalInputArea;
-    // Stack for keeping track of the total amount of wasted space
-    // over the iterations.
-    private Stack<Integer> wastedSpaceStack = new Stack<>();
+    // The total area of the input rectangles.
+    private long totalInputArea;
 
     private ShowDataset showDataset = null;
     
     /**-------------------------------------------------------------------------
-     * PointNode class for creating a local linked list.
-     * Note that {@link java.util.LinkedList} cannot be used since this linked
-     * list does not support adding elements after a specified element.
+     * The state of a single search worker.
+     * 
+     * The points are kept in a linked list that is stored in int arrays,
+     * where a node is an index in these arrays. Every modification of the
+     * list is recorded on an undo trail of (opcode, index, old value)
+     * triples, so backtracking to a previous state only requires the size
+     * of the trail at that state.
+     * Note that "next" here means the point above and "prev" the point below.
+     * -------------------------------------------------------------------------
      */
-    protected class PointNode {
-        final private Point point;
-        protected PointNode next = null;
-        protected PointNode prev = null;
+    private class Search {
+        // Index of a non-existing node.
+        final private static int NIL = -1;
+        
+        // The opcodes of the undo trail.
+        final private static int OP_NEXT = 0;
+        final private static int OP_PREV = 1;
+        final private static int OP_FIRST = 2;
+        final private static int OP_LAST = 3;
+        final private static int OP_WIDTH = 4;
+        final private static int OP_NUM_NODES = 5;
+        
+        // The coordinates and the links of the nodes.
+        private int[] px = new int[32];
+        private int[] py = new int[32];
+        private int[] next = new int[32];
+        private int[] prev = new int[32];
+        // The number of allocated nodes. Nodes are allocated on top and
+        // freed again when the trail is reverted.
+        private int numNodes = 0;
+        
+        // The undo trail.
+        private int[] trail = new int[3 * 64];
+        private int trailSize = 0;
+        
+        // The points to try for every level of the search tree.
+        private int[] points = new int[2 * 16];
+        
+        // These points represent the fist and the last elements of the chain.
+        private int last = NIL;
+        private int first = NIL;
+        
+        // The current node that is being processed.
+        private int curNode = NIL;
+        
+        // The number of rectangles that are currently placed.
+        private int numPlaced = 0;
+        
+        // The current width of the dataset.
+        private int width = 0;
+        
+        // The copy of the dataset owned by this worker.
+        final private Dataset dataset;
+        // Dataset that ignores doubles.
+        final private IgnoreDoubleDataset doubleDataset;
+        
+        // Variables to keep track of the amount of wasted space.
+        private long wastedSpace = 0;
+        private int wastedWidth = 0;
+        private int wastedHeight = 0;
+        
+        // The choices leading to the subtree of this worker. For every
+        // level, the index of the point and the index of the entry, or
+        // {@code -1} if the area at the point is filled.
+        final private int[] path;
+        // The subtrees that should be handed out after the search.
+        final private List<SearchTask> tasks = new ArrayList<>();
+        
+        // The number of visited and pruned nodes of the search tree.
+        private long nodes = 0;
+        private long pruned = 0;
+        
         
         /**
-         * Simple constructor that creates a single node without links.
+         * @param path the choices leading to the subtree to search.
+         */
+        private Search(int[] path) {
+            this.path = path;
+            this.dataset = OptimalPointGenerator.this.dataset.clone();
+            
+            doubleDataset = new IgnoreDoubleDataset(dataset);
+            doubleDataset.setOrdering(CompareEntry.SORT_AREA);
+            
+            // wasted space = unfillable space + area of all rectangle and
+            // can therefore be initialized as totalInputArea.
+            wastedSpace = totalInputArea;
+        }
+        
+        /**-------------------------------------------------------------------------
+         * Linked list functions.
+         * -------------------------------------------------------------------------
+         */
+        /**
+         * Allocates a new node without links.
          * 
-         * @param point the point data for this link. Cannot be {@code null}.
+         * @param x the x-coord of the point.
+         * @param y the y-coord of the point.
+         * @return the index of the new node.
          */
-        protected PointNode(Point point) {
-            this.point = point;
+        private int newNode(int x, int y) {
+            if (numNodes == px.length) {
+                int size = 2 * numNodes;
+                px = Arrays.copyOf(px, size);
+                py = Arrays.copyOf(py, size);
+                next = Arrays.copyOf(next, size);
+                prev = Arrays.copyOf(prev, size);
+            }
+            
+            log(OP_NUM_NODES, 0, numNodes);
+            int node = numNodes++;
+            px[node] = x;
+            py[node] = y;
+            next[node] = NIL;
+            prev[node] = NIL;
+            return node;
         }
         
         /**
-         * Constructor that creates a single node with links.
+         * Adds an entry to the undo trail.
          * 
-         * @param prev the previous chain element. Can be {@code null}.
-         * @param point the point data for this link. Cannot be {@code null}.
-         * @param next the next chain element. Can be {@code null}.
+         * @param op the opcode of the modification.
+         * @param index the index of the modified node.
+         * @param old the value before the modification.
          */
-        protected PointNode(PointNode prev, Point point, PointNode next) {
-            this.point = point;
-            this.next = next;
-            this.prev = prev;
+        private void log(int op, int index, int old) {
+            if (trailSize + 3 > trail.length) {
+                trail = Arrays.copyOf(trail, 2 * trail.length);
+            }
+            
+            trail[trailSize++] = op;
+            trail[trailSize++] = index;
+            trail[trailSize++] = old;
         }
         
-        public int getMaxHeight() {
-            return (next == null
-                    ? Integer.MAX_VALUE
-                    : next.point.y - point.y);
+        private void setNext(int node, int value) {
+            log(OP_NEXT, node, next[node]);
+            next[node] = value;
         }
         
-        @Override
-        public String toString() {
-            return "PointNode [x=" + point.x + ", y=" + point.y
-                    + ", maxHeight=" + getMaxHeight() + "]";
+        private void setPrev(int node, int value) {
+            log(OP_PREV, node, prev[node]);
+            prev[node] = value;
         }
         
-    }
-    
-    
-    /**-------------------------------------------------------------------------
-     * Class to easily execute and revert chain modifications.
-     * Note that "left" here means "next" and "right" means "previous".
-     * By default, the link action will be executed when created.
-     */
-    abstract protected class LinkAction {
-        /**
-         * For executing a chain modification.
-         */
-        abstract protected void execute();
+        private void setFirst(int node) {
+            log(OP_FIRST, 0, first);
+            first = node;
+        }
         
-        /**
-         * For reverting a chain modification.
-         */
-        abstract protected void revert();
+        private void setLast(int node) {
+            log(OP_LAST, 0, last);
+            last = node;
+        }
         
-    }
-    
-    
-    /**
-     * Class for removing links to the chain between two link nodes.
-     * Note that the width should never change when a point is removed.
-     * (only ensured by correct usage, not via this class).
-     */
-    protected class RemoveLinkAction extends LinkAction {
-        final protected PointNode removeLeft;
-        final protected PointNode removeRight;
+        private void setWidth(int value) {
+            if (value == width) return;
+            log(OP_WIDTH, 0, width);
+            width = value;
+        }
         
         /**
-         * Single link to be removed.
+         * Reverts all modifications made after the given mark.
          * 
-         * @param remove 
+         * @param mark the size of the trail to revert to.
          */
-        protected RemoveLinkAction(PointNode remove) {
-            this(remove, remove);
+        private void revert(int mark) {
+            while (trailSize > mark) {
+                int old = trail[--trailSize];
+                int index = trail[--trailSize];
+                switch (trail[--trailSize]) {
+                    case OP_NEXT: next[index] = old; break;
+                    case OP_PREV: prev[index] = old; break;
+                    case OP_FIRST: first = old; break;
+                    case OP_LAST: last = old; break;
+                    case OP_WIDTH: width = old; break;
+                    case OP_NUM_NODES: numNodes = old; break;
+                }
+            }
         }
         
         /**
-         * Chain to be removed.
+         * Removes the chain between two nodes.
+         * Note that the width should never change when a point is removed.
+         * (only ensured by correct usage, not via this function).
          * 
-         * @param removeLeft leftmost chain element to be removed.
-         * @param removeRight rightmost chain element to be removed.
+         * @param removeUp the upper chain element to be removed.
+         * @param removeDown the lower chain element to be removed.
          */
-        protected RemoveLinkAction(PointNode removeLeft,
-                                   PointNode removeRight) {
-            this.removeLeft = removeLeft;
-            this.removeRight = removeRight;
-            
-            execute();
-        }
-        
-        @Override
-        protected void execute() {
-            if (removeLeft.next != null)
-                removeLeft.next.prev = removeRight.prev;
-            if (removeRight.prev != null)
-                removeRight.prev.next = removeLeft.next;
+        private void remove(int removeUp, int removeDown) {
+            int up = next[removeUp];
+            int down = prev[removeDown];
+            if (up != NIL) setPrev(up, down);
+            if (down != NIL) setNext(down, up);
             
             // Update the first and last nodes.
-            if (removeRight.prev == null) first = removeLeft.next;
-            if (removeLeft.next == null) last = removeRight.prev;
+            if (down == NIL) setFirst(up);
+            if (up == NIL) setLast(down);
         }
         
-        @Override
-        protected void revert() {
-            if (removeLeft.next != null)
-                removeLeft.next.prev = removeLeft;
-            if (removeRight.prev != null)
-                removeRight.prev.next = removeRight;
+        /**
+         * Replaces a chain of old nodes with a chain of new nodes.
+         * 
+         * @param upOld the upper node of the old chain to be replaced.
+         * @param downOld the lower node of the old chain to be replaced.
+         * @param downNew the lower node of the new chain.
+         * @param upNew the upper node of the new chain. The new chain
+         *     should already be connected among each other.
+         */
+        private void replace(int upOld, int downOld, int downNew, int upNew) {
+            // Make the connection for the new part to the old part.
+            // The new nodes are not yet part of any state, so these
+            // modifications don't have to be recorded.
+            next[upNew] = next[upOld];
+            prev[downNew] = prev[downOld];
+            
+            if (next[upOld] != NIL) setPrev(next[upOld], upNew);
+            if (prev[downOld] != NIL) setNext(prev[downOld], downNew);
             
             // Update the first and last nodes.
-            if (removeRight.prev == null) first = removeRight;
-            if (removeLeft.next == null) last = removeLeft;
+            if (prev[downOld] == NIL) setFirst(downNew);
+            if (next[upOld] == NIL) setLast(upNew);
+            
+            // Update the width.
+            setWidth(Math.max(px[downNew], width));
         }
         
-    }
-    
-    
-    /**-------------------------------------------------------------------------
-     * Class for replacement of a chain part.
-     */
-    protected class ReplaceLinkAction extends LinkAction {
-        final protected PointNode leftOld;
-        final protected PointNode rightOld;
-        final protected PointNode leftNew;
-        final protected PointNode rightNew;
-        final protected int prevWidth;
-        
         /**
-         * Short constructor for a single old node and a single new node.
+         * Connects two new nodes.
          * 
-         * @param oldNode the node to be replaced.
-         * @param newNode the replacing node.
+         * @param down the lower node.
+         * @param up the upper node.
          */
-        protected ReplaceLinkAction(PointNode oldNode, PointNode newNode) {
-            this(oldNode, oldNode, new PointNode[] {newNode});
+        private void connect(int down, int up) {
+            next[down] = up;
+            prev[up] = down;
         }
         
         /**
-         * Short constructor for a single old node and multiple new nodes.
-         * 
-         * @param oldNode the node to be replaced.
-         * @param newNodes chain of replacing nodes.
+         * @param node the node of the point.
+         * @return the maximal height of a rectangle placed at the point.
          */
-        protected ReplaceLinkAction(PointNode oldNode, PointNode[] newNodes) {
-            this(oldNode, oldNode, newNodes);
+        private int getMaxHeight(int node) {
+            return (next[node] == NIL
+                    ? Integer.MAX_VALUE
+                    : py[next[node]] - py[node]);
         }
         
+        /**-------------------------------------------------------------------------
+         * Search functions.
+         * -------------------------------------------------------------------------
+         */
         /**
-         * Full constructor to replace a chain of old nodes with a chain
-         * of new nodes.
+         * Searches for the best points to try rectangles for.
+         * The points are stored at {@code points[2 * depth]} and
+         * {@code points[2 * depth + 1]}.
          * 
-         * @param leftOld the leftmost node of the old chain to be replaced.
-         * @param rightOld the rightmost node of the old chain to be replaced.
-         * @param newNodes all nodes in the new chain, not yet connected.
+         * @param depth the current level of the search tree.
+         * @return 1 if space below a floating piont is filled in, and
+         *     2 if all space below the floating points has been filled.
+         * 
+         * Note that when 1 or 2 points are returned, it is guaranteed that
+         * there are no other points in the lower left quadrant (including its
+         * own x- and y-coord).
+         * When 2 points are returned, it is guaranteed that the only bound is
+         * set by the maximum height and width of the rectangle.
          */
-        protected ReplaceLinkAction(PointNode leftOld, PointNode rightOld,
-                                    PointNode[] newNodes) {
-            this.leftOld = leftOld;
-            this.rightOld = rightOld;
-            this.leftNew = newNodes[newNodes.length - 1];
-            this.rightNew = newNodes[0];
-            this.prevWidth = width;
+        private int getPoints(int depth) {
+            if (2 * depth + 2 > points.length) {
+                points = Arrays.copyOf(points, 2 * points.length);
+            }
             
-            // Connect the new part amoung each other.
-            for (int i = 0; i < newNodes.length - 1; i++) {
-                newNodes[i].next = newNodes[i + 1];
-                newNodes[i + 1].prev = newNodes[i];
+            int i = 2 * depth;
+            // Initialization.
+            if (numPlaced == 0 || last == NIL || curNode == NIL) {
+                numNodes = 0;
+                curNode = newNode(0, 0);
+                last = curNode;
+                first = curNode;
+                points[i] = curNode;
+                return 1;
             }
             
-            // Make the connection for the new part to the old part, but not
-            // yet the other way around.
-            leftNew.next  = (leftOld  != null ? leftOld.next  : null);
-            rightNew.prev = (rightOld != null ? rightOld.prev : null);
+            // Check whether the current point staisfies the main property by
+            // checking whether the point below is on the right. Note that it is
+            // assumed that the property holds for the previous point (since
+            // no modifications have been made below since the property was valid).
+            int down = prev[curNode];
+            if (down != NIL && px[down] < px[curNode]) {
+                curNode = down;
+                points[i] = curNode;
+                return 1;
+            }
+            
+            // If all points below (incl. {@code curNode}) satisfy the
+            // main property, then we try to find a point above that doesn't
+            // satisfy. If no invallid points, use the upper two points.
+            while (next[curNode] != NIL &&
+                   px[next[curNode]] < px[curNode]) {
+                curNode = next[curNode];
+            }
             
-            execute();
+            if (next[curNode] == NIL && prev[last] != NIL) {
+                points[i] = last;
+                points[i + 1] = prev[last];
+                return 2;
+                
+            } else if (next[curNode] == NIL) {
+                points[i] = last;
+                return 1;
+                
+            } else {
+                // Otherwise we know that {@code next} doesn't satisfy the main
+                // property, hence we return {@code node}.
+                points[i] = curNode;
+                return 1;
+            }
         }
         
         /**
-         * Replace the old part with the new part.
+         * Checks whether the rectangle is allowed to be placed at the current
+         * location. If allowed, place the rectangle and replace points as
+         * nessecary.
+         * 
+         * @param entry the entry to be placed.
+         * @param node the node describing the point where the entry should be
+         *     placed.
+         * @return whether the entry was placed.
          */
-        @Override
-        protected void execute() {
-            if (leftOld.next != null) leftOld.next.prev = leftNew;
-            if (rightOld.prev != null) rightOld.prev.next = rightNew;
+        private boolean checkAndAddEntry(CompareEntry entry, int node) {
+            Rectangle rec = entry.getRec();
+            int x = px[node];
+            int y = py[node];
+            int up = next[node];
+            int down = prev[node];
             
-            // Update the first and last nodes.
-            if (rightOld.prev == null) first = rightNew;
-            if (leftOld.next == null) last = leftNew;
+            // Check if the rectangle doesn't hit any overhanging rectangles.
+            if (getMaxHeight(node) < rec.height) {
+                return false;
+            }
             
-            // Update the width.
-            width = Math.max(rightNew.point.x, width);
-        }
-        
-        /**
-         * Replace the new part with the old part.
-         */
-        @Override
-        protected void revert() {
-            if (leftOld.next != null) leftOld.next.prev = leftOld;
-            if (rightOld.prev != null) rightOld.prev.next = rightOld;
+            // Check if the rectangle fits in the bounding box.
+            if (dataset.isFixedHeight() &&
+                    dataset.getHeight() < y + rec.height) {
+                return false;
+            }
             
-            // Update the first and last nodes.
-            if (rightOld.prev == null) first = rightOld;
-            if (leftOld.next == null) last = leftOld;
+            // The rectangle is allowed to be placed, so place it.
+            rec.x = x;
+            rec.y = y;
+            numPlaced++;
             
-            // Restore the width.
-            width = prevWidth;
-        }
-        
-    }
-    
-    
-    /**-------------------------------------------------------------------------
-     * @param dataset 
-     *//*
-    public OptimalPointGenerator(List<Dataset.Entry> dataset) {
-        remaining = new LinkedList<Dataset.Entry>(dataset);
-    }
-    */
-    public OptimalPointGenerator(PackerFactory factory) {
-        super(factory);
-    }
-    
-    /**
-     * Searches for the best points to try rectangles for.
-     * 
-     * @return {@code null} if there are no available points,
-     *     1 point if space below a floating piont is filled in, and
-     *     2 points if all space below the floating points has been filled.
-     * 
-     * Note that when 1 or 2 points are returned, it is guaranteed that
-     * there are no other points in the lower left quadrant (including its
-     * own x- and y-coord).
-     * When 2 points are returned, it is guaranteed that the only bound is
-     * set by the maximum height and width of the rectangle.
-     */
-    private PointNode[] getPoints() {
-        //Logger.write("curNode (pre): " + curNode);
-        // Initialization.
-        if (nodeActions.isEmpty() || last == null || curNode == null) {
-            //Logger.write("(-1)");
-            curNode = new PointNode(new Point(0, 0));
-            last = curNode;
-            first = curNode;
-            return new PointNode[] {curNode};
-        }
-        
-        // Check whether the current point staisfies the main property by
-        // checking whether the point below is on the right. Note that it is
-        // assumed that the property holds for the previous point (since
-        // no modifications have been made below since the property was valid).
-        if (curNode.prev != null && curNode.prev.point.x < curNode.point.x) {
-            //Logger.write("(0)");
-            //Logger.write(curNode);
-            //Logger.write(curNode.prev);
-            curNode = curNode.prev;
-            return new PointNode[] {curNode};
-        }
-        
-        // If all points below (incl. {@code curNode}) satisfy the
-        // main property, then we try to find a point above that doesn't
-        // satisfy. If no invallid points, use the upper two points.
-        while (curNode.next != null &&
-               curNode.next.point.x < curNode.point.x) {
-            //Logger.write("(1)");
-            curNode = curNode.next;
-        }
-        
-        if (curNode.next == null) {
-            //Logger.write("(2)");
-            if (last.prev != null) {
-                //Logger.write("(2.1)");
-                return new PointNode[] {last, last.prev};
-                //return new PointNode[] {last.prev};
-                
-            } else {
-                //Logger.write("(2.2)");
-                return new PointNode[] {last};
+            int upLeftNode = NIL;
+            int downRightNode = NIL;
+            
+            // If the rectangle fits the remaining space at the top (it is exactly
+            // below the next point) we can ignore the upper left point.
+            if (up == NIL || y + rec.height != py[up]) {
+                upLeftNode = newNode(x, y + rec.height);
             }
             
-        } else {
-            //Logger.write("(3)");
-            //Logger.write(curNode);
-            // Otherwise we know that {@code next} doesn't satisfy the main
-            // property, hence we return {@code node}.
-            //curNode.maxHeight = curNode.next.point.y - curNode.point.y;
-            return new PointNode[] {curNode};
-        }
-    }
-    
-    /**
-     * Checks whether the rectangle is allowed to be placed at the current
-     * location. If allowed, place the rectangle and replace points as
-     * nessecary.
-     * 
-     * @param entry the entry to be placed.
-     * @param node the node describing the point where the entry should be
-     *     placed.
-     * @param dataset the used dataset.
-     * @return whether the entry was placed.
-     */
-    private boolean checkAndAddEntry(CompareEntry entry, PointNode node) {
-        Rectangle rec = entry.getRec();
-        
-        // Check if the rectangle doesn't hit any overhanging rectangles.
-        if (node.getMaxHeight() < rec.getHeight()) {
-            return false;
-        }
-        
-        // Check if the rectangle fits in the bounding box.
-        if (dataset.isFixedHeight() &&
-                dataset.getHeight() < node.point.y + rec.height) {
-            return false;
-        }
-        
-        // The rectangle is allowed to be placed, so place it.
-        rec.x = node.point.x;
-        rec.y = node.point.y;
-        
-        // The points for the upper left and lower right corners.
-        Point upLeft = new Point(node.point.x, node.point.y + rec.height);
-        Point downRight = new Point(node.point.x + rec.width, node.point.y);
-        
-        LinkAction la;
-        
-        PointNode upLeftNode = null;
-        PointNode downRightNode = null;
-        
-        // If the rectangle fits the remaining space at the top (it is exactly
-        // below the next point) we can ignore the upper left point.
-        if (node.next == null || upLeft.y != node.next.point.y) {
-            upLeftNode = new PointNode(upLeft);
-        }
-        
-        // If the rectangle fits the space on the left (it is exactly above
-        // the previous point), we can ignore the lower right point.
-        if (node.prev == null || downRight.x != node.prev.point.x) {
-            downRightNode = new PointNode(downRight);
-        }
-        
-        // If the rectangle exactly fits the remaining space at the top and
-        // fits the space on the left (it is exactly below the next point),
-        // we can additionally replace the next node.
-        if (node.next != null && upLeftNode != null &&
-                downRight.y == node.next.point.y) {
-            if (downRightNode == null) {
-                la = new ReplaceLinkAction(node, node.next,
-                        new PointNode[] {upLeftNode});
-                curNode = upLeftNode;
-                
-            } else {
-                la = new ReplaceLinkAction(node, node.next,
-                        new PointNode[] {downRightNode, upLeftNode});
-                curNode = downRightNode;
+            // If the rectangle fits the space on the left (it is exactly above
+            // the previous point), we can ignore the lower right point.
+            if (down == NIL || x + rec.width != px[down]) {
+                downRightNode = newNode(x + rec.width, y);
             }
             
-        } else {
-            if (downRightNode == null) {
-                if (upLeftNode == null) {
-                    la = new RemoveLinkAction(node);
-                    // This value is non-null since upLeftNode == null,
-                    // and the only way for node.next to be null is when
-                    // node == last, and in that case upLeftNode != null.
-                    curNode = node.next;
+            // If the rectangle exactly fits the remaining space at the top and
+            // fits the space on the left (it is exactly below the next point),
+            // we can additionally replace the next node.
+            if (up != NIL && upLeftNode != NIL && y == py[up]) {
+                if (downRightNode == NIL) {
+                    replace(node, up, upLeftNode, upLeftNode);
+                    curNode = upLeftNode;
                     
                 } else {
-                    la = new ReplaceLinkAction(node, upLeftNode);
-                    curNode = upLeftNode;
+                    connect(downRightNode, upLeftNode);
+                    replace(node, up, downRightNode, upLeftNode);
+                    curNode = downRightNode;
                 }
                 
             } else {
-                if (upLeftNode == null) {
-                    la = new ReplaceLinkAction(node, downRightNode);
+                if (downRightNode == NIL) {
+                    if (upLeftNode == NIL) {
+                        remove(node, node);
+                        // This value is non-null since upLeftNode == null,
+                        // and the only way for node.next to be null is when
+                        // node == last, and in that case upLeftNode != null.
+                        curNode = up;
+                        
+                    } else {
+                        replace(node, node, upLeftNode, upLeftNode);
+                        curNode = upLeftNode;
+                    }
                     
                 } else {
-                    la = new ReplaceLinkAction(node,
-                            new PointNode[] {downRightNode, upLeftNode});
+                    if (upLeftNode == NIL) {
+                        replace(node, node, downRightNode, downRightNode);
+                        
+                    } else {
+                        connect(downRightNode, upLeftNode);
+                        replace(node, node, downRightNode, upLeftNode);
+                    }
+                    
+                    curNode = downRightNode;
                 }
-                
-                curNode = downRightNode;
             }
+            
+            return true;
         }
         
-        nodeActions.add(la);
-        
-        return true;
-    }
-    
-    /**
-     * Adds a minimal empty rectangle.
-     * The minimal empty rectangle is such that:
-     * - The lower left point is the point described by {@code node}.
-     * - The y-coord of the upper right corner is described by the y-coord
-     *   of the next point.
-     * - The x-coord of the upper right corner is described by the minimal
-     *   x-coord of the previous and next point.
-     * 
-     * @param node node of the point to process.
-     * @return the executed action for processing the above.
-     */
-    private LinkAction fillAreaPointAction(PointNode node) {
-        PointNode prev = node.prev;
-        PointNode next = node.next;
-        
-        // Only when {@code node == last}.
-        printTree();
-        if (next == null) throw new IllegalStateException();
-        
-        int nextX = next.point.x;
-        int prevX = (prev != null
-                ? prev.point.x
-                : Integer.MAX_VALUE);
-        
-        if (prevX == nextX) { // prev != null
-            // If the x-coords are equal, we can additionally remove the
-            // {@code next} point.
-            //Logger.write("[[0]]");
-            //Logger.write(curNode);
+        /**
+         * Adds a minimal empty rectangle.
+         * The minimal empty rectangle is such that:
+         * - The lower left point is the point described by {@code node}.
+         * - The y-coord of the upper right corner is described by the y-coord
+         *   of the next point.
+         * - The x-coord of the upper right corner is described by the minimal
+         *   x-coord of the previous and next point.
+         * 
+         * @param node node of the point to process.
+         */
+        private void fillAreaPoint(int node) {
+            int down = prev[node];
+            int up = next[node];
             
-            // left x = node.point.x right x is prevX
-            wastedWidth = prevX - node.point.x;
-            // left bottom y = nodeY right upper y = nextY
-            wastedHeight = next.point.y - node.point.y;
+            // Only when {@code node == last}.
+            if (up == NIL) throw new IllegalStateException();
             
-            LinkAction la = new RemoveLinkAction(node, next);
-            curNode = prev;
-            //Logger.write(curNode);
-            return la;
+            int nextX = px[up];
+            int prevX = (down != NIL
+                    ? px[down]
+                    : Integer.MAX_VALUE);
             
-        } else if (prevX < nextX) { // prev != null
-            // If the previous x-coord is smaller, we can simply remove
-            // the point.
-            //Logger.write("[[1]]");
-            //Logger.write(curNode);
+            // bottom y = node y, upper y = next y
+            wastedHeight = py[up] - py[node];
             
-            //left x = node.point.x right x = prevX
-            wastedWidth = prevX - node.point.x;
-            //bottom y = node.point.y upper y = next.Y
-            wastedHeight = wastedHeight = next.point.y - node.point.y;
+            if (prevX == nextX) { // prev != null
+                // If the x-coords are equal, we can additionally remove the
+                // {@code next} point.
+                // left x = node x, right x = prevX
+                wastedWidth = prevX - px[node];
+                
+                remove(up, node);
+                curNode = down;
+                
+            } else if (prevX < nextX) { // prev != null
+                // If the previous x-coord is smaller, we can simply remove
+                // the point.
+                // left x = node x, right x = prevX
+                wastedWidth = prevX - px[node];
+                
+                remove(node, node);
+                curNode = down;
+                
+            } else { // ==> prevX > nextX
+                // If the next x-coord is smaller, then we must replace the current
+                // and the next coord with a new point that lies on their lower
+                // right intersection.
+                int newNode = newNode(nextX, py[node]);
+                
+                // left x = node x, right x = nextX
+                wastedWidth = nextX - px[node];
+                
+                replace(up, node, newNode, newNode);
+                curNode = newNode;
+            }
+        }
+        
+        /**
+         * Checks whether the current solution is the best solution found
+         * so far. If so, update {@code best} with the new found value.
+         */
+        public void checkSolution() {
+            dataset.setWidth(width);
+            if (!dataset.isFixedHeight()) {
+                dataset.setHeight(py[last]);
+            }
             
-            LinkAction la = new RemoveLinkAction(node);
-            curNode = prev;
-            //Logger.write(curNode);
-            return la;
+            long area = dataset.getArea();
+            long bound;
+            while (area < (bound = bestArea.get())) {
+                if (!bestArea.compareAndSet(bound, area)) continue;
+                
+                if (!cancelled) updateBest(dataset.clone());
+                return;
+            }
+        }
+        
+        /**
+         * The recursive fucntion to generate the solutions.
+         * All the magic happens here.
+         * 
+         * The levels above the length of {@code path} only follow the choice
+         * given by the path. The first level after that hands out every choice
+         * as a new task if it is above {@link #SPLIT_DEPTH}. All deeper levels
+         * are searched by this worker itself.
+         * 
+         * @param depth the current level of the search tree.
+         */
+        private void recursion(int depth) {
+            if (cancelled) return;
+            nodes++;
+            long bound = Math.min(bestArea.get(), getSharedArea());
+            if (bound <= lowerBound) return;
+            if (bound != Long.MAX_VALUE && last != NIL) {
+                int height = (dataset.isFixedHeight()
+                        ? dataset.getHeight()
+                        : py[last]);
+                if ((long) height * width >= bound) {
+                    pruned++;
+                    return;
+                }
+            }
             
-        } else { // ==> prevX > nextX
-            // If the next x-coord is smaller, then we must replace the current
-            // and the next coord with a new point that lies on their lower
-            // right intersection.
-            PointNode newNode
-                    = new PointNode(new Point(next.point.x, node.point.y));
-            //Logger.write("[[2]]");
-            //Logger.write(curNode);
+            // Whether only the choice of the path should be followed.
+            boolean forced = depth < path.length / 2;
+            // Whether all choices should be handed out as new tasks.
+            boolean split = !forced && depth < SPLIT_DEPTH;
+            int forcedNode = (forced ? path[2 * depth] : -1);
+            int forcedEntry = (forced ? path[2 * depth + 1] : -1);
             
-            //left x = node.point.x right x = nextX
-            wastedWidth = nextX - node.point.x;
-            //bottom y = node.point.y upper y = next.Y
-            wastedHeight = next.point.y - node.point.y;
+            int numPoints = getPoints(depth);
             
-            LinkAction la = new ReplaceLinkAction(next, node,
-                    new PointNode[] {newNode});
-            curNode = newNode;
-            //Logger.write(curNode);
-            return la;
+            for (int i = 0; i < numPoints; i++) {
+                int node = points[2 * depth + i];
+                int up = next[node];
+                int down = prev[node];
+                
+                // Whether a rectangle that fits in the minimal gap has been found.
+                boolean smallSolExists = false;
+                // Whether there is at least one rectangle remaining.
+                boolean recsAvailable = false;
+                // The index of the current entry.
+                int k = 0;
+                
+                for (CompareEntry entry : doubleDataset) {
+                    recsAvailable = true;
+                    
+                    Rectangle rec = entry.getRec();
+                    boolean isSmallWidthEntryUp = up == NIL || // If this is the last entry, true by default.
+                            px[up] <= px[node] || // Next point is on the left.
+                            px[up] >= px[node] + rec.width; // next point >= cur point + rec.
+                    
+                    boolean isSmallWidthEntryDown = down == NIL || // If this is the first entry, true by default.
+                            px[down] <= px[node] || // Prev point is on the left (should not occur).
+                            px[down] >= px[node] + rec.width; // prev point >= cur point + rec.
+                    
+                    boolean isSmallWidthEntry = up == NIL || // If this is the last entry, true by default.
+                            (isSmallWidthEntryUp && isSmallWidthEntryDown); // If small entry for up and down, then true.
+                    
+                    int prevCurNode = curNode;
+                    int mark = trailSize;
+                    if (checkAndAddEntry(entry, node)) {
+                        if (isSmallWidthEntry) {
+                            // There exists at least one solution that doesn't
+                            // 'stick out' compared to the next and previous point.
+                            smallSolExists = true;
+                        }
+                        
+                        if (split) {
+                            addTask(depth, i, k);
+                            
+                        } else if (forced) {
+                            if (i == forcedNode && k == forcedEntry) {
+                                recursion(depth + 1);
+                                return;
+                            }
+                            
+                        } else {
+                            recursion(depth + 1);
+                        }
+                        revert(mark);
+                        numPlaced--;
+                    }
+                    curNode = prevCurNode;
+                    k++;
+                }
+                
+                // If all rectangles have been placed,
+                // check the solution and return.
+                if (!recsAvailable) {
+                    checkSolution();
+                    return;
+                    
+                } else if (!smallSolExists && points[2 * depth] != last) {
+                    int prevCurNode = curNode;
+                    long prevWastedSpace = wastedSpace;
+                    int mark = trailSize;
+                    fillAreaPoint(node);
+                    
+                    wastedSpace += (long) wastedWidth * wastedHeight;
+                    // If wasted space exceeds the area of the best solution so far,
+                    // we can simply ignore filling in this area and return.
+                    // Note that we can also ingore possible remaining points
+                    // since the rectangles that should be placed are bigger
+                    // then this area.
+                    if (bestArea.get() != Long.MAX_VALUE
+                            && wastedSpace <= bestArea.get()) {
+                        wastedSpace = prevWastedSpace;
+                        revert(mark);
+                        pruned++;
+                        return;
+                    }
+                    
+                    if (split) {
+                        addTask(depth, i, -1);
+                        
+                    } else if (forced) {
+                        if (i == forcedNode && forcedEntry == -1) {
+                            recursion(depth + 1);
+                            return;
+                        }
+                        
+                    } else {
+                        recursion(depth + 1);
+                        curNode = prevCurNode;
+                    }
+                    revert(mark);
+                    wastedSpace = prevWastedSpace;
+                }
+            }
+        }
+        
+        /**
+         * Adds a task for the subtree of the given choice at the given level.
+         * 
+         * @param depth the level of the choice.
+         * @param node the index of the point.
+         * @param entry the index of the entry, or {@code -1} if the area
+         *     at the point is filled.
+         */
+        private void addTask(int depth, int node, int entry) {
+            int[] taskPath = Arrays.copyOf(path, 2 * depth + 2);
+            taskPath[2 * depth] = node;
+            taskPath[2 * depth + 1] = entry;
+            tasks.add(new SearchTask(taskPath));
+        }
+        
+        public void printTree() {
+            Logger.write("------------");
+            for (int node = first; node != NIL; node = next[node]) {
+                Logger.write("PointNode [x=" + px[node] + ", y=" + py[node]
+                        + ", maxHeight=" + getMaxHeight(node) + "]");
+            }
+            Logger.write("------------");
         }
     }
     
-    /**
-     * Checks whether the current solution is the best solution found so far.
-     * If so, update {@code best} with the new found value.
-     * Also update if {@code best} is {@code null}.
-     * 
-     * @param dataset the used dataset.
+    
+    /**-------------------------------------------------------------------------
+     * Task that searches a subtree of the search tree.
+     * -------------------------------------------------------------------------
      */
-    public void checkSolution() {
-        dataset.setWidth(width);
-        if (!dataset.isFixedHeight()) {
-            dataset.setHeight(last.point.y);
+    private class SearchTask extends RecursiveAction {
+        final private static long serialVersionUID = 1L;
+
+        // The choices leading to the subtree.
+        final private int[] path;
+        
+        private SearchTask(int[] path) {
+            this.path = path;
         }
-        //new ShowDataset(dataset);
-        //System.err.println(dataset);
-        //MultiTool.sleepThread(100);
-        if (best == null || best.getArea() > dataset.getArea()) {
-            best = dataset.clone();
-            //Logger.write("New best: " + best.toString());
+        
+        @Override
+        protected void compute() {
+            if (cancelled) return;
             
-        //} else {
-            //Logger.write("Sol found: " + dataset.toString());
-            //if (showDataset == null) {
-            //    showDataset = new ShowDataset(dataset);
-            //} else {
-            //    showDataset.setDataset(dataset);
-            //}
-            //MultiTool.sleepThread(500);
+            Search search = new Search(path);
+            try {
+                search.recursion(0);
+                
+            } finally {
+                NODES.add(search.nodes);
+                PRUNED.add(search.pruned);
+            }
+            invokeAll(search.tasks);
         }
+        
+    }
+    
+    
+    /**-------------------------------------------------------------------------
+     * @param dataset 
+     *//*
+    public OptimalPointGenerator(List<Dataset.Entry> dataset) {
+        remaining = new LinkedList<Dataset.Entry>(dataset);
+    }
+    */
+    public OptimalPointGenerator(PackerFactory factory) {
+        super(factory);
     }
     
     @Override
@@ -581,203 +772,23 @@ public class OptimalPointGenerator extends Generator {
         //new ShowDataset(best);
         //MultiTool.sleepThread(1000);
         
-        doubleDataset = new IgnoreDoubleDataset(dataset);
-        doubleDataset.setOrdering(CompareEntry.SORT_AREA);
+        bestArea.set(best == null ? Long.MAX_VALUE : best.getArea());
+        cancelled = false;
         
+        totalInputArea = 0;
         for (CompareEntry entry : dataset) {
             totalInputArea += entry.area();
         }
         
-        // wasted space = unfillable space + area of all rectangle and
-        // can therefore be initialized as totalInputArea.
-        wastedSpace = totalInputArea;
-        /*
-        if (dataset.size() <= 3) {
-            recursion();
-        } else {
-            begin();
-        }*/
-        recursion();
-    }
-    /*
-    private void begin() {
-        int cores = Runtime.getRuntime().availableProcessors();
-        
-        if (cores <= doubleDataset.size()) {
-            Runnable run = null;
-            for (CompareEntry entry : doubleDataset) {
-                if (run != null) ThreadMonitor.startThread(run);
-                List<CompareEntry> list = new ArrayList<>();
-                list.add(entry);
-                run = createRunnable(list, dataset);
-            }
-            
-            run.run(); // No nullpointer sicne dataset.size() > 4
-            
-        } else {
-            final double num = doubleDataset.size() / cores;
-            int sumNum = 0;
-            List<CompareEntry> list = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(getMaxThreads());
+        try {
+            pool.invoke(new SearchTask(new int[0]));
             
-            for (CompareEntry entry : doubleDataset) {
-                if (++sumNum <= num) {
-                    list.add(entry);
-                    
-                } else {
-                    sumNum = 1;
-                    
-                    ThreadMonitor.startThread(createRunnable(list, dataset));
-                    
-                    list = new ArrayList<>();
-                    list.add(entry);
-                }
-            }
-            
-            createRunnable(list, dataset).run();
-        }
-    }*/
-    /*
-    private Runnable createRunnable(List<CompareEntry> entries, Dataset data) {
-        return () -> {
-            for (CompareEntry entry : entries) {
-                Dataset clone = data.clone();
-                checkAndAddEntry(entry, getPoints()[0]);
-                dataset.remove(entry);
-                IgnoreDoubleDataset dDataset = new IgnoreDoubleDataset(dataset);
-                doubleDataset = dDataset;
-                recursion();
-            }
-        };
-    }*/
-    
-    /**
-     * The recursive fucntion to generate the solutions.
-     * All the magic happens here.
-     */
-    private void recursion() {
-        if (best != null && last != null) {
-            if (dataset.isFixedHeight()) {
-                if (dataset.getHeight() * width >= best.getArea()) return;
-                
-            } else {
-                if (last.point.y * width >= best.getArea()) return;
-            }
-        }
-        
-        //Logger.write("recursion!");
-        //Logger.write("first: " + first);
-        //Logger.write("last: " + last);
-        //printTree();
-        
-        PointNode[] nodes = getPoints();
-        if (nodes == null) throw new IllegalStateException();
-        
-        for (int i = 0; i < nodes.length; i++) {
-            PointNode node = nodes[i];
-            // tmp
-            if (node == null) {
-                //Logger.write("null node found!------------------");
-                continue;
-            }
-            
-            // Whether a rectangle that fits in the minimal gap has been found.
-            boolean smallSolExists = false;
-            // Whether there is at least one rectangle remaining.
-            boolean recsAvailable = false;
-            
-            for (CompareEntry entry : doubleDataset) {
-                recsAvailable = true;
-                printTree();
-                //Logger.write("point: " + node);
-                //Logger.write("entry: " + entry);
-                
-                Rectangle rec = entry.getRec();
-                boolean isSmallWidthEntryUp = node.next == null || // If this is the last entry, true by default.
-                        node.next.point.x <= node.point.x || // Next point is on the left.
-                        node.next.point.x >= node.point.x + rec.width; // next point >= cur point + rec.
-                
-                boolean isSmallWidthEntryDown = node.prev == null || // If this is the first entry, true by default.
-                        node.prev.point.x <= node.point.x || // Prev point is on the left (should not occur).
-                        node.prev.point.x >= node.point.x + rec.width; // prev point >= cur point + rec.
-                
-                boolean isSmallWidthEntry = node.next == null || // If this is the last entry, true by default.
-                        (isSmallWidthEntryUp && isSmallWidthEntryDown); // If small entry for up and down, then true.
-                
-                curNodeStack.add(curNode);
-                if (checkAndAddEntry(entry, node)) {
-                    //Logger.write("valid entry!");
-                    
-                    if (isSmallWidthEntry) {
-                        // There exists at least one solution that doesn't
-                        // 'stick out' compared to the next and previous point.
-                        smallSolExists = true;
-                    }
-                    
-                    recursion();
-                    //Logger.write("return");
-                    nodeActions.pop().revert();
-                }
-                curNode = curNodeStack.pop();
-            }
-            
-            // If all rectangles have been placed,
-            // check the solution and return.
-            if (!recsAvailable) {
-                checkSolution();
-                return;
-                
-            } else if (!smallSolExists && nodes[0] != last) {
-                //Logger.write("no small sol---------------------------------------------");
-                LinkAction la = fillAreaPointAction(node);
-                
-                wastedSpaceStack.add(wastedSpace);
-                int currentWastedArea = wastedWidth * wastedHeight;
-                wastedSpace += currentWastedArea;
-                // If wasted space exceeds the area of the best solution so far,
-                // we can simply ignore filling in this area and return.
-                // Note that we can also ingore possible remaining points
-                // since the rectangles that should be placed are bigger
-                // then this area.
-                if (best != null && wastedSpace <= best.getArea()) {
-                    wastedSpace = wastedSpaceStack.pop();
-                    la.revert();
-                    return;
-                }
-                
-                curNodeStack.add(curNode);
-                recursion();
-                //Logger.write("return");
-                la.revert();
-                curNode = curNodeStack.pop();
-                wastedSpace = wastedSpaceStack.pop();
-                
-            }/* else if (!smallSolExists && nodes[0] == last.prev) {
-                for (CompareEntry entry : doubleDataset) {
-                    curNodeStack.add(curNode);
-                    
-                    
-                    if (checkAndAddEntry(entry, node)) {
-                        recursion();
-                        //Logger.write("return");
-                        nodeActions.pop().revert();
-                    }
-                    
-                    curNode = curNodeStack.pop();
-                }
-            }/**/
-            
-        }
-    }
-    
-    
-    public void printTree() {
-        Logger.write("------------");
-        PointNode printNode = first;
-        while (printNode != null) {
-            Logger.write(printNode);
-            printNode = printNode.next;
+        } finally {
+            // Also stop the workers when the generator is interrupted.
+            cancelled = true;
+            pool.shutdownNow();
         }
-        Logger.write("------------");
     }
     
     // tmp
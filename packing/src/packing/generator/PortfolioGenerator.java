@@ -0,0 +1,234 @@
+
+package packing.generator;
+
+
+// Packing imports
+import packing.data.Dataset;
+import packing.tools.ThreadMonitor;
+
+
+//##########
+// Java imports
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+
+/**
+ * Generator that runs a portfolio of generators concurrently, and shifts
+ * the processor time towards the generators that produce improvements.
+ *
+ * All generators share their best solution as a bound. The time is divided
+ * in epochs, and for every epoch the threads of the portfolio are divided
+ * over the generators as a multi-armed bandit (UCB1). Every thread is given
+ * in turn to the generator with the highest score, where a thread during
+ * an epoch counts as a play, and is rewarded if the generator improved the
+ * shared best solution during that epoch. At most {@code slots} generators
+ * get threads, and the search threads of a generator beyond its share wait
+ * at their pause point. The initial estimates of the rewards are given as
+ * priors, which can be derived from the features of the instance.
+ *
+ * Only generators that call {@link #checkPause(int)} can be limited. The
+ * other generators run with all their threads for the whole time.
+ */
+public class PortfolioGenerator
+        extends Generator {
+    // The length of an epoch in ms.
+    final private static long EPOCH = 200;
+    // The weight of the exploration term of the UCB score.
+    final private static double EXPLORATION = Math.sqrt(2);
+
+    // The generators of the portfolio.
+    final private Generator[] gens;
+    // The initial estimates of the rewards of the generators.
+    final private double[] priors;
+    // The maximum number of generators that get threads at the same time.
+    final private int slots;
+    // Whether one of the generators proved that its solution is optimal
+    // during the last run.
+    private volatile boolean optimal = false;
+
+    /**
+     * @param slots the maximum number of generators that get threads at
+     *     the same time.
+     * @param gens the generators of the portfolio.
+     * @param priors the initial estimates of the rewards of the generators,
+     *     between 0 and 1.
+     */
+    public PortfolioGenerator(int slots, Generator[] gens, double[] priors) {
+        super(null);
+        if (gens.length != priors.length) {
+            throw new IllegalArgumentException("Expected a prior for "
+                    + "every generator, but found " + priors.length
+                    + " priors for " + gens.length + " generators.");
+        }
+
+        this.slots = Math.max(1, slots);
+        this.gens = gens;
+        this.priors = priors;
+    }
+
+    @Override
+    public boolean isExact() {
+        for (Generator gen : gens) {
+            if (gen.isExact()) return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    protected boolean provesOptimality() {
+        return optimal || (best != null && best.getArea() <= lowerBound);
+    }
+
+    @Override
+    public void generateSolution(Dataset dataset) {
+        optimal = false;
+        int n = gens.length;
+        SharedBest shared = new SharedBest();
+        if (best != null) shared.offer(best);
+        // Released when a generator proves that its solution is optimal,
+        // when all generators are finished or when the lower bound has
+        // been reached.
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger(n);
+        AtomicIntegerArray finished = new AtomicIntegerArray(n);
+        Thread[] threads = new Thread[n];
+        ThreadGroup[] groups = new ThreadGroup[n];
+
+        // The bandit statistics, counted in threads per epoch. The prior
+        // counts as a single thread.
+        double[] rewards = new double[n];
+        double[] plays = new double[n];
+        int[] improvements = new int[n];
+        // The number of threads of every generator during this epoch.
+        int[] share = new int[n];
+        for (int i = 0; i < n; i++) {
+            rewards[i] = priors[i];
+            plays[i] = 1;
+            improvements[i] = gens[i].getNumSharedImprovements();
+        }
+
+        try {
+            allocate(rewards, plays, finished, share);
+            for (int i = 0; i < n; i++) {
+                Generator gen = gens[i];
+                Dataset copy = dataset.clone();
+                int index = i;
+                gen.setShared(shared);
+                // Every generator may use all threads, of which only its
+                // share runs.
+                gen.setRunThreads(share[i]);
+                gen.setMaxThreads(getMaxThreads());
+
+                groups[i] = new ThreadGroup("portfolio" + (i + 1));
+                threads[i] = ThreadMonitor.startThread(groups[i], () -> {
+                    Dataset result = gen.generate(copy);
+                    if (result != null) {
+                        result.calcEffectiveSize();
+                        shared.offer(result);
+                    }
+
+                    finished.set(index, 1);
+                    if (gen.hasProvedOptimality()) optimal = true;
+                    if (running.decrementAndGet() == 0 || optimal
+                            || shared.getArea() <= lowerBound) {
+                        done.countDown();
+                    }
+                });
+
+                if (threads[i] == null) {
+                    finished.set(i, 1);
+                    if (running.decrementAndGet() == 0) done.countDown();
+                }
+            }
+
+            while (!done.await(EPOCH, TimeUnit.MILLISECONDS)) {
+                for (int i = 0; i < n; i++) {
+                    int num = gens[i].getNumSharedImprovements();
+                    plays[i] += share[i];
+                    if (num > improvements[i]) rewards[i] += share[i];
+                    improvements[i] = num;
+                }
+
+                Dataset sharedBest = shared.getBest();
+                if (sharedBest != null) updateBest(sharedBest);
+
+                allocate(rewards, plays, finished, share);
+                for (int i = 0; i < n; i++) {
+                    gens[i].setRunThreads(share[i]);
+                }
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+        } finally {
+            // Cancel the generators that are still running.
+            for (int i = 0; i < n; i++) {
+                gens[i].setPaused(false);
+                while (threads[i] != null && threads[i].isAlive()) {
+                    gens[i].interrupt();
+                    try {
+                        threads[i].join(10);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+
+                gens[i].setShared(null);
+                if (groups[i] != null) ThreadMonitor.destroyGroup(groups[i]);
+            }
+
+            Dataset sharedBest = shared.getBest();
+            if (sharedBest != null) best = sharedBest;
+        }
+    }
+
+    /**
+     * Divides the threads over the generators for the next epoch. Every
+     * thread is given in turn to the unfinished generator with the highest
+     * UCB score, which then counts that thread as an extra play. Only the
+     * first {@code slots} generators that get a thread may get more.
+     *
+     * @param rewards the total reward of every generator.
+     * @param plays the number of threads every generator has run with,
+     *     summed over the epochs.
+     * @param finished whether the generators are finished.
+     * @param share array to store the number of threads of every generator.
+     */
+    private void allocate(double[] rewards, double[] plays,
+            AtomicIntegerArray finished, int[] share) {
+        int n = gens.length;
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            total += plays[i];
+            share[i] = 0;
+        }
+
+        double logTotal = Math.log(total + 1);
+        int used = 0;
+        for (int thread = 0; thread < getMaxThreads(); thread++) {
+            int bestIndex = -1;
+            double bestScore = 0;
+            for (int i = 0; i < n; i++) {
+                if (finished.get(i) != 0) continue;
+                if (share[i] == 0 && used >= slots) continue;
+
+                double score = rewards[i] / plays[i] + EXPLORATION
+                        * Math.sqrt(logTotal / (plays[i] + share[i]));
+                if (bestIndex == -1 || score > bestScore) {
+                    bestIndex = i;
+                    bestScore = score;
+                }
+            }
+
+            if (bestIndex == -1) break;
+            if (share[bestIndex]++ == 0) used++;
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+
+package packing.generator;
+
+
+// Packing imports
+import packing.data.Dataset;
+
+
+//##########
+// Java imports
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * The best solution of a group of generators that run concurrently on
+ * the same dataset. The area of this solution can be used by all
+ * generators of the group as a pruning bound.
+ */
+public class SharedBest {
+    // The area of the best solution. Only ever decreased.
+    final private AtomicLong area = new AtomicLong(Long.MAX_VALUE);
+    // The best solution.
+    private Dataset best = null;
+
+    /**
+     * Replaces the best solution if the given dataset has a smaller area.
+     *
+     * @param dataset the offered solution.
+     * @return whether the best solution was replaced.
+     */
+    public boolean offer(Dataset dataset) {
+        long offered = dataset.getArea();
+        long bound;
+        while (offered < (bound = area.get())) {
+            if (!area.compareAndSet(bound, offered)) continue;
+
+            synchronized(this) {
+                if (best == null || best.getArea() > offered) {
+                    best = dataset;
+                }
+            }
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the area of the best solution, or {@link Long#MAX_VALUE}
+     *     if no solution was offered yet.
+     */
+    public long getArea() {
+        return area.get();
+    }
+
+    /**
+     * @return the best solution, or {@code null} if no solution was
+     *     offered yet.
+     */
+    public synchronized Dataset getBest() {
+        return best;
+    }
+
+}
@@ -7,13 +7,19 @@ import packing.data.CompareEntry;
 import packing.data.Dataset;
 import packing.packer.Packer;
 import packing.packer.PackerFactory;
+import packing.tools.ThreadMonitor;
 
 
 //##########
 // Java imports
 import java.awt.Rectangle;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 
 /**
@@ -21,12 +27,46 @@ import java.util.Comparator;
  * and incrementally decreases the width and increases the height.
  * Stops when the width is less than the width of the widest rectangle,
  * or when an interrupt is received.
+ *
+ * Instead of visiting every width, only widths and heights that are the
+ * sum of a subset of the rectangle widths (resp. heights) are considered,
+ * since any packing can be pushed to the left and bottom until all
+ * coordinates are such sums. The bounding boxes are visited in order of
+ * their lower bound on the area, and a box is skipped when a wider and
+ * higher box was already found to be unpackable.
  */
 public class WideToHighBoundingBoxGenerator extends Generator {
 
-    static {
+    {
         name = "greedy wide-to-high";
     }
+
+    // The maximal amount of work (in words) spend on computing the subset
+    // sums. If more is needed, all widths (resp. heights) are used.
+    final private static long MAX_SUBSET_SUM_WORK = 1L << 28;
+    // When all widths are used, the candidate widths grow geometrically,
+    // where consecutive widths differ by about 1 / WIDTH_STEPS of the width.
+    final private static int WIDTH_STEPS = 4096;
+
+    /**-------------------------------------------------------------------------
+     * Sweep state
+     * -------------------------------------------------------------------------
+     */
+    // The candidate bounding boxes, ordered on area.
+    private BoxHeap heap;
+    // The candidate widths, in increasing order.
+    private int[] widths;
+    // Fenwick tree over the reversed width indices, storing the maximal
+    // height for which the packing failed with at least that width.
+    private int[] failTree;
+    // The achievable heights, or {@code null} if every height is.
+    private BitSet heights;
+    // The area of the best solution found so far.
+    private long bestArea;
+    // The number of workers that are currently packing.
+    private int active;
+    private int numPacked, numSkipped;
+
     
     public WideToHighBoundingBoxGenerator(PackerFactory factory) {
         super(factory);
@@ -34,17 +74,15 @@ public class WideToHighBoundingBoxGenerator extends Generator {
     
     @Override
     public void generateSolution(Dataset dataset) {
-        // By default set the best solution to null.
-        best = null;
-
         dataset.setRotation(CompareEntry.NO_ROTATION);
 
         int width = 0;
         int height = 0;
         int minWidth = 0;
         int minHeight = 0;
-        int minArea = 0;
-        int numPacked = 0, numSkipped = 0;
+        long minArea = 0;
+        numPacked = 0;
+        numSkipped = 0;
 
         // Initialize the local variables.
         for (CompareEntry entry : dataset) {
@@ -52,14 +90,12 @@ public class WideToHighBoundingBoxGenerator extends Generator {
             width += rect.width;
             minWidth = Math.max(minWidth, rect.width);
             minHeight = Math.max(minHeight, rect.height);
-            minArea += rect.width * rect.height;
+            minArea += (long) rect.width * rect.height;
         }
         
         // At the start, set the current height to the minimal height.
         height = minHeight;
         
-        // Loop until the time has run out, or the minimal
-        // width has been reached.
         try {
             Comparator<CompareEntry> bestOrdering = null;
 
@@ -69,66 +105,355 @@ public class WideToHighBoundingBoxGenerator extends Generator {
                     CompareEntry.SORT_WIDTH,
                     CompareEntry.SORT_LONGEST_SIDE)) {
                 dataset.setOrdering(comparator);
-                Packer packer = packerFactory.create(width, height);
+                Packer packer = packerFactory.obtain(width, height);
+                // Abandon orderings as soon as they lose from the best one.
+                if (best != null) packer.setCutoffArea(best.getArea());
                 Dataset packed = packer.pack(dataset);
                 numPacked++;
 
-                if (best == null || packed.getArea() < best.getArea()) {
+                if (packed == null) continue;
+                if (updateBest(packed)) {
 //                    System.err.printf("Found new solution: [%d x %d] (%.5f%% wasted space)\n", packed.getWidth(), packed.getHeight(),
 //                            100 * (packed.getArea() - minArea) / (double) packed.getArea());
-                    best = packed;
                     bestOrdering = comparator;
                 }
             }
 
-            dataset.setOrdering(bestOrdering);
-
-            while (width >= minWidth) {
-                if (width * height < minArea) {
-                    // If the current area is less then the minimal solution area,
-                    // increase the height until the area is more then the minimal
-                    // solution area.
-                    height = Math.max((int) Math.ceil(((double) minArea) / width),
-                            height + 1);
-                    numSkipped++;
-                    continue;
-                }
+            if (best == null) return;
+            // The ordering is unknown if the initial solution was better.
+            if (bestOrdering != null) dataset.setOrdering(bestOrdering);
+            bestArea = best.getArea();
 
-                // If there is already a solution available, and that area is
-                // already smaller then the area we want to try, then we simply
-                // skip all these configurations.
-                if (best != null && width * height >= best.getArea()) {
-                    width = Math.min(best.getArea() / height,
-                            width - 1);
-                    numSkipped++;
-                    continue;
-                }
+            initSweep(dataset, minWidth, minHeight, minArea);
+
+            // Start a worker for each additional thread it may use, each
+            // with its own copy of the dataset.
+            for (int i = 1; i < getMaxThreads(); i++) {
+                ThreadMonitor.startThread(createRunnable(i, dataset.clone()));
+            }
+
+            createRunnable(0, dataset).run();
+
+        } finally {
+//            System.err.printf("Generated %d packings, skipped %d...\n", numPacked, numSkipped);
+        }
+    }
+
+    /**
+     * Determines the candidate widths and heights, and fills the heap
+     * with the lowest possible bounding box for every candidate width.
+     *
+     * @param dataset the dataset to generate the candidates for.
+     * @param minWidth the width of the widest rectangle.
+     * @param minHeight the height of the highest rectangle.
+     * @param minArea the total area of the rectangles.
+     */
+    private void initSweep(Dataset dataset, int minWidth, int minHeight,
+            long minArea) {
+        int n = dataset.size();
+        int[] recWidths = new int[n];
+        int[] recHeights = new int[n];
+        int i = 0;
+        for (CompareEntry entry : dataset) {
+            recWidths[i] = entry.getRec().width;
+            recHeights[i++] = entry.getRec().height;
+        }
 
-//            System.err.printf("Packing into [%d x %d] bounding box\n", width, height);
+        // Only bounding boxes with an area less then the best area are
+        // of interest, which bounds the width and the height.
+        int maxWidth = (int) Math.min(Integer.MAX_VALUE,
+                (bestArea - 1) / minHeight);
+        int maxHeight = (int) Math.min(Integer.MAX_VALUE,
+                (bestArea - 1) / minWidth);
+        BitSet widthSet = subsetSums(recWidths, maxWidth);
+        heights = subsetSums(recHeights, maxHeight);
 
-                // Obtains a packer, and pack the dataset with this packer.
-                Packer packer = packerFactory.create(width, height);
+        // Rectangles which are wider then half of the width of the
+        // bounding box cannot be placed next to each other, and must
+        // therefore be stacked. Sort the rectangles on decreasing width
+        // and keep track of the height of these stacks.
+        Integer[] order = new Integer[n];
+        for (i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (i1, i2) -> Integer.compare(
+                recWidths[i2], recWidths[i1]));
+        int[] sortedWidths = new int[n];
+        int[] stackHeights = new int[n + 1];
+        for (i = 0; i < n; i++) {
+            sortedWidths[i] = recWidths[order[i]];
+            stackHeights[i + 1] = stackHeights[i] + recHeights[order[i]];
+        }
+
+        List<Integer> widthList = new ArrayList<>();
+        heap = new BoxHeap();
+        int firstWidth = (widthSet == null
+                ? minWidth
+                : widthSet.nextSetBit(minWidth));
+        for (int w = firstWidth; w != -1 && w <= maxWidth;
+                w = nextWidth(widthSet, w, minArea)) {
+            // Count the rectangles with 2 * width > w.
+            int lo = 0, hi = n;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (2L * sortedWidths[mid] > w) lo = mid + 1;
+                else hi = mid;
+            }
+
+            int h = Math.max(minHeight, stackHeights[lo]);
+            h = (int) Math.max(h, Math.min(Integer.MAX_VALUE,
+                    (minArea + w - 1) / w));
+            h = nextHeight(h);
+            if (h == -1 || (long) w * h >= bestArea) continue;
+
+            widthList.add(w);
+            heap.add(w, h);
+        }
+
+        widths = new int[widthList.size()];
+        for (i = 0; i < widths.length; i++) widths[i] = widthList.get(i);
+        failTree = new int[widths.length + 1];
+        active = 0;
+    }
+
+    /**
+     * Creates a sweep worker. Each worker repeatedly takes the bounding
+     * box with the lowest area from the heap and packs it.
+     *
+     * @param worker the index of the worker, see {@link #checkPause(int)}.
+     * @param dataset the dataset used by this worker.
+     * @return a runnable that packs until no bounding box can improve
+     *     the best solution.
+     */
+    private Runnable createRunnable(int worker, Dataset dataset) {
+        return () -> {
+            while (true) {
+                checkPause(worker);
+                Rectangle box;
+                long cutoff;
+                synchronized(this) {
+                    if ((box = nextBox()) == null) return;
+                    cutoff = Math.min(bestArea, getSharedArea());
+                    active++;
+                }
+
+                Packer packer = packerFactory.obtain(box.width, box.height);
+                packer.setCutoffArea(cutoff);
                 Dataset packed = packer.pack(dataset);
-                numPacked++;
 
-                if (packed != null) {
-                    // Update the width of the solution to the effective width
-                    // (so cropping unused space of), and set this width
-                    // as the width of the solution.
-                    packed.setWidth(width = packed.getEffectiveWidth());
+                synchronized(this) {
+                    active--;
+                    numPacked++;
 
-                    // Update the best solution if nessecary.
-                    if (best == null || packed.getArea() < best.getArea()) {
-//                    System.err.printf("Found new solution: [%d x %d] (%.5f%% wasted space)\n", packed.getWidth(), packed.getHeight(),
-//                            100 * (packed.getArea() - minArea) / (double) packed.getArea());
-                        best = packed;
+                    if (packed != null) {
+                        // Crop the unused space of the solution.
+                        packed.setWidth(packed.getEffectiveWidth());
+
+                        if (packed.getArea() < bestArea) {
+//                            System.err.printf("Found new solution: [%d x %d]\n", packed.getWidth(), packed.getHeight());
+                            updateBest(packed);
+                            bestArea = packed.getArea();
+                        }
+
+                    } else {
+                        if (!packer.wasCutOff()) addFailure(box);
+                        raise(box, box.height + packer.getMinHeightIncrease());
                     }
-                    --width;
+
+                    notifyAll();
                 }
-                height += packer.getMinHeightIncrease();
             }
-        } finally {
-//            System.err.printf("Generated %d packings, skipped %d...\n", numPacked, numSkipped);
+        };
+    }
+
+    /**
+     * Takes the next bounding box from the heap that can still improve
+     * the best solution and is not dominated by a failed packing.
+     * Waits for the other workers if the heap is empty but there are
+     * still bounding boxes being packed.
+     *
+     * @return the next bounding box to pack, or {@code null} if there are
+     *     none left.
+     */
+    private Rectangle nextBox() {
+        while (true) {
+            long bound = Math.min(bestArea, getSharedArea());
+            if (heap.isEmpty() || heap.peekArea() >= bound
+                    || bound <= lowerBound) {
+                if (active == 0) {
+                    notifyAll();
+                    return null;
+                }
+
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    return null;
+                }
+                continue;
+            }
+
+            long next = heap.poll();
+            Rectangle box = new Rectangle(BoxHeap.width(next),
+                    BoxHeap.height(next));
+            int failHeight = getFailHeight(box.width);
+            if (box.height <= failHeight) {
+                numSkipped++;
+                raise(box, failHeight + 1);
+                continue;
+            }
+
+            return box;
+        }
+    }
+
+    /**
+     * Puts the bounding box back in the heap with at least the given
+     * height, if it can still improve the best solution.
+     *
+     * @param box the bounding box to raise.
+     * @param height the minimal new height.
+     */
+    private void raise(Rectangle box, int height) {
+        int h = nextHeight(height);
+        if (h == -1 || (long) box.width * h >= bestArea) return;
+
+        heap.add(box.width, h);
+    }
+
+
+    /**-------------------------------------------------------------------------
+     * Dominance
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * Marks the given bounding box as unpackable. Every box which is
+     * both less wide and less high is assumed to be unpackable as well.
+     *
+     * @param box the box for which packing failed.
+     */
+    private void addFailure(Rectangle box) {
+        // Fenwick tree over the reversed index, so that a prefix
+        // maximum equals the maximum over all wider boxes.
+        for (int i = widths.length - Arrays.binarySearch(widths, box.width);
+                i < failTree.length; i += i & -i) {
+            failTree[i] = Math.max(failTree[i], box.height);
+        }
+    }
+
+    /**
+     * @param width the width of the box.
+     * @return the maximal height of a failed box with at least the
+     *     given width.
+     */
+    private int getFailHeight(int width) {
+        int max = 0;
+        for (int i = widths.length - Arrays.binarySearch(widths, width);
+                i > 0; i -= i & -i) {
+            max = Math.max(max, failTree[i]);
         }
+        return max;
+    }
+
+
+    /**-------------------------------------------------------------------------
+     * Subset sums
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * Computes all sums of subsets of the given values up to the given
+     * limit.
+     *
+     * @param values the values to sum.
+     * @param limit the largest sum of interest.
+     * @return a bit set containing all sums up to and including
+     *     {@code limit}, or {@code null} if this would take too long
+     *     to compute.
+     */
+    private static BitSet subsetSums(int[] values, int limit) {
+        if (limit < 0) return new BitSet();
+
+        // Group equal values, and split each group in the powers of two
+        // such that every count can still be formed.
+        Map<Integer, Integer> counts = new TreeMap<>();
+        for (int value : values) {
+            counts.merge(value, 1, Integer::sum);
+        }
+
+        List<Long> items = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+            int remaining = entry.getValue();
+            for (int k = 1; remaining > 0; k <<= 1) {
+                int take = Math.min(k, remaining);
+                remaining -= take;
+                long item = (long) take * entry.getKey();
+                if (item <= limit) items.add(item);
+            }
+        }
+
+        long[] bits = new long[(limit >> 6) + 1];
+        if (items.size() * (long) bits.length > MAX_SUBSET_SUM_WORK) {
+            return null;
+        }
+
+        bits[0] = 1L;
+        for (long item : items) {
+            shiftOr(bits, (int) item);
+        }
+
+        BitSet set = BitSet.valueOf(bits);
+        if (set.length() > limit + 1) set.clear(limit + 1, set.length());
+        return set;
+    }
+
+    /**
+     * Performs {@code bits |= bits << shift} on the given words.
+     */
+    private static void shiftOr(long[] bits, int shift) {
+        int wordShift = shift >>> 6;
+        int bitShift = shift & 63;
+        for (int i = bits.length - 1; i >= wordShift; i--) {
+            long word = bits[i - wordShift] << bitShift;
+            if (bitShift != 0 && i - wordShift > 0) {
+                word |= bits[i - wordShift - 1] >>> (64 - bitShift);
+            }
+            bits[i] |= word;
+        }
+    }
+
+    /**
+     * Without the achievable widths, visiting every width up to the area
+     * of the best solution may take billions of iterations. Hence the
+     * widths then grow geometrically, which bounds the number of candidate
+     * widths by {@code WIDTH_STEPS} times the logarithm of their range.
+     * Every step is moved down to the narrowest width with the same height
+     * bound from the total area, which wastes the least space.
+     *
+     * @param widthSet the achievable widths, or {@code null} if all widths
+     *     are used.
+     * @param width the current candidate width.
+     * @param minArea the total area of the rectangles.
+     * @return the next candidate width after the given width, or {@code -1}
+     *     if there is none.
+     */
+    private static int nextWidth(BitSet widthSet, int width, long minArea) {
+        if (widthSet != null) {
+            return (width == Integer.MAX_VALUE
+                    ? -1
+                    : widthSet.nextSetBit(width + 1));
+        }
+
+        long next = (long) width + Math.max(1, width / WIDTH_STEPS);
+        long height = (minArea + next - 1) / next;
+        long narrowest = (minArea + height - 1) / height;
+        if (narrowest > width) next = narrowest;
+        return (next > Integer.MAX_VALUE ? -1 : (int) next);
+    }
+
+    /**
+     * @param height the minimal height.
+     * @return the smallest achievable height of at least the given height,
+     *     or {@code -1} if there is none.
+     */
+    private int nextHeight(int height) {
+        return (heights == null ? height : heights.nextSetBit(height));
     }
 }
@@ -406,6 +406,7 @@ public class CrossoverPopulation
     
     @Override
     public void calculateFitness() {
+        beginGeneration();
         int discarded = 0;
         Iterator<CrossInstance> it = list.iterator();
         boolean newBest = false;
@@ -460,7 +461,7 @@ public class CrossoverPopulation
         //Logger.write("selection best: " + best.toShortString());
         
         // Sort all entries from big to small area.
-        Collections.sort(list, Comparator.comparingInt(cd -> {
+        Collections.sort(list, Comparator.comparingLong(cd -> {
             return cd.pd.getArea();
         }));
         //System.out.println("sorting done");
@@ -552,6 +553,8 @@ public class CrossoverPopulation
         for (CrossInstance instance : list) {
             instance.mutate();
         }
+        
+        endGeneration(list.size(), (best == null ? -1 : best.getArea()));
     }
     
     @Override
@@ -0,0 +1,160 @@
+
+package packing.genetic;
+
+
+// Packing imports
+import packing.data.CompareEntry;
+import packing.data.Dataset;
+import packing.tools.Metrics;
+
+
+//##########
+// Java imports
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Bounded cache of the fitness of the instances of a population, keyed on
+ * a hash of the order and the rotations of the entries.
+ *
+ * The hash of a dataset is the xor of a key for every entry at its position
+ * and a key for every rotated entry (Zobrist hashing), such that it can be
+ * updated in constant time when two entries are swapped or an entry is
+ * rotated. When the cache is full, the least recently used fitness is
+ * removed.
+ */
+public class FitnessCache {
+    // The lookups of all fitness caches.
+    final private static Metrics.Counter HITS
+            = Metrics.counter("FitnessCache.hits");
+    final private static Metrics.Counter MISSES
+            = Metrics.counter("FitnessCache.misses");
+    final private static Metrics.Counter EVICTIONS
+            = Metrics.counter("FitnessCache.evictions");
+
+    // The maximum number of cached fitness values.
+    final private int capacity;
+    // The cached fitness values in order of use.
+    final private Map<Long, Double> map;
+
+    // The lookups of this cache.
+    private long hits = 0;
+    private long lookups = 0;
+
+
+    /**-------------------------------------------------------------------------
+     * Constructor
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * @param capacity the maximum number of cached fitness values.
+     */
+    public FitnessCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(
+                    "The capacity must be positive, but was " + capacity);
+        }
+        this.capacity = capacity;
+        map = new LinkedHashMap<Long, Double>(2 * capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Double> e) {
+                if (size() <= FitnessCache.this.capacity) return false;
+                EVICTIONS.increment();
+                return true;
+            }
+        };
+    }
+
+
+    /**-------------------------------------------------------------------------
+     * Functions
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * @param hash the hash of the instance.
+     * @return the cached fitness of the instance, or {@code null} if it
+     *     is not cached.
+     */
+    public Double get(long hash) {
+        lookups++;
+        Double fitness = map.get(hash);
+        if (fitness == null) {
+            MISSES.increment();
+
+        } else {
+            hits++;
+            HITS.increment();
+        }
+        return fitness;
+    }
+
+    /**
+     * @param hash the hash of the instance.
+     * @param fitness the fitness of the instance.
+     */
+    public void put(long hash, double fitness) {
+        map.put(hash, fitness);
+    }
+
+    /**
+     * Removes all cached fitness values, e.g. when the fitness function
+     * changes.
+     */
+    public void clear() {
+        map.clear();
+    }
+
+    /**
+     * @return the fraction of the lookups that hit the cache, or 0 if
+     *     there were none.
+     */
+    public double getHitRate() {
+        return (lookups == 0 ? 0.0 : (double) hits / lookups);
+    }
+
+    /**
+     * @param dataset the dataset to hash.
+     * @return the hash of the order and the rotations of the entries.
+     */
+    public static long hash(Dataset dataset) {
+        long hash = 0;
+        for (int i = 0; i < dataset.size(); i++) {
+            CompareEntry entry = dataset.get(i);
+            hash ^= positionKey(entry, i);
+            if (entry.useRotation()) hash ^= rotationKey(entry);
+        }
+        return hash;
+    }
+
+    /**
+     * @param entry the entry.
+     * @param pos the position of the entry.
+     * @return the key of the entry at the given position.
+     */
+    public static long positionKey(CompareEntry entry, int pos) {
+        return mix(((long) entry.getId() << 32) | pos);
+    }
+
+    /**
+     * @param entry the entry.
+     * @return the key of the entry when it is rotated.
+     */
+    public static long rotationKey(CompareEntry entry) {
+        return mix(~(long) entry.getId());
+    }
+
+    /**
+     * The finalizer of SplitMix64, which spreads every input bit over the
+     * whole output.
+     *
+     * @param z the value to mix.
+     * @return the mixed value.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+}
@@ -6,6 +6,7 @@ package packing.genetic;
 import packing.data.Dataset;
 import packing.genetic.RandomPopulation.RandomInstance;
 import packing.packer.Packer;
+import packing.tools.SearchTrace;
 
 //##########
 
@@ -13,6 +14,11 @@ import packing.packer.Packer;
  * General population interface.
  */
 public abstract class Population {
+    // The number of completed generations.
+    protected long generation = 0;
+    // The trace event of the current generation, or {@code null}.
+    private Object generationEvent = null;
+    
     
     public abstract class Instance<C extends Instance>
             implements Comparable<C>, packing.tools.Cloneable {
@@ -65,4 +71,27 @@ public abstract class Population {
      */
     public abstract Dataset getBest();
     
+    /**
+     * Marks the start of a generation. Should be called at the start
+     * of {@link #calculateFitness()}.
+     */
+    protected void beginGeneration() {
+        generationEvent = SearchTrace.beginGeneration();
+    }
+    
+    /**
+     * Marks the end of a generation. Should be called at the end
+     * of {@link #performMutation()}.
+     * 
+     * @param size the number of instances of the population.
+     * @param bestArea the area of the best instance, or {@code -1}
+     *     if there is none.
+     */
+    protected void endGeneration(int size, long bestArea) {
+        generation++;
+        Object event = generationEvent;
+        generationEvent = null;
+        SearchTrace.commitGeneration(event, this, generation, size, bestArea);
+    }
+    
 }
@@ -28,14 +28,32 @@ public class RandomPopulation
     // The mutation rate for every mutation.
     final public static double MUTATION_RATE = 0.1;
     
+    // The maximum number of cached fitness values.
+    final public static int FITNESS_CACHE_SIZE = 16 * POPULATION_SIZE;
+    
     // For generating random values.
-    private static Random random = new Random();
+    final private Random random = new Random();
+    
+    // Alias table for selecting the instance of rank i with probability
+    // proportional to 1 / (i + 1). The instance of rank i is kept with
+    // probability RANK_PROB[i], and otherwise replaced by RANK_ALIAS[i].
+    final private static double[] RANK_PROB = new double[POPULATION_SIZE];
+    final private static int[] RANK_ALIAS = new int[POPULATION_SIZE];
+    
+    static {
+        createAliasTable();
+    }
     
     // The used packer factory for generating packers.
     final private PackerFactory packerFactory;
+    // The fitness of the instances seen so far.
+    final private FitnessCache cache = new FitnessCache(FITNESS_CACHE_SIZE);
     
     // List containing all instances of the population
     private List<RandomInstance> instances;
+    // The instances of the previous generation. Their datasets are
+    // overwritten with the selected instances of the next generation.
+    private List<RandomInstance> spare;
     // The height that should be used in the evaluation of the instances.
     private int height;
     // The maximum width that should be used in the evaluation of the
@@ -54,6 +72,11 @@ public class RandomPopulation
         private Dataset dataset;
         // The fitness of the dataset
         private Double fitness = Double.NaN;
+        // The hash of the order and the rotations of the entries.
+        private long hash;
+        // Whether the locations of the entries are the packing of the
+        // current order and rotations.
+        private boolean packed = false;
         
         /**
          * Creates a new instance of the provided dataset.
@@ -62,6 +85,7 @@ public class RandomPopulation
          */
         public RandomInstance(Dataset dataset) {
             this.dataset = dataset;
+            hash = FitnessCache.hash(dataset);
         }
         
         @Override
@@ -71,14 +95,21 @@ public class RandomPopulation
                     CompareEntry entry = dataset.get(i);
                     
                     if (dataset.allowRotation() && random.nextBoolean()) {
-                        entry.setRotation(entry.useRotation());
+                        entry.rotate();
+                        hash ^= FitnessCache.rotationKey(entry);
                         
                     } else {
                         int j = random.nextInt(dataset.size() - 1);
                         if (j >= i) j++;
                         
+                        CompareEntry other = dataset.get(j);
+                        hash ^= FitnessCache.positionKey(entry, i)
+                                ^ FitnessCache.positionKey(other, j)
+                                ^ FitnessCache.positionKey(entry, j)
+                                ^ FitnessCache.positionKey(other, i);
                         dataset.swap(i, j);
                     }
+                    packed = false;
                 }
             }
         }
@@ -90,11 +121,43 @@ public class RandomPopulation
         
         @Override
         public void calculateFitness(Packer packer) {
-            Dataset packed = packer.pack(this.dataset);
-            fitness = (packed != null
-                    ? 1.0 / (packed.getWidth())
+            Dataset result = packer.pack(this.dataset);
+            fitness = (result != null
+                    ? 1.0 / (result.getWidth())
                     : 0.0);
-            dataset = packed;
+            cache.put(hash, fitness);
+            if (result != null) {
+                // The packer may have rotated entries.
+                dataset.copyFrom(result);
+                hash = FitnessCache.hash(dataset);
+                packed = true;
+            }
+        }
+        
+        /**
+         * Sets the fitness of this instance to the cached fitness of an
+         * instance with the same order and rotations, if any.
+         * 
+         * @return whether the fitness was cached.
+         */
+        public boolean useCachedFitness() {
+            Double cached = cache.get(hash);
+            if (cached == null) return false;
+            fitness = cached;
+            return true;
+        }
+        
+        /**
+         * Overwrites this instance with the provided instance, without
+         * creating new entries.
+         * 
+         * @param other the instance to copy.
+         */
+        public void copy(RandomInstance other) {
+            dataset.copyFrom(other.dataset);
+            fitness = other.fitness;
+            hash = other.hash;
+            packed = other.packed;
         }
         
         @Override
@@ -156,41 +219,95 @@ public class RandomPopulation
             clone.setRotation(CompareEntry.RANDOM_ROTATION);
             instances.add(new RandomInstance(clone));
         }
+        
+        spare = new ArrayList<>(POPULATION_SIZE);
+        for (RandomInstance instance : instances) {
+            spare.add(instance.clone());
+        }
+    }
+    
+    /**
+     * Fills {@link #RANK_PROB} and {@link #RANK_ALIAS} using Vose's
+     * method. Every slot is split between its own rank and at most one
+     * other rank, such that a parent is selected in constant time.
+     */
+    private static void createAliasTable() {
+        int n = POPULATION_SIZE;
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1.0 / (i + 1);
+        }
+        
+        // The probabilities scaled such that their average is 1.
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int numSmall = 0;
+        int numLarge = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = n / (sum * (i + 1));
+            if (scaled[i] < 1.0) small[numSmall++] = i;
+            else large[numLarge++] = i;
+        }
+        
+        while (numSmall > 0 && numLarge > 0) {
+            int s = small[--numSmall];
+            int l = large[--numLarge];
+            RANK_PROB[s] = scaled[s];
+            RANK_ALIAS[s] = l;
+            scaled[l] -= 1.0 - scaled[s];
+            if (scaled[l] < 1.0) small[numSmall++] = l;
+            else large[numLarge++] = l;
+        }
+        
+        // Only rounding errors are left.
+        while (numLarge > 0) {
+            int l = large[--numLarge];
+            RANK_PROB[l] = 1.0;
+            RANK_ALIAS[l] = l;
+        }
+        while (numSmall > 0) {
+            int s = small[--numSmall];
+            RANK_PROB[s] = 1.0;
+            RANK_ALIAS[s] = s;
+        }
     }
     
     /**
      * Calculates the fitness of all instances with the provided
      * height and maximum width.
+     * Instances whose order and rotations were seen before get
+     * the cached fitness, and are only packed if they become the best.
      * If the instance if the best one seen so far, update best.
      */
     @Override
     public void calculateFitness() {
+        beginGeneration();
         for (RandomInstance instance : instances) {
-            Packer packer = packerFactory.create(maxWidth, height);
+            if (instance.useCachedFitness()) continue;
+            Packer packer = packerFactory.obtain(maxWidth, height);
             instance.calculateFitness(packer);
         }
         
         instances.sort(Collections.reverseOrder());
         best = instances.get(0);
+        if (!best.packed) {
+            best.calculateFitness(packerFactory.obtain(maxWidth, height));
+        }
     }
     
     /**
      * Select a parent from the previous generation, with probability
-     * proportional to the inverse of its rank.
+     * proportional to the inverse of its rank. Takes constant time.
      *
-     * @param fitnessSum the sum of all fitness scores from the previous generation
-     * @return a randomly selected instance from the previous generation
+     * @return a randomly selected instance from the previous generation.
+     *     Is not cloned.
      */
-    public RandomInstance selectParent(double fitnessSum) {
-        double rand = random.nextDouble() * fitnessSum;
-        double runningSum = 0;
-        for (int i = 0; i < instances.size(); i++) {
-            runningSum += 1.0 / (i + 1);
-            if (runningSum > rand) {
-                return instances.get(i).clone();
-            }
-        }
-        throw new RuntimeException("Failed to select a parent. Rounding error?");
+    public RandomInstance selectParent() {
+        int i = random.nextInt(POPULATION_SIZE);
+        return instances.get(random.nextDouble() < RANK_PROB[i]
+                ? i
+                : RANK_ALIAS[i]);
     }
     
     /**
@@ -198,26 +315,24 @@ public class RandomPopulation
      * (i.e. always keep the best instance from the previous generation). Then
      * randomly select parents from the previous generation with probability
      * proportional to the inverse of its rank.
+     * The selected instances are copied into the instances of the
+     * previous generation, which are then swapped with the current ones.
      */
     @Override
     public void performSelection() {
-        List<RandomInstance> newInstances = new ArrayList<>(POPULATION_SIZE);
+        List<RandomInstance> newInstances = spare;
         
-        // Calculates the total fitnessSum of the instances.
-        double fitnessSum = 0;
-        for (int i = 0; i < instances.size(); i++) {
-            fitnessSum += 1.0 / (i + 1);
-        }
-
         // Always keep the best instance from the previous generation.
-        newInstances.add(instances.get(0).clone());
+        newInstances.get(0).copy(instances.get(0));
 
         // Select instances to create new generation
-        while (newInstances.size() < POPULATION_SIZE) {
-            newInstances.add(selectParent(fitnessSum));
+        for (int i = 1; i < POPULATION_SIZE; i++) {
+            newInstances.get(i).copy(selectParent());
         }
         
+        spare = instances;
         instances = newInstances;
+        best = instances.get(0);
     }
     
     /**
@@ -229,6 +344,9 @@ public class RandomPopulation
         for (int i = 1; i < instances.size(); i++) {
             instances.get(i).mutate();
         }
+        
+        endGeneration(instances.size(),
+                (best == null ? -1 : best.dataset.getArea()));
     }
     
     /**
@@ -245,11 +363,21 @@ public class RandomPopulation
      * @param maxWidth the new maximum width.
      */
     public void setMaxWidth(int maxWidth) {
+        // The cached fitness depends on the maximum width.
+        if (maxWidth != this.maxWidth) cache.clear();
         this.maxWidth = maxWidth;
     }
     
     /**
-     * @return the dataset of the best instance of this population.
+     * @return the fraction of the fitness calculations that were cached.
+     */
+    public double getCacheHitRate() {
+        return cache.getHitRate();
+    }
+    
+    /**
+     * @return the dataset of the best instance of this population. Is
+     *     overwritten by the next generations, so clone it to keep it.
      */
     public Dataset getBest() {
         return best.dataset;
@@ -13,6 +13,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -45,18 +46,12 @@ public class FileDataReader
     @Override
     public Dataset readEntries() {
         try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            List<String> data = new ArrayList<String>();
-            String line;
-            while ((line = br.readLine()) != null) {
-                if (!line.equals("")) {
-                    data.add(line);
-                    super.outputLine(line);
-                }
-            }
+            return DatasetFactory.process(br.lines()
+                    .filter(line -> !line.equals(""))
+                    .peek(this::outputLine)
+                    .iterator());
             
-            return DatasetFactory.process(data);
-            
-        } catch (IOException e) {
+        } catch (IOException | UncheckedIOException e) {
             System.err.println(e);
         }
         
@@ -0,0 +1,414 @@
+
+package packing.io;
+
+
+// Packing imports
+import packing.data.Dataset;
+import packing.data.DatasetFactory;
+
+
+//##########
+// Java imports
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+
+/**
+ * Generates synthetic instances in the input format, e.g. for studying how
+ * the packers scale with the number of rectangles.
+ *
+ * The sizes of the rectangles are drawn from a configurable distribution.
+ * The {@link Distribution#PERFECT} distribution cuts a sheet into pieces
+ * with random guillotine cuts, which gives an instance with a perfect
+ * packing and hence a known optimal area.
+ */
+public class InstanceGenerator {
+    // Height value for a free height.
+    final public static int FREE = -1;
+    // Height value for a fixed height that is chosen by the generator.
+    final public static int AUTO = 0;
+
+    // The exponent of the heavy-tailed distribution.
+    final private static double PARETO_ALPHA = 1.5;
+    // The number of different sizes of the duplicates distribution.
+    final private static int NUM_DUPLICATE_SIZES = 8;
+
+    // The number of rectangles.
+    final private int numRect;
+    // The distribution of the sizes.
+    final private Distribution dist;
+    // The maximum length of a side.
+    final private int maxSize;
+    // The height restriction, or {@link #FREE} or {@link #AUTO}.
+    final private int height;
+    // Whether rotations are allowed.
+    final private boolean rotation;
+    // The seed of the random generator.
+    final private long seed;
+
+    // The sizes of the last generated instance.
+    private int[] widths;
+    private int[] heights;
+    // The height of the last generated instance, or -1 if free.
+    private int genHeight;
+    // The optimal area of the last generated instance, or -1 if unknown.
+    private long optimalArea;
+
+
+    /**-------------------------------------------------------------------------
+     * Distribution enum
+     * -------------------------------------------------------------------------
+     */
+    public static enum Distribution {
+        // Both sides uniform between 1 and the maximum size.
+        UNIFORM,
+        // Both sides Pareto distributed, so mostly small rectangles
+        // with a few large ones.
+        HEAVY_TAILED,
+        // A few different sizes, which each occur many times.
+        DUPLICATES,
+        // Long and thin rectangles.
+        SLIVERS,
+        // The pieces of a sheet that is cut with guillotine cuts.
+        PERFECT;
+    }
+
+
+    /**-------------------------------------------------------------------------
+     * Constructor
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * @param numRect the number of rectangles.
+     * @param dist the distribution of the sizes.
+     * @param maxSize the maximum length of a side.
+     * @param height the height restriction, {@link #FREE} for a free height
+     *     or {@link #AUTO} for a fixed height chosen by the generator.
+     * @param rotation whether rotations are allowed.
+     * @param seed the seed of the random generator.
+     */
+    public InstanceGenerator(int numRect, Distribution dist, int maxSize,
+            int height, boolean rotation, long seed) {
+        if (numRect < 1 || maxSize < 1) {
+            throw new IllegalArgumentException("Expected a positive number "
+                    + "of rectangles and size, but found " + numRect
+                    + " and " + maxSize + ".");
+        }
+
+        this.numRect = numRect;
+        this.dist = dist;
+        this.maxSize = maxSize;
+        this.height = height;
+        this.rotation = rotation;
+        this.seed = seed;
+    }
+
+
+    /**-------------------------------------------------------------------------
+     * Functions
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * Generates the sizes of the rectangles and the height of the instance.
+     */
+    private void generateSizes() {
+        Random random = new Random(seed);
+        widths = new int[numRect];
+        heights = new int[numRect];
+        optimalArea = -1;
+
+        if (dist == Distribution.PERFECT) {
+            generatePerfect(random);
+            return;
+        }
+
+        int[][] palette = new int[NUM_DUPLICATE_SIZES][];
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = new int[] {uniform(random), uniform(random)};
+        }
+
+        long area = 0;
+        for (int i = 0; i < numRect; i++) {
+            switch (dist) {
+                case HEAVY_TAILED:
+                    widths[i] = pareto(random);
+                    heights[i] = pareto(random);
+                    break;
+                case DUPLICATES:
+                    int[] size = palette[random.nextInt(palette.length)];
+                    widths[i] = size[0];
+                    heights[i] = size[1];
+                    break;
+                case SLIVERS:
+                    int thin = 1 + random.nextInt(Math.max(1, maxSize / 20));
+                    int thick = maxSize - random.nextInt(
+                            Math.max(1, (maxSize + 1) / 2));
+                    boolean vertical = random.nextBoolean();
+                    widths[i] = (vertical ? thin : thick);
+                    heights[i] = (vertical ? thick : thin);
+                    break;
+                default:
+                    widths[i] = uniform(random);
+                    heights[i] = uniform(random);
+            }
+            area += (long) widths[i] * heights[i];
+        }
+
+        if (height == FREE) {
+            genHeight = -1;
+
+        } else {
+            // Choose the height of a square packing if not given, and
+            // make sure that every rectangle fits.
+            genHeight = (height == AUTO
+                    ? Math.max(maxSize, (int) Math.ceil(Math.sqrt(area)))
+                    : height);
+            for (int i = 0; i < numRect; i++) {
+                if (heights[i] <= genHeight) continue;
+                if (rotation && widths[i] <= genHeight) {
+                    int tmp = widths[i];
+                    widths[i] = heights[i];
+                    heights[i] = tmp;
+
+                } else {
+                    heights[i] = genHeight;
+                }
+            }
+        }
+    }
+
+    /**
+     * Cuts a sheet into {@code numRect} pieces with guillotine cuts, always
+     * cutting the piece with the largest area along its longest side.
+     *
+     * @param random the random generator to use.
+     */
+    private void generatePerfect(Random random) {
+        // Choose the sheet such that the pieces are about half the maximum
+        // size, and such that it can be cut in enough pieces.
+        long area = Math.max((long) numRect * maxSize * maxSize / 4, numRect);
+        int sheetHeight = (height > 0
+                ? height
+                : (int) Math.max(1, Math.round(Math.sqrt(area))));
+        int sheetWidth = (int) Math.max(1, (area + sheetHeight - 1)
+                / sheetHeight);
+        while ((long) sheetWidth * sheetHeight < numRect) sheetWidth++;
+
+        // The pieces as {width, height}, largest area first.
+        PriorityQueue<int[]> pieces = new PriorityQueue<>((p1, p2) ->
+                Long.compare((long) p2[0] * p2[1], (long) p1[0] * p1[1]));
+        pieces.add(new int[] {sheetWidth, sheetHeight});
+        while (pieces.size() < numRect) {
+            int[] piece = pieces.poll();
+            boolean cutWidth = (piece[0] > piece[1] ||
+                    (piece[0] == piece[1] && random.nextBoolean()));
+            int side = (cutWidth ? piece[0] : piece[1]);
+            int cut = 1 + random.nextInt(side - 1);
+
+            if (cutWidth) {
+                pieces.add(new int[] {cut, piece[1]});
+                pieces.add(new int[] {piece[0] - cut, piece[1]});
+
+            } else {
+                pieces.add(new int[] {piece[0], cut});
+                pieces.add(new int[] {piece[0], piece[1] - cut});
+            }
+        }
+
+        // Shuffle the pieces, since their order reveals the cuts.
+        List<int[]> list = new ArrayList<>(pieces);
+        Collections.shuffle(list, random);
+        for (int i = 0; i < numRect; i++) {
+            int[] piece = list.get(i);
+            boolean rotate = (rotation && random.nextBoolean()
+                    && (height == FREE || piece[0] <= sheetHeight));
+            widths[i] = (rotate ? piece[1] : piece[0]);
+            heights[i] = (rotate ? piece[0] : piece[1]);
+        }
+
+        genHeight = (height == FREE ? -1 : sheetHeight);
+        optimalArea = (long) sheetWidth * sheetHeight;
+    }
+
+    /**
+     * @param random the random generator to use.
+     * @return a uniformly distributed side length.
+     */
+    private int uniform(Random random) {
+        return 1 + random.nextInt(maxSize);
+    }
+
+    /**
+     * @param random the random generator to use.
+     * @return a Pareto distributed side length.
+     */
+    private int pareto(Random random) {
+        double value = Math.pow(1 - random.nextDouble(), -1 / PARETO_ALPHA);
+        return (int) Math.min(maxSize, Math.floor(value));
+    }
+
+    /**
+     * Writes a new instance in the input format.
+     *
+     * @param out the stream to write to. Is not closed.
+     * @throws IOException if the instance could not be written.
+     */
+    public void write(OutputStream out) throws IOException {
+        generateSizes();
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        for (String line : header()) {
+            writer.write(line);
+            writer.write('\n');
+        }
+
+        for (int i = 0; i < numRect; i++) {
+            writer.write(widths[i] + " " + heights[i] + "\n");
+        }
+        writer.flush();
+    }
+
+    /**
+     * Generates a new instance.
+     *
+     * @return the dataset of the instance.
+     */
+    public Dataset generate() {
+        generateSizes();
+        // Stream the lines, such that they are not all kept in memory.
+        return DatasetFactory.process(Stream.concat(header().stream(),
+                IntStream.range(0, numRect)
+                        .mapToObj(i -> widths[i] + " " + heights[i]))
+                .iterator());
+    }
+
+    /**
+     * @return the header lines of the last generated instance.
+     */
+    private List<String> header() {
+        List<String> lines = new ArrayList<>(3);
+        lines.add("container height: " + (genHeight < 0
+                ? "free"
+                : "fixed " + genHeight));
+        lines.add("rotations allowed: " + (rotation ? "yes" : "no"));
+        lines.add("number of rectangles: " + numRect);
+        return lines;
+    }
+
+    /**
+     * @return the optimal area of the last generated instance, or {@code -1}
+     *     if it is not known.
+     */
+    public long getOptimalArea() {
+        return optimalArea;
+    }
+
+    /**
+     * Parses the name of a distribution.
+     *
+     * @param name the name, e.g. {@code heavy-tailed}.
+     * @return the distribution.
+     * @throws IllegalArgumentException if there is no such distribution.
+     */
+    public static Distribution parseDistribution(String name) {
+        return Distribution.valueOf(name.toUpperCase().replace('-', '_'));
+    }
+
+    /**
+     * Parses a height restriction.
+     *
+     * @param value {@code free}, {@code fixed} or the height.
+     * @return the height restriction.
+     * @throws NumberFormatException if the value could not be parsed.
+     */
+    public static int parseHeight(String value) {
+        if (value.equals("free")) return FREE;
+        if (value.equals("fixed")) return AUTO;
+        return Integer.parseInt(value);
+    }
+
+    /**
+     * Writes an instance to a file or the standard output.
+     *
+     * Usage: {@code InstanceGenerator <n> [--dist <distribution>]
+     *     [--max <size>] [--height free|fixed|<height>]
+     *     [--rotation yes|no] [--seed <seed>] [--out <file>]}
+     *
+     * @param args the arguments.
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: InstanceGenerator <n> "
+                    + "[--dist uniform|heavy-tailed|duplicates|slivers|perfect] "
+                    + "[--max <size>] [--height free|fixed|<height>] "
+                    + "[--rotation yes|no] [--seed <seed>] [--out <file>]");
+            return;
+        }
+
+        Distribution dist = Distribution.UNIFORM;
+        int maxSize = 100;
+        int height = FREE;
+        boolean rotation = false;
+        long seed = 0;
+        String out = null;
+        for (int i = 1; i < args.length - 1; i++) {
+            switch (args[i]) {
+                case "--dist":
+                    dist = parseDistribution(args[++i]);
+                    break;
+                case "--max":
+                    maxSize = Integer.parseInt(args[++i]);
+                    break;
+                case "--height":
+                    height = parseHeight(args[++i]);
+                    break;
+                case "--rotation":
+                    rotation = args[++i].equals("yes");
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--out":
+                    out = args[++i];
+                    break;
+            }
+        }
+
+        InstanceGenerator gen = new InstanceGenerator(Integer.parseInt(args[0]),
+                dist, maxSize, height, rotation, seed);
+        try {
+            if (out == null) {
+                gen.write(System.out);
+
+            } else {
+                try (OutputStream stream = new FileOutputStream(out)) {
+                    gen.write(stream);
+                }
+            }
+
+        } catch (IOException e) {
+            System.err.println(e);
+            return;
+        }
+
+        if (gen.getOptimalArea() >= 0) {
+            System.err.println("optimal area: " + gen.getOptimalArea());
+        }
+    }
+
+}
@@ -11,8 +11,11 @@ import packing.data.Dataset;
 // Java imports
 import java.awt.Rectangle;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 
 import java.nio.charset.Charset;
 
@@ -20,13 +23,22 @@ import java.nio.charset.Charset;
 /**
  * Writer used to output text to a stream. Also formats datasets to a
  * correct output format.
+ * 
+ * The output is buffered, and is flushed after every dataset. Text that is
+ * printed before a dataset is written only reaches the stream after
+ * {@link #flush()} or {@link #close()} is called.
  */
 public class OutputWriter {
     // The used charset.
     final private Charset CHARSET = Charset.forName("UTF-8");
+    // The line separator of the system.
+    final private static String LINE_SEPARATOR
+            = System.getProperty("line.separator");
     
-    // The used stream.
-    final private OutputStream stream;
+    // The buffered writer of the used stream.
+    final private Writer writer;
+    // The buffer of a single line, reused for every entry.
+    final private StringBuilder sb = new StringBuilder();
     
     // Whether to use rotation or not.
     private boolean useRotation;
@@ -40,7 +52,8 @@ public class OutputWriter {
      * @param stream the output stream to use.
      */
     public OutputWriter(OutputStream stream) {
-        this.stream = stream;
+        this.writer = new BufferedWriter(
+                new OutputStreamWriter(stream, CHARSET));
     }
     
     /**
@@ -54,6 +67,7 @@ public class OutputWriter {
         
         if (dataset == null) {
             System.err.println("Unable to process null dataset!");
+            flush();
             return;
         }
         
@@ -64,37 +78,54 @@ public class OutputWriter {
         for (CompareEntry entry : dataset) {
             write(entry);
         }
+        
+        flush();
     }
     
     /**
      * Writes a single entry to the output stream.
      */
     private void write(CompareEntry entry) throws IOException {
-        StringBuilder sb = new StringBuilder();
+        sb.setLength(0);
         
         if (useRotation) {
             sb.append(entry.useRotation() ? "yes " : "no ");
         }
         
         Rectangle rec = entry.getRec();
-        sb.append(rec.x + " " + rec.y);
+        sb.append(rec.x).append(' ').append(rec.y);
         
-        sb.append(System.getProperty("line.separator"));
+        sb.append(LINE_SEPARATOR);
         
-        print(sb.toString());
+        writer.append(sb);
     }
     
     /**
      * @param text to be printed to the output stream.
      */
     void print(String text) throws IOException {
-        stream.write(text.getBytes(CHARSET));
+        writer.write(text);
+    }
+    
+    /**
+     * Writes the buffered output to the output stream.
+     */
+    public void flush() throws IOException {
+        writer.flush();
+    }
+    
+    /**
+     * Closes the output stream.
+     */
+    public void close() throws IOException {
+        writer.close();
     }
     
     /**
      * @param text line of text to be printed to the output stream.
      */
     void println(String text) throws IOException {
-        print(text + System.getProperty("line.separator"));
+        print(text);
+        print(LINE_SEPARATOR);
     }
 }
\ No newline at end of file
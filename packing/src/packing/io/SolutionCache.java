@@ -0,0 +1,261 @@
+
+package packing.io;
+
+
+// Packing imports
+import packing.data.CompareEntry;
+import packing.data.Dataset;
+import packing.data.DatasetFactory;
+import packing.tools.SolutionValidator;
+
+
+//##########
+// Java imports
+import java.awt.Rectangle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+
+/**
+ * On-disk cache of the best known solutions of previously solved instances.
+ *
+ * Every instance is stored in its own binary file, named after the
+ * fingerprint of the instance (see {@link DatasetFactory#fingerprint}).
+ * The placements are stored in the canonical order of the entries, such
+ * that a solution can be reused for every permutation of the same input.
+ * When the total size of the cache exceeds the maximum size, the least
+ * recently used files are removed.
+ */
+public class SolutionCache {
+    // Identifies the format of the cache files.
+    final private static int MAGIC = 0x504b4331;
+    // The extension of the cache files.
+    final private static String EXTENSION = ".bin";
+
+    // The directory of the cache.
+    final private File dir;
+    // The maximum total size of the cache files in bytes.
+    final private long maxBytes;
+
+
+    /**-------------------------------------------------------------------------
+     * Constructor
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * @param dir the directory of the cache. Is created if it doesn't exist.
+     * @param maxBytes the maximum total size of the cache files in bytes.
+     */
+    public SolutionCache(File dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        dir.mkdirs();
+    }
+
+
+    /**-------------------------------------------------------------------------
+     * Functions
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * Looks up the best known solution of the given instance.
+     *
+     * @param input the instance to look up.
+     * @return a copy of {@code input} with the cached placement, or
+     *     {@code null} if the instance is not in the cache or the cached
+     *     placement is not valid.
+     */
+    public Dataset lookup(Dataset input) {
+        File file = getFile(input);
+        if (!file.isFile()) return null;
+
+        Dataset solution = input.clone();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (!read(in, solution)) return null;
+
+        } catch (IOException e) {
+            System.err.println(e);
+            return null;
+        }
+
+        // The files may be stale or corrupted, so only trust a solution
+        // that is valid for this instance.
+        String error = SolutionValidator.validate(solution, input);
+        if (error != null) {
+            System.err.println("Rejected cached solution: " + error);
+            file.delete();
+            return null;
+        }
+
+        // Mark the file as recently used.
+        file.setLastModified(System.currentTimeMillis());
+        return solution;
+    }
+
+    /**
+     * Stores the solution if there is no better solution of the same
+     * instance in the cache.
+     *
+     * @param solution the solution to store.
+     */
+    public synchronized void store(Dataset solution) {
+        // Never store solutions that violate the height restriction.
+        if (solution.isFixedHeight() &&
+                solution.getEffectiveHeight() > solution.getHeight()) return;
+
+        int width = solution.getEffectiveWidth();
+        int height = (solution.isFixedHeight()
+                ? solution.getHeight()
+                : solution.getEffectiveHeight());
+
+        Dataset cached = lookup(solution);
+        if (cached != null && cached.getArea() <= (long) width * height) return;
+
+        File file = getFile(solution);
+        File tmp = new File(dir, file.getName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                write(out, solution, width, height);
+            }
+
+            Files.move(tmp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+
+        } catch (IOException e) {
+            System.err.println(e);
+            tmp.delete();
+            return;
+        }
+
+        evict();
+    }
+
+    /**
+     * @param dataset the instance.
+     * @return the cache file of the instance.
+     */
+    private File getFile(Dataset dataset) {
+        return new File(dir, String.format("%016x",
+                DatasetFactory.fingerprint(dataset)) + EXTENSION);
+    }
+
+    /**
+     * Writes the solution in canonical order.
+     *
+     * Format: magic, flags, height restriction, number of entries,
+     * width and height of the solution, followed for every entry by the
+     * canonical width and height, the location and whether the entry
+     * is placed rotated with respect to its canonical orientation.
+     *
+     * @param out the stream to write to.
+     * @param solution the solution to write.
+     * @param width the width of the solution.
+     * @param height the height of the solution.
+     * @throws IOException if the solution could not be written.
+     */
+    private void write(DataOutputStream out, Dataset solution,
+            int width, int height) throws IOException {
+        boolean rot = solution.allowRotation();
+        out.writeInt(MAGIC);
+        out.writeByte((solution.isFixedHeight() ? 1 : 0) | (rot ? 2 : 0));
+        out.writeInt(solution.isFixedHeight() ? solution.getHeight() : -1);
+        out.writeInt(solution.size());
+        out.writeInt(width);
+        out.writeInt(height);
+
+        for (CompareEntry entry : DatasetFactory.canonicalEntries(solution)) {
+            int w = DatasetFactory.canonicalWidth(entry, rot);
+            int h = DatasetFactory.canonicalHeight(entry, rot);
+            Rectangle rec = entry.getRec();
+            out.writeInt(w);
+            out.writeInt(h);
+            out.writeInt(rec.x);
+            out.writeInt(rec.y);
+            out.writeBoolean(rec.width != w);
+        }
+    }
+
+    /**
+     * Reads a solution and applies it to the entries of the dataset.
+     *
+     * @param in the stream to read from.
+     * @param dataset the dataset to apply the solution to.
+     * @return whether the file contains a solution of the instance.
+     * @throws IOException if the file could not be read.
+     */
+    private boolean read(DataInputStream in, Dataset dataset)
+            throws IOException {
+        boolean rot = dataset.allowRotation();
+        if (in.readInt() != MAGIC) return false;
+        if (in.readByte() != ((dataset.isFixedHeight() ? 1 : 0)
+                | (rot ? 2 : 0))) return false;
+        if (in.readInt() != (dataset.isFixedHeight()
+                ? dataset.getHeight() : -1)) return false;
+        if (in.readInt() != dataset.size()) return false;
+        int width = in.readInt();
+        int height = in.readInt();
+
+        // The entries with equal sizes are interchangeable, so the
+        // canonical order maps the cached entries to the input entries.
+        for (CompareEntry entry : DatasetFactory.canonicalEntries(dataset)) {
+            int w = in.readInt();
+            int h = in.readInt();
+            int x = in.readInt();
+            int y = in.readInt();
+            boolean rotated = in.readBoolean();
+
+            // Detects fingerprint collisions.
+            if (w != DatasetFactory.canonicalWidth(entry, rot) ||
+                    h != DatasetFactory.canonicalHeight(entry, rot)) {
+                return false;
+            }
+
+            if (rot) {
+                int placedWidth = (rotated ? h : w);
+                entry.setRotation(entry.getNormalRec().width != placedWidth);
+            }
+
+            entry.setLocation(x, y);
+        }
+
+        dataset.setSize(width, height);
+        return true;
+    }
+
+    /**
+     * Removes the least recently used files until the total size of
+     * the cache is at most {@link #maxBytes}.
+     */
+    private void evict() {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(EXTENSION));
+        if (files == null) return;
+
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= maxBytes) return;
+
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < files.length && total > maxBytes; i++) {
+            long length = files[i].length();
+            if (files[i].delete()) total -= length;
+        }
+    }
+
+}
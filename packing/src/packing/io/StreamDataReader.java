@@ -9,11 +9,10 @@ import packing.data.DatasetFactory;
 
 //##########
 // Java imports
+import java.io.BufferedReader;
 import java.io.InputStream;
-
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Scanner;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 
 
 /**
@@ -32,18 +31,19 @@ public class StreamDataReader
     
     @Override
     public Dataset readEntries() {
-        Scanner sc = new Scanner(stream);
-        
-        List<String> data = new ArrayList<String>();
-        while (sc.hasNextLine()) {
-            String line = sc.nextLine();
-            if (!line.equals("")) {
-                data.add(line);
-                super.outputLine(line);
-            }
+        // The stream is not closed, since it is owned by the caller.
+        BufferedReader br = new BufferedReader(new InputStreamReader(stream));
+        try {
+            return DatasetFactory.process(br.lines()
+                    .filter(line -> !line.equals(""))
+                    .peek(this::outputLine)
+                    .iterator());
+            
+        } catch (UncheckedIOException e) {
+            System.err.println(e);
         }
         
-        return DatasetFactory.process(data);
+        return null;
     }
     
 }
\ No newline at end of file
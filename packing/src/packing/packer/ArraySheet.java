@@ -0,0 +1,711 @@
+
+package packing.packer;
+
+
+// Packing imports
+import packing.data.CompareEntry;
+import packing.data.Dataset;
+import packing.tools.SearchTrace;
+
+
+//##########
+// Java imports
+import java.awt.Rectangle;
+
+import java.util.Arrays;
+
+
+/*
+ * Variant of {@link Sheet} that stores the sheet tree in parallel primitive
+ * arrays instead of a tree of objects, and produces the same packings.
+ *
+ * Every sheet is a node id, which indexes the arrays. The children of a node
+ * are kept as a doubly linked list of node ids, in the same order as the
+ * children of {@link Sheet}. The filled areas of a node are kept in a linked
+ * list that is ordered on x-coordinate, such that the overlap check of a
+ * placement can stop at the first filled area that starts right of it.
+ * All traversals are iterative and use preallocated stacks, so a packing
+ * only allocates when the arrays have to grow.
+ */
+public class ArraySheet extends Packer {
+    // The value used for a missing node or filled area.
+    final private static int NONE = -1;
+    // The initial capacity of the arrays.
+    final private static int INIT_CAPACITY = 64;
+
+    // The bounds of the nodes.
+    private int[] x;
+    private int[] y;
+    private int[] w;
+    private int[] h;
+
+    // The area that is filled when {@link #fill(int)} is called on a node.
+    private int[] ux;
+    private int[] uy;
+    private int[] uw;
+    private int[] uh;
+
+    // The parent, left and lower neighbour of the nodes.
+    private int[] parent;
+    private int[] left;
+    private int[] down;
+
+    // The linked lists of children.
+    private int[] firstChild;
+    private int[] lastChild;
+    private int[] nextSibling;
+    private int[] prevSibling;
+    // Whether the node is in the child list of its parent.
+    private boolean[] attached;
+
+    // Whether the node is completely full.
+    private boolean[] full;
+
+    // The first filled area of the nodes.
+    private int[] filledHead;
+    // The filled areas. Only the first {@code numFilled} are in use.
+    private int[] fx;
+    private int[] fy;
+    private int[] fw;
+    private int[] fh;
+    private int[] fNext;
+    private int numFilled;
+
+    // The number of nodes in use. The root node has id 0.
+    private int numNodes;
+
+    // The stacks used by the traversals.
+    private int[] putStack = new int[INIT_CAPACITY];
+    private int[] checkStack = new int[5 * INIT_CAPACITY];
+    private int[] emptyStack = new int[INIT_CAPACITY];
+    private int[] cutStack = new int[INIT_CAPACITY];
+    // The nodes that should be filled after a successful check.
+    private int[] mod = new int[INIT_CAPACITY];
+    private int numMod;
+
+
+    /**-------------------------------------------------------------------------
+     * Constructor.
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * Constructs a new sheet with the given width and height.
+     *
+     * @param width the width of the sheet.
+     * @param height the height of the sheet.
+     */
+    public ArraySheet(int width, int height) {
+        x = new int[INIT_CAPACITY];
+        y = new int[INIT_CAPACITY];
+        w = new int[INIT_CAPACITY];
+        h = new int[INIT_CAPACITY];
+        ux = new int[INIT_CAPACITY];
+        uy = new int[INIT_CAPACITY];
+        uw = new int[INIT_CAPACITY];
+        uh = new int[INIT_CAPACITY];
+        parent = new int[INIT_CAPACITY];
+        left = new int[INIT_CAPACITY];
+        down = new int[INIT_CAPACITY];
+        firstChild = new int[INIT_CAPACITY];
+        lastChild = new int[INIT_CAPACITY];
+        nextSibling = new int[INIT_CAPACITY];
+        prevSibling = new int[INIT_CAPACITY];
+        attached = new boolean[INIT_CAPACITY];
+        full = new boolean[INIT_CAPACITY];
+        filledHead = new int[INIT_CAPACITY];
+
+        fx = new int[INIT_CAPACITY];
+        fy = new int[INIT_CAPACITY];
+        fw = new int[INIT_CAPACITY];
+        fh = new int[INIT_CAPACITY];
+        fNext = new int[INIT_CAPACITY];
+
+        newNode(0, 0, width, height, NONE, NONE, NONE);
+    }
+
+    /**
+     * Resets this sheet to an empty sheet of the given size.
+     *
+     * @param width the new width of the sheet.
+     * @param height the new height of the sheet.
+     * @return {@code true}.
+     */
+    @Override
+    public boolean reset(int width, int height) {
+        numNodes = 0;
+        numFilled = 0;
+        newNode(0, 0, width, height, NONE, NONE, NONE);
+        resetCutoff();
+        return true;
+    }
+
+
+    /**-------------------------------------------------------------------------
+     * Node functions.
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * Creates a new node without children and filled areas.
+     *
+     * @param nx the x-coordinate of the bounds of the node.
+     * @param ny the y-coordinate of the bounds of the node.
+     * @param nw the width of the bounds of the node.
+     * @param nh the height of the bounds of the node.
+     * @param p the parent of the node.
+     * @param l the node on the left of the node.
+     * @param d the node below the node.
+     * @return the id of the created node.
+     */
+    private int newNode(int nx, int ny, int nw, int nh, int p, int l, int d) {
+        if (numNodes == x.length) growNodes();
+
+        int node = numNodes++;
+        x[node] = nx;
+        y[node] = ny;
+        w[node] = nw;
+        h[node] = nh;
+        parent[node] = p;
+        left[node] = l;
+        down[node] = d;
+        firstChild[node] = NONE;
+        lastChild[node] = NONE;
+        nextSibling[node] = NONE;
+        prevSibling[node] = NONE;
+        attached[node] = false;
+        full[node] = false;
+        filledHead[node] = NONE;
+        return node;
+    }
+
+    /**
+     * Doubles the capacity of the node arrays.
+     */
+    private void growNodes() {
+        int cap = 2 * x.length;
+        x = Arrays.copyOf(x, cap);
+        y = Arrays.copyOf(y, cap);
+        w = Arrays.copyOf(w, cap);
+        h = Arrays.copyOf(h, cap);
+        ux = Arrays.copyOf(ux, cap);
+        uy = Arrays.copyOf(uy, cap);
+        uw = Arrays.copyOf(uw, cap);
+        uh = Arrays.copyOf(uh, cap);
+        parent = Arrays.copyOf(parent, cap);
+        left = Arrays.copyOf(left, cap);
+        down = Arrays.copyOf(down, cap);
+        firstChild = Arrays.copyOf(firstChild, cap);
+        lastChild = Arrays.copyOf(lastChild, cap);
+        nextSibling = Arrays.copyOf(nextSibling, cap);
+        prevSibling = Arrays.copyOf(prevSibling, cap);
+        attached = Arrays.copyOf(attached, cap);
+        full = Arrays.copyOf(full, cap);
+        filledHead = Arrays.copyOf(filledHead, cap);
+    }
+
+    /**
+     * Appends a child to the child list of its parent.
+     *
+     * @param node the parent node.
+     * @param child the child to append.
+     */
+    private void addChild(int node, int child) {
+        int last = lastChild[node];
+        prevSibling[child] = last;
+        nextSibling[child] = NONE;
+        if (last == NONE) firstChild[node] = child;
+        else nextSibling[last] = child;
+        lastChild[node] = child;
+        attached[child] = true;
+    }
+
+    /**
+     * Removes a child from the child list of a node.
+     *
+     * @param node the parent node.
+     * @param child the child to remove.
+     * @return whether the child was in the child list of the node.
+     */
+    private boolean removeChild(int node, int child) {
+        if (!attached[child] || parent[child] != node) return false;
+
+        int prev = prevSibling[child];
+        int next = nextSibling[child];
+        if (prev == NONE) firstChild[node] = next;
+        else nextSibling[prev] = next;
+        if (next == NONE) lastChild[node] = prev;
+        else prevSibling[next] = prev;
+        attached[child] = false;
+        return true;
+    }
+
+    /**
+     * Removes all children of a node.
+     *
+     * @param node the node to clear the children of.
+     */
+    private void clearChildren(int node) {
+        for (int c = firstChild[node]; c != NONE; c = nextSibling[c]) {
+            attached[c] = false;
+        }
+
+        firstChild[node] = NONE;
+        lastChild[node] = NONE;
+    }
+
+    /**
+     * Adds a filled area to a node, keeping the filled areas of the node
+     * ordered on x-coordinate.
+     *
+     * @param node the node to add the filled area to.
+     * @param ax the x-coordinate of the area.
+     * @param ay the y-coordinate of the area.
+     * @param aw the width of the area.
+     * @param ah the height of the area.
+     */
+    private void addFilled(int node, int ax, int ay, int aw, int ah) {
+        if (numFilled == fx.length) {
+            int cap = 2 * fx.length;
+            fx = Arrays.copyOf(fx, cap);
+            fy = Arrays.copyOf(fy, cap);
+            fw = Arrays.copyOf(fw, cap);
+            fh = Arrays.copyOf(fh, cap);
+            fNext = Arrays.copyOf(fNext, cap);
+        }
+
+        int f = numFilled++;
+        fx[f] = ax;
+        fy[f] = ay;
+        fw[f] = aw;
+        fh[f] = ah;
+
+        int prev = NONE;
+        int cur = filledHead[node];
+        while (cur != NONE && fx[cur] < ax) {
+            prev = cur;
+            cur = fNext[cur];
+        }
+
+        fNext[f] = cur;
+        if (prev == NONE) filledHead[node] = f;
+        else fNext[prev] = f;
+    }
+
+    /**
+     * @param node the node to check.
+     * @param rx the x-coordinate of the area.
+     * @param ry the y-coordinate of the area.
+     * @param rw the width of the area.
+     * @param rh the height of the area.
+     * @return whether the area overlaps a filled area of the node.
+     */
+    private boolean overlapsFilled(int node, int rx, int ry, int rw, int rh) {
+        int rx2 = rx + rw;
+        int ry2 = ry + rh;
+        for (int f = filledHead[node]; f != NONE; f = fNext[f]) {
+            // The filled areas are ordered on x-coordinate, so all
+            // remaining areas start right of the given area.
+            if (fx[f] >= rx2) return false;
+
+            if (fx[f] + fw[f] > rx && fy[f] < ry2 && fy[f] + fh[f] > ry) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @param node the root of the subtree to check.
+     * @return whether the node and all its descendants have no filled area.
+     */
+    private boolean isEmpty(int node) {
+        int size = 0;
+        emptyStack[size++] = node;
+        while (size > 0) {
+            int n = emptyStack[--size];
+            if (filledHead[n] != NONE) return false;
+
+            for (int c = firstChild[n]; c != NONE; c = nextSibling[c]) {
+                if (size == emptyStack.length) {
+                    emptyStack = Arrays.copyOf(emptyStack, 2 * size);
+                }
+                emptyStack[size++] = c;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**-------------------------------------------------------------------------
+     * Placement functions.
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * Tries the free sheets in order, and places the rectangle at the
+     * first location that is legal. See {@link Sheet#put(Rectangle)}.
+     *
+     * @param rec the rectangle to place. Its location is updated.
+     * @return whether a legal location was found. If so, the nodes that
+     *     should be filled are stored in {@code mod}.
+     */
+    private boolean put(Rectangle rec) {
+        int size = 0;
+        putStack[size++] = 0;
+        while (size > 0) {
+            int n = putStack[--size];
+            if (firstChild[n] == NONE) {
+                rec.setLocation(x[n], y[n]);
+                if (rec.x + rec.width <= x[0] + w[0]
+                        && rec.y + rec.height <= y[0] + h[0]
+                        && check(rec.x, rec.y, rec.width, rec.height)) {
+                    return true;
+                }
+
+            } else {
+                // Push the children in reverse order to visit them in order.
+                for (int c = lastChild[n]; c != NONE; c = prevSibling[c]) {
+                    if (size == putStack.length) {
+                        putStack = Arrays.copyOf(putStack, 2 * size);
+                    }
+                    putStack[size++] = c;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks whether the given area can be filled, starting at the root.
+     * See {@link Sheet#check(Rectangle)}.
+     *
+     * @param rx the x-coordinate of the area.
+     * @param ry the y-coordinate of the area.
+     * @param rw the width of the area.
+     * @param rh the height of the area.
+     * @return whether the area can be filled. If so, the nodes that should
+     *     be filled are stored in {@code mod}, and their update areas are set.
+     */
+    private boolean check(int rx, int ry, int rw, int rh) {
+        numMod = 0;
+        int size = 0;
+        pushCheck(size, 0, rx, ry, rw, rh);
+        size += 5;
+
+        while (size > 0) {
+            size -= 5;
+            int n = checkStack[size];
+            rx = checkStack[size + 1];
+            ry = checkStack[size + 2];
+            rw = checkStack[size + 3];
+            rh = checkStack[size + 4];
+
+            if (full[n]) return false;
+            if (overlapsFilled(n, rx, ry, rw, rh)) return false;
+
+            if (firstChild[n] == NONE) {
+                addMod(n, rx, ry, rw, rh);
+
+            } else if (rx == x[n] && ry == y[n] && rw == w[n] && rh == h[n]) {
+                if (!isEmpty(n)) return false;
+                addMod(n, rx, ry, rw, rh);
+
+            } else {
+                // Push the intersections in reverse order to visit
+                // the children in order.
+                for (int c = lastChild[n]; c != NONE; c = prevSibling[c]) {
+                    int ix = Math.max(rx, x[c]);
+                    int iy = Math.max(ry, y[c]);
+                    int iw = Math.min(rx + rw, x[c] + w[c]) - ix;
+                    int ih = Math.min(ry + rh, y[c] + h[c]) - iy;
+                    if (iw <= 0 || ih <= 0) continue;
+
+                    pushCheck(size, c, ix, iy, iw, ih);
+                    size += 5;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Pushes a node and an area on the check stack.
+     */
+    private void pushCheck(int size, int n, int rx, int ry, int rw, int rh) {
+        if (size + 5 > checkStack.length) {
+            checkStack = Arrays.copyOf(checkStack, 2 * checkStack.length);
+        }
+
+        checkStack[size] = n;
+        checkStack[size + 1] = rx;
+        checkStack[size + 2] = ry;
+        checkStack[size + 3] = rw;
+        checkStack[size + 4] = rh;
+    }
+
+    /**
+     * Adds a node to {@code mod} and sets its update area.
+     */
+    private void addMod(int n, int rx, int ry, int rw, int rh) {
+        if (numMod == mod.length) mod = Arrays.copyOf(mod, 2 * numMod);
+        mod[numMod++] = n;
+        ux[n] = rx;
+        uy[n] = ry;
+        uw[n] = rw;
+        uh[n] = rh;
+    }
+
+    /**
+     * Marks a child as full and removes it from its parent. Continues with
+     * the parent if it has no children left. See
+     * {@link Sheet#notifyFull(Sheet)}.
+     *
+     * @param node the parent of the full child.
+     * @param fullNode the full child.
+     */
+    private void notifyFull(int node, int fullNode) {
+        while (removeChild(node, fullNode)) {
+            full[fullNode] = true;
+            clearChildren(fullNode);
+            filledHead[fullNode] = NONE;
+
+            if (firstChild[node] != NONE) {
+                addFilled(node, x[fullNode], y[fullNode],
+                        w[fullNode], h[fullNode]);
+                return;
+            }
+
+            if (parent[node] == NONE) {
+                full[node] = true;
+                filledHead[node] = NONE;
+                return;
+            }
+
+            fullNode = node;
+            node = parent[node];
+        }
+    }
+
+    /**
+     * Notifies the parent of a node if the node has no children and its
+     * filled areas cover the node.
+     *
+     * @param node the node to check.
+     */
+    private void updateFull(int node) {
+        if (firstChild[node] != NONE) return;
+
+        long area = 0;
+        for (int f = filledHead[node]; f != NONE; f = fNext[f]) {
+            area += (long) fw[f] * fh[f];
+        }
+
+        if (area == (long) w[node] * h[node]) {
+            if (parent[node] == NONE) {
+                full[node] = true;
+                filledHead[node] = NONE;
+
+            } else {
+                notifyFull(parent[node], node);
+            }
+        }
+    }
+
+    /**
+     * Fills the update area of a node. See {@link Sheet#fill()}.
+     *
+     * @param n the node to fill.
+     * @throws IllegalStateException iff the update area does not start at
+     *     either the lower or the left edge of the node.
+     */
+    private void fill(int n) {
+        if (firstChild[n] != NONE) {
+            notifyFull(parent[n], n);
+            return;
+        }
+
+        int ax = ux[n];
+        int ay = uy[n];
+        int aw = uw[n];
+        int ah = uh[n];
+        boolean pX1 = ax == x[n];
+        boolean pY1 = ay == y[n];
+        boolean pX2 = ax + aw == x[n] + w[n];
+        boolean pY2 = ay + ah == y[n] + h[n];
+
+        if (!pX1 && !pY1) {
+            throw new IllegalStateException("The update rectangle does "
+                    + "not start at either the lower or the left edge "
+                    + "of the sheet!");
+        }
+
+        // Add the left sheet.
+        int leftNode = NONE;
+        if (!pX1) {
+            leftNode = newNode(x[n], y[n], ax - x[n], h[n],
+                    n, left[n], down[n]);
+            addChild(n, leftNode);
+        }
+
+        // Add the middle sheet(s).
+        if (leftNode == NONE) leftNode = left[n];
+        int middleNode = NONE;
+        if (!pY1 && !pY2) {
+            middleNode = newNode(ax, y[n], aw, h[n], n, leftNode, down[n]);
+            addChild(middleNode, newNode(ax, y[n], aw, ay - y[n],
+                    middleNode, leftNode, down[n]));
+            addChild(middleNode, newNode(ax, ay + ah, aw,
+                    (y[n] + h[n]) - (ay + ah), middleNode, leftNode, NONE));
+            addFilled(middleNode, ax, ay, aw, ah);
+            addChild(n, middleNode);
+
+        } else {
+            addFilled(n, ax, ay, aw, ah);
+            if (!pY2) {
+                middleNode = newNode(ax, ay + ah, aw,
+                        (y[n] + h[n]) - (ay + ah), n, leftNode, down[n]);
+                addChild(n, middleNode);
+
+            } else if (!pY1) {
+                middleNode = newNode(ax, y[n], aw, ay - y[n],
+                        n, leftNode, down[n]);
+                addChild(n, middleNode);
+            }
+        }
+
+        // Add the right sheet.
+        if (!pX2) {
+            addChild(n, newNode(ax + aw, y[n], (x[n] + w[n]) - (ax + aw),
+                    h[n], n, middleNode, down[n]));
+        }
+
+        updateFull(n);
+
+        if (left[n] != NONE) addCut(left[n], true, ax, ay + ah);
+        if (down[n] != NONE) addCut(down[n], false, ax + aw, ay);
+    }
+
+    /**
+     * Cuts the free sheets in the subtree of a node with a half-line,
+     * visiting the children from right to left and from top to bottom,
+     * until a full sheet is reached. See {@link Sheet#addCut(HalfLine)}.
+     *
+     * Note that {@link Sheet#addCut(HalfLine)} never lowers its bound on
+     * the first filled area, so the filled areas do not stop the cut and
+     * are not checked here either.
+     *
+     * @param node the node to start with.
+     * @param leftCut whether the line goes to the left instead of downwards.
+     * @param lx the x-coordinate of the start of the line.
+     * @param ly the y-coordinate of the start of the line.
+     */
+    private void addCut(int node, boolean leftCut, int lx, int ly) {
+        int size = 0;
+        cutStack[size++] = node;
+        while (size > 0) {
+            int n = cutStack[--size];
+            boolean intersects = (leftCut
+                    ? y[n] <= ly && ly <= y[n] + h[n] && lx >= x[n]
+                    : x[n] <= lx && lx <= x[n] + w[n] && ly >= y[n]);
+            if (!intersects) continue;
+            if (full[n]) return;
+
+            if (firstChild[n] != NONE) {
+                // Push the children in order to visit them in reverse order.
+                for (int c = firstChild[n]; c != NONE; c = nextSibling[c]) {
+                    if (size == cutStack.length) {
+                        cutStack = Arrays.copyOf(cutStack, 2 * size);
+                    }
+                    cutStack[size++] = c;
+                }
+
+            } else if (leftCut) {
+                if (ly == y[n] || ly == y[n] + h[n]) continue;
+
+                int lower = newNode(x[n], y[n], w[n], ly - y[n],
+                        n, left[n], down[n]);
+                addChild(n, lower);
+                addChild(n, newNode(x[n], ly, w[n], (y[n] + h[n]) - ly,
+                        n, left[n], lower));
+
+            } else {
+                if (lx == x[n] || lx == x[n] + w[n]) continue;
+
+                int leftNode = newNode(x[n], y[n], lx - x[n], h[n],
+                        n, left[n], down[n]);
+                addChild(n, leftNode);
+                addChild(n, newNode(lx, y[n], (x[n] + w[n]) - lx, h[n],
+                        n, leftNode, down[n]));
+            }
+        }
+    }
+
+    /**
+     * Tries to add the entry to the sheet.
+     *
+     * @param entry the entry that should be added. Its location is updated.
+     * @return whether the entry could be added.
+     */
+    public boolean add(CompareEntry entry) {
+        if (!put(entry.getRec())) return false;
+
+        for (int i = 0; i < numMod; i++) {
+            fill(mod[i]);
+        }
+
+        return true;
+    }
+
+    /**
+     * Packs the given rectangles in the given box.
+     *
+     * @param dataset the rectangles and the box data.
+     * @return the new locations of the rectangles within the box.
+     *     Returns {@code null} if no solution could be found.
+     */
+    @Override
+    public Dataset pack(Dataset dataset) {
+        packs.increment();
+        Object event = SearchTrace.beginPack();
+        // The size of the sheet, before the packing splits it.
+        int width = w[0];
+        int height = h[0];
+        Dataset result = packEntries(dataset);
+        SearchTrace.commitPack(event, this, dataset, width, height, result);
+        return result;
+    }
+
+    /**
+     * Packs the entries of the dataset.
+     *
+     * @param dataset the rectangles and the box data.
+     * @return the packed dataset, or {@code null} if no packing was found.
+     */
+    private Dataset packEntries(Dataset dataset) {
+        numPlaced = 0;
+        cutOff = false;
+
+        Dataset clone = dataset.clone();
+        clone.setSize(w[0], h[0]);
+
+        // The width used by the rectangles placed so far.
+        int usedWidth = 0;
+        for (CompareEntry entry : clone) {
+            if (!add(entry)) return null;
+            numPlaced++;
+
+            Rectangle rec = entry.getRec();
+            usedWidth = Math.max(usedWidth, rec.x + rec.width);
+            if (exceedsCutoff(usedWidth, h[0])) {
+                cutOff = true;
+                return null;
+            }
+        }
+        clone.setWidth(clone.getEffectiveWidth());
+        return clone;
+    }
+
+
+}
@@ -0,0 +1,11 @@
+
+package packing.packer;
+
+//##########
+
+public class ArraySheetPackerFactory extends PackerFactory {
+    @Override
+    public Packer create(int width, int height) {
+        return new ArraySheet(width, height);
+    }
+}
@@ -0,0 +1,598 @@
+
+package packing.packer;
+
+
+// Packing imports
+import packing.data.CompareEntry;
+import packing.data.Dataset;
+import packing.tools.SearchTrace;
+import packing.tools.ThreadMonitor;
+
+
+//##########
+// Java imports
+import java.awt.Rectangle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * Packer that divides the entries into groups, packs every group into its
+ * own horizontal band of the sheet in parallel, and stacks the bands.
+ * The groups are packed by the calling thread and at most
+ * {@code maxThreads - 1} helper threads. The helpers are started with
+ * {@link ThreadMonitor} in the group of the calling thread, such that
+ * they are stopped together with the generator that uses this packer.
+ *
+ * The groups are chosen by a {@link Partition}, and are packed by the
+ * packers of any other factory. The height of a band is proportional to
+ * the area of its group, such that the bands end up about equally wide.
+ * A final repair pass moves the entries that stick out of the widest band
+ * into the free space below the tops of the bands.
+ *
+ * Since the other packers scale superlinearly in the number of entries,
+ * packing the groups separately is also faster on a single core.
+ */
+class DecompositionPacker extends Packer {
+    // The factory of the packers of the groups.
+    final private PackerFactory factory;
+    // The rule for dividing the entries over the groups.
+    final private Partition partition;
+    // The number of entries per group.
+    final private int groupSize;
+    // The maximum number of threads that pack the groups.
+    final private int maxThreads;
+
+    // The size of the sheet.
+    private int width;
+    private int height;
+
+
+    /**-------------------------------------------------------------------------
+     * Skyline class
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * The top side of the entries of a band. The top of the columns
+     * {@code [xs[i], xs[i + 1])} is {@code tops[i]} above the bottom of the
+     * band, and the top right of {@code xs[xs.length - 1]} is 0.
+     */
+    private static class Skyline {
+        private int[] xs;
+        private int[] tops;
+
+        /**
+         * Determines the skyline of the entries. The entries are visited
+         * from the highest top downwards, and every column gets the top of
+         * the first entry covering it. A column is found in amortized
+         * constant time by skipping the columns that already have a top.
+         *
+         * @param entries the entries of the band.
+         * @param bandY the y-coordinate of the band.
+         */
+        private Skyline(List<CompareEntry> entries, int bandY) {
+            int n = entries.size();
+            int[] bounds = new int[2 * n + 1];
+            long[] order = new long[n];
+            for (int i = 0; i < n; i++) {
+                Rectangle rec = entries.get(i).getRec();
+                bounds[2*i] = rec.x;
+                bounds[2*i + 1] = rec.x + rec.width;
+                int top = rec.y + rec.height - bandY;
+                order[i] = ((long) (Integer.MAX_VALUE - top) << 32) | i;
+            }
+            Arrays.sort(order);
+            xs = unique(bounds);
+
+            int m = xs.length - 1;
+            tops = new int[m];
+            // The first column at or after a column without a top.
+            int[] next = new int[m + 1];
+            for (int i = 0; i <= m; i++) next[i] = i;
+
+            for (long o : order) {
+                Rectangle rec = entries.get((int) o).getRec();
+                int end = Arrays.binarySearch(xs, rec.x + rec.width);
+                int col = find(next, Arrays.binarySearch(xs, rec.x));
+                while (col < end) {
+                    tops[col] = rec.y + rec.height - bandY;
+                    next[col] = col + 1;
+                    col = find(next, col + 1);
+                }
+            }
+        }
+
+        private Skyline(Skyline skyline) {
+            this.xs = skyline.xs;
+            this.tops = skyline.tops;
+        }
+
+        /**
+         * @param x the x-coordinate.
+         * @return the index of the column containing {@code x}, which is
+         *     {@code tops.length} right of the skyline.
+         */
+        private int column(int x) {
+            int i = Arrays.binarySearch(xs, x);
+            if (i < 0) i = -i - 2;
+            return Math.min(Math.max(i, 0), tops.length);
+        }
+
+        /**
+         * @param col the index of the column.
+         * @return the top of the column.
+         */
+        private int top(int col) {
+            return (col < tops.length ? tops[col] : 0);
+        }
+
+        /**
+         * Finds the leftmost column at which an entry fits on top of the
+         * skyline below the top of the band.
+         *
+         * @param w the width of the entry.
+         * @param h the height of the entry.
+         * @param bandHeight the height of the band.
+         * @param limit the x-coordinate the entry must stay left of.
+         * @return the x-coordinate of the entry, or -1 if it does not fit.
+         */
+        private int fit(int w, int h, int bandHeight, int limit) {
+            for (int col = 0; col <= tops.length; col++) {
+                int x = xs[col];
+                if ((long) x + w > limit) return -1;
+
+                boolean fits = true;
+                for (int c = col; fits && c < tops.length && xs[c] < x + w;
+                        c++) {
+                    fits = (tops[c] + h <= bandHeight);
+                }
+                if (fits) return x;
+            }
+            return -1;
+        }
+
+        /**
+         * Places an entry on top of the skyline.
+         *
+         * @param x the x-coordinate of the entry.
+         * @param w the width of the entry.
+         * @param h the height of the entry.
+         * @return the y-coordinate of the entry in the band.
+         */
+        private int place(int x, int w, int h) {
+            int first = column(x);
+            int y = 0;
+            for (int c = first; c < tops.length && xs[c] < x + w; c++) {
+                y = Math.max(y, tops[c]);
+            }
+
+            // Replace the columns covered by the entry with a single column.
+            int[] bounds = Arrays.copyOf(xs, xs.length + 2);
+            bounds[xs.length] = x;
+            bounds[xs.length + 1] = x + w;
+            int[] newXs = unique(bounds);
+            int[] newTops = new int[newXs.length - 1];
+            for (int c = 0; c < newTops.length; c++) {
+                newTops[c] = (newXs[c] >= x && newXs[c] < x + w
+                        ? y + h
+                        : top(column(newXs[c])));
+            }
+            xs = newXs;
+            tops = newTops;
+            return y;
+        }
+    }
+
+
+    /**-------------------------------------------------------------------------
+     * Constructor
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * @param width the width of the sheet.
+     * @param height the height of the sheet.
+     * @param factory the factory of the packers of the groups.
+     * @param partition the rule for dividing the entries over the groups.
+     * @param groupSize the number of entries per group.
+     * @param maxThreads the maximum number of threads that pack the groups,
+     *     including the calling thread.
+     */
+    public DecompositionPacker(int width, int height, PackerFactory factory,
+            Partition partition, int groupSize, int maxThreads) {
+        this.factory = factory;
+        this.partition = partition;
+        this.groupSize = groupSize;
+        this.maxThreads = maxThreads;
+        reset(width, height);
+    }
+
+
+    /**-------------------------------------------------------------------------
+     * Functions
+     * -------------------------------------------------------------------------
+     */
+    @Override
+    public boolean reset(int width, int height) {
+        this.width = width;
+        this.height = height;
+        resetCutoff();
+        return true;
+    }
+
+    @Override
+    public Dataset pack(Dataset dataset) {
+        packs.increment();
+        Object event = SearchTrace.beginPack();
+        Dataset result = packEntries(dataset);
+        SearchTrace.commitPack(event, this, dataset, width, height, result);
+        return result;
+    }
+
+    /**
+     * Packs the entries of the dataset.
+     *
+     * @param dataset the rectangles and the box data.
+     * @return the packed dataset, or {@code null} if no packing was found.
+     */
+    private Dataset packEntries(Dataset dataset) {
+        numPlaced = 0;
+        cutOff = false;
+
+        int k = dataset.size() / groupSize;
+        Dataset[] groups = (k <= 1 ? null : partition(dataset, k));
+        int[] bandHeights = (groups == null ? null : bandHeights(groups));
+        if (bandHeights == null) {
+            // Pack the dataset as a whole.
+            groups = new Dataset[] {dataset};
+            bandHeights = new int[] {height};
+        }
+        k = groups.length;
+
+        // A band is at most as wide as the whole packing.
+        int bandCutoff = (int) Math.min(cutoffWidth,
+                (cutoffArea - 1) / height + 1);
+
+        // Pack the groups in parallel. Every thread takes the next group
+        // that is not yet being packed, and obtains its own packer.
+        Dataset[] bands = groups;
+        int[] heights = bandHeights;
+        int count = k;
+        Dataset[] packed = new Dataset[k];
+        int[] placed = new int[k];
+        boolean[] cut = new boolean[k];
+        AtomicInteger next = new AtomicInteger();
+        Runnable worker = () -> {
+            for (int i = next.getAndIncrement(); i < count;
+                    i = next.getAndIncrement()) {
+                Packer packer = factory.obtain(width, heights[i]);
+                packer.setCutoffWidth(bandCutoff);
+                packed[i] = packer.pack(bands[i]);
+                placed[i] = packer.getNumPlaced();
+                cut[i] = packer.wasCutOff();
+            }
+        };
+
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Thread[] helpers = new Thread[Math.min(maxThreads, k) - 1];
+        for (int t = 0; t < helpers.length; t++) {
+            // Is null if the threads of the group are being stopped.
+            helpers[t] = ThreadMonitor.startThread(() -> {
+                try {
+                    worker.run();
+
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+        }
+
+        try {
+            worker.run();
+            for (Thread helper : helpers) {
+                if (helper != null) helper.join();
+            }
+
+        } catch (InterruptedException e) {
+            // Let the helpers stop after their current group.
+            next.set(k);
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        if (failure.get() != null) throw failure.get();
+
+        for (int i = 0; i < k; i++) {
+            numPlaced += placed[i];
+            cutOff |= cut[i];
+        }
+        for (Dataset band : packed) {
+            if (band == null) return null;
+        }
+        if (k == 1) return packed[0];
+
+        return stitch(dataset, packed, bandHeights);
+    }
+
+    /**
+     * Divides the entries of the dataset into groups of about the same
+     * area. The order of the entries within a group is the order of the
+     * dataset.
+     *
+     * @param dataset the dataset to divide.
+     * @param k the number of groups.
+     * @return the groups.
+     */
+    private Dataset[] partition(Dataset dataset, int k) {
+        Dataset[] groups = new Dataset[k];
+        for (int i = 0; i < k; i++) {
+            groups[i] = Dataset.createEmptyDataset(dataset);
+        }
+
+        if (partition == Partition.BALANCED) {
+            long[] areas = new long[k];
+            for (CompareEntry entry : dataset) {
+                int min = 0;
+                for (int i = 1; i < k; i++) {
+                    if (areas[i] < areas[min]) min = i;
+                }
+                groups[min].add(entry);
+                areas[min] += entry.area();
+            }
+
+            return groups;
+        }
+
+        // Rank the entries on decreasing height, and cut the ranking
+        // into parts of equal area.
+        int n = dataset.size();
+        long[] ranking = new long[n];
+        long total = 0;
+        int i = 0;
+        for (CompareEntry entry : dataset) {
+            ranking[i] = ((long) (Integer.MAX_VALUE - entry.getRec().height)
+                    << 32) | i;
+            total += entry.area();
+            i++;
+        }
+        Arrays.sort(ranking);
+
+        int[] group = new int[n];
+        long sum = 0;
+        for (long rank : ranking) {
+            int index = (int) rank;
+            group[index] = (int) Math.min(k - 1, sum * k / total);
+            sum += dataset.get(index).area();
+        }
+
+        i = 0;
+        for (CompareEntry entry : dataset) {
+            groups[group[i++]].add(entry);
+        }
+
+        return groups;
+    }
+
+    /**
+     * Divides the height of the sheet over the bands proportional to the
+     * area of their groups. Every band is at least as high as the highest
+     * entry of its group.
+     *
+     * @param groups the groups.
+     * @return the heights of the bands, or {@code null} if the sheet is
+     *     not high enough for all bands.
+     */
+    private int[] bandHeights(Dataset[] groups) {
+        int k = groups.length;
+        long[] areas = new long[k];
+        int[] minHeights = new int[k];
+        long total = 0;
+        for (int i = 0; i < k; i++) {
+            for (CompareEntry entry : groups[i]) {
+                areas[i] += entry.area();
+                minHeights[i] = Math.max(minHeights[i],
+                        entry.getRec().height);
+            }
+            total += areas[i];
+        }
+
+        int[] heights = new int[k];
+        long sum = 0;
+        for (int i = 0; i < k; i++) {
+            heights[i] = (int) Math.max(minHeights[i],
+                    height * areas[i] / Math.max(1, total));
+            sum += heights[i];
+        }
+        if (sum > height) return null;
+
+        // Divide the rows that are left over the bands.
+        for (int i = 0; sum < height; i = (i + 1) % k) {
+            heights[i]++;
+            sum++;
+        }
+
+        return heights;
+    }
+
+    /**
+     * @param next the pointers to the next column without a top.
+     * @param col the column to start at.
+     * @return the first column at or after {@code col} without a top.
+     */
+    private static int find(int[] next, int col) {
+        while (next[col] != col) {
+            next[col] = next[next[col]];
+            col = next[col];
+        }
+        return col;
+    }
+
+    /**
+     * Sorts the values and removes the duplicates.
+     *
+     * @param values the values. Is modified.
+     * @return the distinct values in increasing order.
+     */
+    private static int[] unique(int[] values) {
+        Arrays.sort(values);
+        int size = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i == 0 || values[i] != values[i - 1]) {
+                values[size++] = values[i];
+            }
+        }
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Stacks the packed bands from bottom to top and repairs the result.
+     *
+     * @param dataset the dataset that was packed.
+     * @param packed the packings of the bands.
+     * @param bandHeights the heights of the bands.
+     * @return the packing of the dataset, or {@code null} if it does not
+     *     fit the sheet or was cut off.
+     */
+    private Dataset stitch(Dataset dataset, Dataset[] packed,
+            int[] bandHeights) {
+        int k = packed.length;
+        Dataset result = Dataset.createEmptyDataset(dataset);
+        List<List<CompareEntry>> members = new ArrayList<>(k);
+        int[] bandY = new int[k];
+        int y = 0;
+        for (int i = 0; i < k; i++) {
+            List<CompareEntry> band = new ArrayList<>(packed[i].size());
+            for (CompareEntry entry : packed[i]) {
+                Rectangle rec = entry.getRec();
+                CompareEntry added = result.add(entry);
+                added.setLocation(rec.x, rec.y + y);
+                band.add(added);
+            }
+            members.add(band);
+            bandY[i] = y;
+            y += bandHeights[i];
+        }
+
+        int usedWidth = repair(members, bandY, bandHeights,
+                dataset.allowRotation());
+        if (usedWidth > width) return null;
+        if (exceedsCutoff(usedWidth, height)) {
+            cutOff = true;
+            return null;
+        }
+
+        result.setSize(usedWidth, height);
+        return result;
+    }
+
+    /**
+     * Closes the gaps at the seams between the bands. The entries that
+     * stick out of the widest band beyond all other bands are moved into
+     * the free space below the top of the bands, e.g. above the columns
+     * that the packer of a band did not fill up. This is repeated for the
+     * next widest band until the entries of the widest band do not fit.
+     * If rotations are allowed, an entry that does not fit is also tried
+     * the other way around.
+     *
+     * @param members the entries of every band.
+     * @param bandY the y-coordinates of the bands.
+     * @param bandHeights the heights of the bands.
+     * @param rotation whether the moved entries may be rotated.
+     * @return the width of the repaired packing.
+     */
+    private static int repair(List<List<CompareEntry>> members, int[] bandY,
+            int[] bandHeights, boolean rotation) {
+        int k = members.size();
+        Skyline[] skylines = new Skyline[k];
+        int[] widths = new int[k];
+        for (int i = 0; i < k; i++) {
+            skylines[i] = new Skyline(members.get(i), bandY[i]);
+            for (CompareEntry entry : members.get(i)) {
+                Rectangle rec = entry.getRec();
+                widths[i] = Math.max(widths[i], rec.x + rec.width);
+            }
+        }
+
+        for (int round = 0; round < k; round++) {
+            int widest = 0;
+            for (int i = 1; i < k; i++) {
+                if (widths[i] > widths[widest]) widest = i;
+            }
+            int target = 0;
+            for (int i = 0; i < k; i++) {
+                if (i != widest) target = Math.max(target, widths[i]);
+            }
+            if (target == widths[widest]) break;
+
+            // The entries that stick out of the widest band, highest first.
+            List<CompareEntry> moved = new ArrayList<>();
+            List<CompareEntry> kept = new ArrayList<>();
+            int keptWidth = 0;
+            for (CompareEntry entry : members.get(widest)) {
+                Rectangle rec = entry.getRec();
+                if (rec.x + rec.width > target) {
+                    moved.add(entry);
+
+                } else {
+                    kept.add(entry);
+                    keptWidth = Math.max(keptWidth, rec.x + rec.width);
+                }
+            }
+            moved.sort(CompareEntry.SORT_HEIGHT);
+
+            // Try to place all entries left of the target width. The moved
+            // entries stay part of the skyline of the widest band, which
+            // only hides free space.
+            Skyline[] trial = new Skyline[k];
+            for (int i = 0; i < k; i++) {
+                trial[i] = new Skyline(skylines[i]);
+            }
+            int[] xs = new int[moved.size()];
+            int[] ys = new int[moved.size()];
+            int[] to = new int[moved.size()];
+            boolean fits = true;
+            boolean[] turned = new boolean[moved.size()];
+            for (int m = 0; m < moved.size() && fits; m++) {
+                Rectangle rec = moved.get(m).getRec();
+                fits = false;
+                for (int turn = 0; turn < (rotation ? 2 : 1) && !fits;
+                        turn++) {
+                    int w = (turn == 0 ? rec.width : rec.height);
+                    int h = (turn == 0 ? rec.height : rec.width);
+                    for (int i = 0; i < k && !fits; i++) {
+                        int x = trial[i].fit(w, h, bandHeights[i], target);
+                        if (x == -1) continue;
+                        xs[m] = x;
+                        ys[m] = bandY[i] + trial[i].place(x, w, h);
+                        to[m] = i;
+                        turned[m] = (turn == 1);
+                        fits = true;
+                    }
+                }
+            }
+            if (!fits) break;
+
+            skylines = trial;
+            members.set(widest, kept);
+            widths[widest] = keptWidth;
+            for (int m = 0; m < moved.size(); m++) {
+                CompareEntry entry = moved.get(m);
+                if (turned[m]) entry.rotate();
+                entry.setLocation(xs[m], ys[m]);
+                members.get(to[m]).add(entry);
+                widths[to[m]] = Math.max(widths[to[m]],
+                        xs[m] + entry.getRec().width);
+            }
+        }
+
+        int usedWidth = 0;
+        for (int w : widths) {
+            usedWidth = Math.max(usedWidth, w);
+        }
+        return usedWidth;
+    }
+
+}
@@ -0,0 +1,58 @@
+
+package packing.packer;
+
+//##########
+
+public class DecompositionPackerFactory extends PackerFactory {
+    // The default number of entries per group.
+    final public static int DEFAULT_GROUP_SIZE = 2500;
+
+    // The factory of the packers of the groups.
+    final private PackerFactory factory;
+    // The rule for dividing the entries over the groups.
+    final private Partition partition;
+    // The number of entries per group.
+    final private int groupSize;
+    // The maximum number of threads of a packer.
+    final private int maxThreads;
+
+    /**
+     * @param factory the factory of the packers of the groups.
+     * @param maxThreads the maximum number of threads of a packer,
+     *     including the thread that calls the packer.
+     */
+    public DecompositionPackerFactory(PackerFactory factory, int maxThreads) {
+        this(factory, Partition.BALANCED, DEFAULT_GROUP_SIZE, maxThreads);
+    }
+
+    /**
+     * @param factory the factory of the packers of the groups.
+     * @param partition the rule for dividing the entries over the groups.
+     * @param groupSize the number of entries per group. Datasets with
+     *     less than twice this number of entries are packed as a whole.
+     * @param maxThreads the maximum number of threads of a packer,
+     *     including the thread that calls the packer.
+     */
+    public DecompositionPackerFactory(PackerFactory factory,
+            Partition partition, int groupSize, int maxThreads) {
+        if (groupSize < 1) {
+            throw new IllegalArgumentException("Expected a positive group "
+                    + "size, but found " + groupSize + ".");
+        }
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException("Expected a positive number "
+                    + "of threads, but found " + maxThreads + ".");
+        }
+
+        this.factory = factory;
+        this.partition = partition;
+        this.groupSize = groupSize;
+        this.maxThreads = maxThreads;
+    }
+
+    @Override
+    public Packer create(int width, int height) {
+        return new DecompositionPacker(width, height, factory, partition,
+                groupSize, maxThreads);
+    }
+}
@@ -0,0 +1,21 @@
+
+package packing.packer;
+
+
+/**
+ * Rule for choosing the space in which the {@link GreedyPacker} places
+ * an entry when rotations are allowed. Both orientations of the entry are
+ * checked in a single pass over the free spaces, and the candidate with
+ * the lowest score is chosen. Ties are broken by the order of the spaces
+ * (on x-coordinate, then on y-coordinate), and by the current orientation
+ * before the rotated orientation.
+ */
+public enum FitRule {
+    // The first space in which either orientation fits.
+    FIRST_FIT,
+    // The space with the lowest y-coordinate.
+    LOWEST_Y,
+    // The space that leaves the smallest free side next to or
+    // above the entry.
+    LEAST_WASTE;
+}
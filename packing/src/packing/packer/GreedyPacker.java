@@ -5,6 +5,7 @@ package packing.packer;
 // Packing imports
 import packing.data.CompareEntry;
 import packing.data.Dataset;
+import packing.tools.SearchTrace;
 
 
 //##########
@@ -40,10 +41,23 @@ class GreedyPacker extends Packer {
         int verticalSpace;
 
         public Space(int x, int y, int width, int height, Space left, Space right, Space top, Space bottom, boolean isEmpty) {
+            init(x, y, width, height, left, right, top, bottom, isEmpty);
+        }
+
+        public Space(int x, int y, int width, int height) {
+            this(x, y, width, height, null, null, null, null, true);
+        }
+
+        /**
+         * (Re)initializes this space. Clears all previous state, such that
+         * spaces can be reused after the packer has been reset.
+         */
+        void init(int x, int y, int width, int height, Space left, Space right, Space top, Space bottom, boolean isEmpty) {
             this.x = x;
             this.y = y;
             this.width = width;
             this.height = height;
+            this.left = this.right = this.top = this.bottom = null;
             setLeft(left);
             setRight(right);
             setTop(top);
@@ -51,10 +65,8 @@ class GreedyPacker extends Packer {
             this.isEmpty = isEmpty;
             this.bottomRoot = (bottom == null) ? this : bottom.bottomRoot;
             this.leftRoot = (left == null) ? this : left.leftRoot;
-        }
-
-        public Space(int x, int y, int width, int height) {
-            this(x, y, width, height, null, null, null, null, true);
+            this.horizontalSpace = 0;
+            this.verticalSpace = 0;
         }
 
         public String toString() {
@@ -62,37 +74,31 @@ class GreedyPacker extends Packer {
         }
 
         /**
-         * Check if rectangle fits at bottom-left corner.
+         * Check if a rectangle of the given size fits at bottom-left corner.
          */
-        public boolean checkRectangle(Rectangle rect) {
+        public boolean checkRectangle(int recWidth, int recHeight) {
             if (!isEmpty) return false;
 
-            if (rect.width > horizontalSpace || rect.height > verticalSpace) return false;
+            if (recWidth > horizontalSpace || recHeight > verticalSpace) return false;
             
-            if (rect.width <= this.width && rect.height <= this.height) {
+            if (recWidth <= this.width && recHeight <= this.height) {
                 return true;
                 
-            } else if (rect.width <= this.width) {
+            } else if (recWidth <= this.width) {
                 return getTop() != null && getTop()
-                        .checkRectangle(new Rectangle(
-                                rect.width,
-                                rect.height - this.height));
+                        .checkRectangle(recWidth, recHeight - this.height);
                 
-            } else if (rect.height <= this.height) {
+            } else if (recHeight <= this.height) {
                 return getRight() != null && getRight()
-                        .checkRectangle(new Rectangle(
-                                rect.width - this.width,
-                                rect.height));
+                        .checkRectangle(recWidth - this.width, recHeight);
             } else {
                 // First split into left/right, then split remaining rectangle
                 // in top/bottom and check them.
                 return getRight() != null && getTop() != null
-                        && getRight().checkRectangle(new Rectangle(
-                                rect.width - this.width,
-                                rect.height))
-                        && getTop().checkRectangle(new Rectangle(
-                                width,
-                                rect.height - this.height));
+                        && getRight().checkRectangle(
+                                recWidth - this.width, recHeight)
+                        && getTop().checkRectangle(
+                                width, recHeight - this.height);
             }
         }
         
@@ -267,20 +273,76 @@ class GreedyPacker extends Packer {
 
     private int minHeightIncrease = Integer.MAX_VALUE;
 
+    // All spaces created by this packer. Only the first {@code numSpaces}
+    // are in use, the others are reused after a reset.
+    final private List<Space> spaces = new ArrayList<>();
+    private int numSpaces = 0;
+
+    // The entries of the dataset that is being packed.
+    final private List<CompareEntry> entries = new ArrayList<>();
+
+    // Buffers for adding to and removing from the queue.
+    final private List<Space> toAdd = new ArrayList<>();
+    final private List<Space> toRemove = new ArrayList<>();
+
+    // The rule for choosing between the orientations of an entry, or
+    // {@code null} to only rotate an entry if it doesn't fit otherwise.
+    final private FitRule fitRule;
+
     public GreedyPacker(int width, int height) {
+        this(width, height, null);
+    }
+
+    /**
+     * @param width the width of the sheet.
+     * @param height the height of the sheet.
+     * @param fitRule the rule for choosing between the orientations of an
+     *     entry when rotations are allowed, or {@code null} to only rotate
+     *     an entry if it doesn't fit otherwise.
+     */
+    public GreedyPacker(int width, int height, FitRule fitRule) {
+        this.fitRule = fitRule;
+        reset(width, height);
+    }
+
+    @Override
+    public boolean reset(int width, int height) {
         this.width = width;
         this.height = height;
-        this.root = new Space(0, 0, width, height);
+        this.numSpaces = 0;
+        this.queue.clear();
+        this.minHeightIncrease = Integer.MAX_VALUE;
+        resetCutoff();
+
+        this.root = newSpace(0, 0, width, height, null, null, null, null, true);
         this.root.setHorizontalSpace(width);
         this.root.setVerticalSpace(height);
         this.queue.add(this.root);
+        return true;
+    }
+
+    /**
+     * Creates a new space, reusing a space from before the last reset
+     * if available.
+     */
+    private Space newSpace(int x, int y, int width, int height, Space left, Space right, Space top, Space bottom, boolean isEmpty) {
+        Space space;
+        if (numSpaces < spaces.size()) {
+            space = spaces.get(numSpaces);
+            space.init(x, y, width, height, left, right, top, bottom, isEmpty);
+        } else {
+            space = new Space(x, y, width, height, left, right, top, bottom, isEmpty);
+            spaces.add(space);
+        }
+        numSpaces++;
+        return space;
     }
 
     private void splitRow(Space space, int offset) {
-        List<Space> toAdd = new ArrayList<>();
+        toAdd.clear();
         Space previous = null;
         for (space = space.leftRoot; space != null; space = space.getRight()) {
-            Space newSpace = new Space(
+            Space newSpace = newSpace(
                     space.x, space.y + offset, space.width, space.height - offset,
                     previous, null, space.top, space, space.isEmpty
             );
@@ -296,10 +358,10 @@ class GreedyPacker extends Packer {
     }
 
     private void splitColumn(Space space, int offset) {
-        List<Space> toAdd = new ArrayList<>();
+        toAdd.clear();
         Space previous = null;
         for (space = space.bottomRoot; space != null; space = space.getTop()) {
-            Space newSpace = new Space(
+            Space newSpace = newSpace(
                     space.x + offset, space.y, space.width - offset, space.height,
                     space, space.right, null, previous, space.isEmpty
             );
@@ -314,9 +376,9 @@ class GreedyPacker extends Packer {
         queue.addAll(toAdd);
     }
 
-    private void insertEntry(Rectangle rect, Space space) {
-        List<Space> toRemove = new ArrayList<>();
-        int x2 = space.x + rect.width, y2 = space.y + rect.height;
+    private void insertEntry(int recWidth, int recHeight, Space space) {
+        toRemove.clear();
+        int x2 = space.x + recWidth, y2 = space.y + recHeight;
         Space row, column;
         for (column = space; column != null && column.x < x2; column = column.right) {
             if (column.x + column.width > x2) {
@@ -331,34 +393,210 @@ class GreedyPacker extends Packer {
             }
         }
 
-        queue.removeAll(toRemove);
+        for (Space filled : toRemove) {
+            queue.remove(filled);
+        }
+    }
+
+    /**
+     * Finds the first space in which a rectangle of the given size fits.
+     * Also updates the minimal height increase.
+     *
+     * @return the first space that fits, or {@code null} if there is none.
+     */
+    private Space findSpace(int recWidth, int recHeight) {
+        for (Space space : queue) {
+            if (space.checkRectangle(recWidth, recHeight)) {
+                return space;
+            } else if (space.isEmpty && space.horizontalSpace >= recWidth && space.y + space.verticalSpace == height) {
+                minHeightIncrease = Math.min(minHeightIncrease, space.y + recHeight - height);
+            }
+        }
+        minHeightIncrease = Math.min(minHeightIncrease, recHeight);
+        return null;
     }
 
     private boolean fitEntry(CompareEntry entry) {
         Rectangle rect = entry.getRec();
+        Space space = findSpace(rect.width, rect.height);
+        if (space == null) return false;
+
+        entry.setLocation(space.getX(), space.getY());
+        insertEntry(rect.width, rect.height, space);
+        return true;
+    }
+
+    /**
+     * Fits an entry in either orientation, checking both orientations in
+     * a single pass over the spaces. The space and orientation are chosen
+     * by {@link #fitRule}. Rotates the entry if the rotated orientation is
+     * chosen. Also updates the minimal height increase.
+     *
+     * @return whether the entry could be placed.
+     */
+    private boolean fitEitherOrientation(CompareEntry entry) {
+        Rectangle rect = entry.getRec();
+        int numOrient = (rect.width == rect.height ? 1 : 2);
+
+        Space bestSpace = null;
+        boolean bestRotated = false;
+        long bestScore = Long.MAX_VALUE;
         for (Space space : queue) {
-            if (space.checkRectangle(rect)) {
-                entry.setLocation(space.getX(), space.getY());
-                insertEntry(rect, space);
-                return true;
-            } else if (space.isEmpty && space.horizontalSpace >= rect.width && space.y + space.verticalSpace == height) {
-                minHeightIncrease = Math.min(minHeightIncrease, space.y + rect.height - height);
+            for (int i = 0; i < numOrient; i++) {
+                int recWidth = (i == 0 ? rect.width : rect.height);
+                int recHeight = (i == 0 ? rect.height : rect.width);
+
+                if (space.checkRectangle(recWidth, recHeight)) {
+                    long score = score(space, recWidth, recHeight);
+                    if (score < bestScore) {
+                        bestSpace = space;
+                        bestRotated = (i == 1);
+                        bestScore = score;
+                    }
+
+                } else if (space.isEmpty && space.horizontalSpace >= recWidth && space.y + space.verticalSpace == height) {
+                    minHeightIncrease = Math.min(minHeightIncrease, space.y + recHeight - height);
+                }
             }
+
+            // No later candidate can have a lower score.
+            if (bestScore == 0) break;
+        }
+
+        if (bestSpace == null) {
+            minHeightIncrease = Math.min(minHeightIncrease,
+                    Math.min(rect.width, rect.height));
+            return false;
+        }
+
+        if (bestRotated) entry.rotate();
+        rect = entry.getRec();
+        entry.setLocation(bestSpace.getX(), bestSpace.getY());
+        insertEntry(rect.width, rect.height, bestSpace);
+        return true;
+    }
+
+    /**
+     * @param space the space in which the rectangle fits.
+     * @param recWidth the width of the rectangle.
+     * @param recHeight the height of the rectangle.
+     * @return the score of placing the rectangle in the space according
+     *     to {@link #fitRule}. Lower is better, and {@code 0} is optimal.
+     */
+    private long score(Space space, int recWidth, int recHeight) {
+        switch (fitRule) {
+            case LOWEST_Y:
+                return space.y;
+            case LEAST_WASTE:
+                return Math.min(space.horizontalSpace - recWidth,
+                        space.verticalSpace - recHeight);
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Places a run of equally sized entries as a single block. The block
+     * consists of the entries stacked on top of each other, which is also
+     * how they would be placed one by one. The space is split only once
+     * for the whole block.
+     *
+     * @param entries the entries to place.
+     * @param from the index of the first entry of the run.
+     * @param run the number of entries in the run.
+     * @return the number of entries that were placed. Returns {@code 0}
+     *     if not even the first entry fits.
+     */
+    private int fitRun(List<CompareEntry> entries, int from, int run) {
+        Rectangle rect = entries.get(from).getRec();
+        int recWidth = rect.width, recHeight = rect.height;
+        Space space = findSpace(recWidth, recHeight);
+        if (space == null) return 0;
+
+        // Binary search the number of entries that can be stacked.
+        // Note that a lower stack fits if a higher stack fits.
+        int lo = 1;
+        int hi = Math.min(run, space.verticalSpace / recHeight);
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (space.checkRectangle(recWidth, mid * recHeight)) lo = mid;
+            else hi = mid - 1;
+        }
+
+        for (int i = 0; i < lo; i++) {
+            entries.get(from + i).setLocation(space.x, space.y + i * recHeight);
         }
-        minHeightIncrease = Math.min(minHeightIncrease, rect.height);
-        return false;
+        insertEntry(recWidth, lo * recHeight, space);
+        return lo;
     }
 
     @Override
     public Dataset pack(Dataset dataset) {
+        packs.increment();
+        Object event = SearchTrace.beginPack();
+        Dataset result = packEntries(dataset);
+        SearchTrace.commitPack(event, this, dataset, width, height, result);
+        return result;
+    }
+
+    /**
+     * Packs the entries of the dataset.
+     *
+     * @param dataset the rectangles and the box data.
+     * @return the packed dataset, or {@code null} if no packing was found.
+     */
+    private Dataset packEntries(Dataset dataset) {
+        numPlaced = 0;
+        cutOff = false;
+
         Dataset clone = dataset.clone();
         clone.setSize(width, height);
+
+        entries.clear();
         for (CompareEntry entry : clone) {
-            if (!fitEntry(entry)) {
-                if (clone.allowRotation()) {
+            entries.add(entry);
+        }
+
+        // Whether the orientation of every entry is chosen by the fit rule.
+        // A run is always placed in its current orientation, so runs are
+        // then placed one by one.
+        boolean useRule = (fitRule != null && clone.allowRotation());
+
+        // The width used by the rectangles placed so far.
+        int usedWidth = 0;
+        for (int i = 0; i < entries.size(); ) {
+            CompareEntry entry = entries.get(i);
+            Rectangle rec = entry.getRec();
+
+            // Determine the number of consecutive entries of the same size.
+            int run = 1;
+            while (i + run < entries.size()
+                    && sameSize(entries.get(i + run).getRec(), rec)) {
+                run++;
+            }
+
+            int placed = (run > 1 && !useRule ? fitRun(entries, i, run) : 0);
+            if (placed == 0) {
+                if (useRule) {
+                    if (!fitEitherOrientation(entry)) return null;
+
+                } else if (!fitEntry(entry)) {
+                    if (!clone.allowRotation()) return null;
                     entry.rotate();
-                    if (fitEntry(entry)) continue;
+                    if (!fitEntry(entry)) return null;
                 }
+                placed = 1;
+            }
+
+            for (int j = i; j < i + placed; j++) {
+                Rectangle placedRec = entries.get(j).getRec();
+                usedWidth = Math.max(usedWidth, placedRec.x + placedRec.width);
+            }
+            numPlaced += placed;
+            i += placed;
+
+            if (exceedsCutoff(usedWidth, height)) {
+                cutOff = true;
                 return null;
             }
         }
@@ -366,6 +604,10 @@ class GreedyPacker extends Packer {
         return clone;
     }
 
+    private static boolean sameSize(Rectangle rec1, Rectangle rec2) {
+        return rec1.width == rec2.width && rec1.height == rec2.height;
+    }
+
     @Override
     public int getMinHeightIncrease() {
         return minHeightIncrease == Integer.MAX_VALUE ? 1 : minHeightIncrease;
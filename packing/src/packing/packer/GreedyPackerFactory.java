@@ -4,8 +4,25 @@ package packing.packer;
 //##########
 
 public class GreedyPackerFactory extends PackerFactory {
+    // The rule for choosing between the orientations of an entry, or
+    // {@code null} to only rotate an entry if it doesn't fit otherwise.
+    final private FitRule fitRule;
+
+    public GreedyPackerFactory() {
+        this(null);
+    }
+
+    /**
+     * @param fitRule the rule for choosing between the orientations of an
+     *     entry when rotations are allowed, or {@code null} to only rotate
+     *     an entry if it doesn't fit otherwise.
+     */
+    public GreedyPackerFactory(FitRule fitRule) {
+        this.fitRule = fitRule;
+    }
+
     @Override
     public Packer create(int width, int height) {
-        return new GreedyPacker(width, height);
+        return new GreedyPacker(width, height, fitRule);
     }
 }
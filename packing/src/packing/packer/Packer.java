@@ -4,13 +4,102 @@ package packing.packer;
 
 // Packing imports
 import packing.data.Dataset;
+import packing.tools.Metrics;
 
 //##########
 
 public abstract class Packer {
+    // The area that a packing must stay strictly below. Packers stop
+    // as soon as the partial solution can no longer beat it.
+    protected long cutoffArea = Long.MAX_VALUE;
+    // The width that a packing must stay strictly below.
+    protected int cutoffWidth = Integer.MAX_VALUE;
+
+    // The number of rectangles placed by the last call to pack.
+    protected int numPlaced = 0;
+    // Whether the last call to pack was stopped by the cutoff.
+    protected boolean cutOff = false;
+
+    // The number of calls to pack of all packers of this class.
+    final protected Metrics.Counter packs
+            = Metrics.counter(getClass().getSimpleName() + ".packs");
+
     abstract public Dataset pack(Dataset dataset);
 
     public int getMinHeightIncrease() {
         return 1;
     }
+
+    /**
+     * Resets the packer such that it can be used again to pack in a sheet
+     * of the given size. Also clears the cutoffs. Packers that do not
+     * support this return {@code false}, in which case a new packer
+     * should be created instead.
+     *
+     * @param width the width of the sheet.
+     * @param height the height of the sheet.
+     * @return whether the packer was reset.
+     */
+    public boolean reset(int width, int height) {
+        return false;
+    }
+
+    /**
+     * Clears the cutoffs and the statistics of the last packing.
+     */
+    protected void resetCutoff() {
+        cutoffArea = Long.MAX_VALUE;
+        cutoffWidth = Integer.MAX_VALUE;
+        numPlaced = 0;
+        cutOff = false;
+    }
+
+    /**
+     * Sets the cutoff area. A packing whose area would be at least
+     * this area is abandoned and {@code null} is returned instead.
+     *
+     * @param area the area the packing should beat.
+     */
+    public void setCutoffArea(long area) {
+        cutoffArea = area;
+    }
+
+    /**
+     * Sets the cutoff width. A packing whose width would be at least
+     * this width is abandoned and {@code null} is returned instead.
+     *
+     * @param width the width the packing should beat.
+     */
+    public void setCutoffWidth(int width) {
+        cutoffWidth = width;
+    }
+
+    /**
+     * @return the number of rectangles that were placed by the last call
+     *     to {@link #pack(Dataset)}, also when it failed or was cut off.
+     */
+    public int getNumPlaced() {
+        return numPlaced;
+    }
+
+    /**
+     * @return whether the last call to {@link #pack(Dataset)} was stopped
+     *     because it could no longer beat the cutoff.
+     */
+    public boolean wasCutOff() {
+        return cutOff;
+    }
+
+    /**
+     * Checks whether a (partial) packing with the given lower bounds on
+     * its width and height can no longer beat the cutoff.
+     *
+     * @param width lower bound on the width of the packing.
+     * @param height lower bound on the height of the packing.
+     * @return whether the packing should be abandoned.
+     */
+    protected boolean exceedsCutoff(int width, int height) {
+        return width >= cutoffWidth ||
+                (long) width * height >= cutoffArea;
+    }
 }
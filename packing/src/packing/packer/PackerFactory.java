@@ -4,5 +4,30 @@ package packing.packer;
 //##########
 
 public abstract class PackerFactory {
+    // The last packer created by each thread, which can be reused by
+    // that thread if it supports {@link Packer#reset(int, int)}.
+    final private ThreadLocal<Packer> pool = new ThreadLocal<>();
+
     public abstract Packer create(int width, int height);
+
+    /**
+     * Obtains a packer for the given sheet size. Reuses the packer that
+     * was previously obtained by the current thread if possible, and
+     * creates a new one otherwise.
+     * 
+     * Note that the returned packer should not be used anymore after
+     * the next call to this method from the same thread.
+     * 
+     * @param width the width of the sheet.
+     * @param height the height of the sheet.
+     * @return a packer for the given sheet size.
+     */
+    public Packer obtain(int width, int height) {
+        Packer packer = pool.get();
+        if (packer != null && packer.reset(width, height)) return packer;
+
+        packer = create(width, height);
+        pool.set(packer);
+        return packer;
+    }
 }
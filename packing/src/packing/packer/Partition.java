@@ -0,0 +1,16 @@
+
+package packing.packer;
+
+
+/**
+ * Rule for dividing the entries over the groups of the
+ * {@link DecompositionPacker}. Every group gets about the same total area.
+ */
+public enum Partition {
+    // Groups of entries with a similar height, such that the entries of
+    // a group stack well in their own strip.
+    HEIGHT_CLASSES,
+    // Every entry goes to the group with the least area so far, such that
+    // every group is a sample of the whole dataset.
+    BALANCED;
+}
@@ -6,6 +6,7 @@ package packing.packer;
 import packing.data.CompareEntry;
 import packing.data.Dataset;
 import packing.tools.Logger;
+import packing.tools.Logger.Type;
 
 
 //##########
@@ -68,7 +69,9 @@ public class PerfectPackingTransformer extends Packer {
             }
         }
 
-        Logger.write(String.format("Created %,d new rectangles", created));
+        if (Logger.isEnabled(Type.DEBUG)) {
+            Logger.write(String.format("Created %,d new rectangles", created));
+        }
 
 
         Dataset wrappedDataSet = wrappedPacker.pack(perfectDataSet);
@@ -11,6 +11,7 @@ import packing.data.PolishDataset;
 import packing.data.PolishDataset.Direction;
 import packing.data.PolishDataset.Operator;
 import packing.tools.MultiTool;
+import packing.tools.SearchTrace;
 
 
 //##########
@@ -34,6 +35,23 @@ public class PolishPacker
     
     @Override
     public PolishDataset pack(Dataset dataset) {
+        packs.increment();
+        Object event = SearchTrace.beginPack();
+        PolishDataset result = packEntries(dataset);
+        // The packing isn't bounded by a sheet, so record its own size.
+        SearchTrace.commitPack(event, this, dataset,
+                (result == null ? 0 : result.getWidth()),
+                (result == null ? 0 : result.getHeight()), result);
+        return result;
+    }
+    
+    /**
+     * Packs the entries of the dataset.
+     * 
+     * @param dataset the dataset to pack.
+     * @return the packed polish dataset.
+     */
+    private PolishDataset packEntries(Dataset dataset) {
         PolishDataset pd;
         MergedEntryDataset med;
         if (dataset instanceof PolishDataset) {
@@ -48,6 +66,14 @@ public class PolishPacker
         //System.err.println("Packing: " + pd.toShortString());
         //System.err.println("Dataset: " + dataset.toString());
         
+        numPlaced = 0;
+        cutOff = false;
+        
+        // Every merged entry ends up in the final bounding box, so their
+        // largest sides bound the size of the packing from below.
+        int minWidth = 0;
+        int minHeight = 0;
+        
         Iterator<CompareEntry> it = pd.fullListIterator();
         Stack<CompareEntry> entryStack = new Stack<>();
         while (it.hasNext()) {
@@ -76,11 +102,23 @@ public class PolishPacker
                 op.setArea(me.area());
                 op.setWastedArea(me.wastedArea());
                 
+                // Stop if the packing can no longer beat the cutoff.
+                Rectangle merged = me.getRec();
+                minWidth = Math.max(minWidth, merged.width);
+                minHeight = Math.max(minHeight, merged.height);
+                if (exceedsCutoff(minWidth, (pd.isFixedHeight()
+                        ? pd.getHeight()
+                        : minHeight))) {
+                    cutOff = true;
+                    return null;
+                }
+                
             } else {
                 // Push the element on the stack.
                 entryStack.push(entry);
                 // And reset their position.
                 entry.setLocation(0, 0);
+                numPlaced++;
             }
         }
         
@@ -5,6 +5,7 @@ package packing.packer;
 import packing.data.CompareEntry;
 import packing.data.Dataset;
 import packing.tools.Logger;
+import packing.tools.Logger.Type;
 
 
 //##########
@@ -25,7 +26,7 @@ public class RotatedPackingTransformer extends Packer {
 
     @Override
     public Dataset pack(Dataset dataset) {
-        Logger.write("Rotating bounding box...");
+        if (Logger.isEnabled(Type.DEBUG)) Logger.write("Rotating bounding box...");
         Dataset rotated = dataset.clone();
         rotated.setSize(dataset.getHeight(), dataset.getWidth());
 
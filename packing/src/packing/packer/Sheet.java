@@ -9,6 +9,7 @@ import packing.tools.FileLogger;
 import packing.tools.HalfLine;
 import packing.tools.Logger;
 import packing.tools.MultiTool;
+import packing.tools.SearchTrace;
 
 
 //##########
@@ -50,6 +51,12 @@ public class Sheet extends Packer {
     // The rectangle that should be filled when {@link fill()} is called.
     protected Rectangle update = null;
     
+    // All sheets that were created in the tree of this root sheet. Only
+    // the first {@code numSheets} are in use, the others are reused after
+    // a reset. Only used by the root sheet.
+    protected List<Sheet> sheets;
+    protected int numSheets;
+    
     
     /**-------------------------------------------------------------------------
      * Constructors.
@@ -110,6 +117,78 @@ public class Sheet extends Packer {
     }
     
     
+    /**
+     * Creates a new sheet in the tree of this root sheet. Reuses a sheet
+     * from before the last reset if available.
+     * 
+     * @param x the x-coordinate of the bounds of the sheet.
+     * @param y the y-coordinate of the bounds of the sheet.
+     * @param width the width of the bounds of the sheet.
+     * @param height the height of the bounds of the sheet.
+     * @param parent the parent sheet of the new sheet.
+     * @param left the sheet on the left of the new sheet.
+     * @param down the sheet below the new sheet.
+     * @return the created sheet.
+     */
+    protected Sheet newSheet(int x, int y, int width, int height,
+            Sheet parent, Sheet left, Sheet down) {
+        if (sheets == null) sheets = new ArrayList<Sheet>();
+        
+        Sheet sheet;
+        if (numSheets < sheets.size()) {
+            sheet = sheets.get(numSheets);
+            sheet.bounds.setBounds(x, y, width, height);
+            sheet.root = this;
+            sheet.parent = parent;
+            sheet.left = left;
+            sheet.down = down;
+            sheet.clear();
+            
+        } else {
+            sheet = new Sheet(new Rectangle(x, y, width, height),
+                    this, parent, left, down);
+            sheets.add(sheet);
+        }
+        
+        numSheets++;
+        return sheet;
+    }
+    
+    /**
+     * Clears the contents and the upper and right neighbours of this sheet.
+     */
+    private void clear() {
+        full = false;
+        children.clear();
+        filled.clear();
+        up = null;
+        right = null;
+        update = null;
+    }
+    
+    /**
+     * Resets this sheet to an empty sheet of the given size.
+     * Only the root sheet can be reset.
+     * 
+     * @param width the new width of the sheet.
+     * @param height the new height of the sheet.
+     * @return whether the sheet was reset.
+     */
+    @Override
+    public boolean reset(int width, int height) {
+        if (root != this) return false;
+        
+        bounds = new Rectangle(width, height);
+        parent = null;
+        left = null;
+        down = null;
+        clear();
+        numSheets = 0;
+        resetCutoff();
+        return true;
+    }
+    
+    
     /**-------------------------------------------------------------------------
      * Get/set functions.
      * -------------------------------------------------------------------------
@@ -419,16 +498,16 @@ public class Sheet extends Packer {
         if (!children.isEmpty()) return;
         
         // Calculate the area covered by the filled rectangles.
-        int area = 0;
+        long area = 0;
         for (Rectangle rec : filled) {
-            area += rec.width * rec.height;
+            area += (long) rec.width * rec.height;
         }
         
         /** Check if the area covered by the filled rectangles equals
             the total area. If so, notify the parent sheet.
             Note that this only works since overlapping rectangles
             will never occur. */
-        if (area == bounds.width * bounds.height) {
+        if (area == (long) bounds.width * bounds.height) {
             parent.notifyFull(this);
         }
     }
@@ -505,12 +584,12 @@ public class Sheet extends Packer {
      */
     private Sheet addLeftSheet(Sheet parent, Sheet leftSheet,
             Sheet lowerSheet) {
-        Sheet sheet = new Sheet(new Rectangle(
+        Sheet sheet = root.newSheet(
                 parent.bounds.x,
                 parent.bounds.y,
                 parent.update.x - bounds.x,
-                parent.bounds.height),
-            root, parent, leftSheet, lowerSheet);
+                parent.bounds.height,
+                parent, leftSheet, lowerSheet);
         
         parent.children.add(sheet);
         return sheet;
@@ -545,12 +624,12 @@ public class Sheet extends Packer {
         if (useUp && useDown) {
             // If both up and down should be added, an extra sheet must be added
             // to contain both parts.
-            Sheet middleSheet = new Sheet(new Rectangle(
+            Sheet middleSheet = root.newSheet(
                     parent.update.x,
                     parent.bounds.y,
                     parent.update.width,
-                    parent.bounds.height),
-                root, parent, leftSheet, getDown());
+                    parent.bounds.height,
+                    parent, leftSheet, getDown());
             middleSheet.update = parent.update;
 
             addLowerSheet(middleSheet, leftSheet, lowerSheet);
@@ -593,12 +672,12 @@ public class Sheet extends Packer {
      */
     private Sheet addLowerSheet(Sheet parent, Sheet leftSheet,
             Sheet lowerSheet) {
-        Sheet sheet = new Sheet(new Rectangle(
+        Sheet sheet = root.newSheet(
                 parent.update.x,
                 parent.bounds.y,
                 parent.update.width,
-                parent.update.y - parent.bounds.y),
-            root, parent, leftSheet, lowerSheet);
+                parent.update.y - parent.bounds.y,
+                parent, leftSheet, lowerSheet);
         
         parent.children.add(sheet);
         return sheet;
@@ -619,13 +698,13 @@ public class Sheet extends Packer {
      */
     private Sheet addUpperSheet(Sheet parent, Sheet leftSheet,
             Sheet lowerSheet) {
-        Sheet sheet = new Sheet(new Rectangle(
+        Sheet sheet = root.newSheet(
                 parent.update.x,
                 parent.update.y + parent.update.height,
                 parent.update.width,
                 (parent.bounds.y + parent.bounds.height)
-                        - (parent.update.y + parent.update.height)),
-            root, parent, leftSheet, lowerSheet);
+                        - (parent.update.y + parent.update.height),
+                parent, leftSheet, lowerSheet);
         
         parent.children.add(sheet);
         return sheet;
@@ -646,13 +725,13 @@ public class Sheet extends Packer {
      */
     private Sheet addRightSheet(Sheet parent, Sheet leftSheet,
             Sheet lowerSheet) {
-        Sheet sheet = new Sheet(new Rectangle(
+        Sheet sheet = root.newSheet(
                 parent.update.x + parent.update.width,
                 parent.bounds.y,
                 (parent.bounds.x + parent.bounds.width)
                         - (parent.update.x + parent.update.width),
-                parent.bounds.height),
-            root, parent, leftSheet, lowerSheet);
+                parent.bounds.height,
+                parent, leftSheet, lowerSheet);
         
         parent.children.add(sheet);
         return sheet;
@@ -791,9 +870,31 @@ public class Sheet extends Packer {
      */
     @Override
     public Dataset pack(Dataset dataset) {
+        packs.increment();
+        Object event = SearchTrace.beginPack();
+        // The size of the sheet, before the packing splits it.
+        int width = bounds.width;
+        int height = bounds.height;
+        Dataset result = packEntries(dataset);
+        SearchTrace.commitPack(event, this, dataset, width, height, result);
+        return result;
+    }
+    
+    /**
+     * Packs the entries of the dataset.
+     * 
+     * @param dataset the rectangles and the box data.
+     * @return the packed dataset, or {@code null} if no packing was found.
+     */
+    private Dataset packEntries(Dataset dataset) {
+        numPlaced = 0;
+        cutOff = false;
+
         Dataset clone = dataset.clone();
         clone.setSize(bounds.width, bounds.height);
-        
+
+        // The width used by the rectangles placed so far.
+        int usedWidth = 0;
         for (CompareEntry entry : clone) {
             if (!add(entry)) {
                 /*
@@ -803,6 +904,14 @@ public class Sheet extends Packer {
                 }*/
                 return null;
             }
+            numPlaced++;
+
+            Rectangle rec = entry.getRec();
+            usedWidth = Math.max(usedWidth, rec.x + rec.width);
+            if (exceedsCutoff(usedWidth, bounds.height)) {
+                cutOff = true;
+                return null;
+            }
         }
         clone.setWidth(clone.getEffectiveWidth());
         return clone;
@@ -0,0 +1,123 @@
+
+package packing.packer;
+
+
+// Packing imports
+import packing.data.CompareEntry;
+import packing.data.Dataset;
+import packing.tools.SearchTrace;
+
+
+//##########
+// Java imports
+import java.awt.Rectangle;
+
+
+/**
+ * Packer that stacks the entries in columns from left to right.
+ *
+ * Every entry is placed on top of the previous entry of the current column
+ * if it fits below the top of the sheet. Otherwise a new column is started
+ * right of the widest entry of the current column. If rotations are allowed,
+ * an entry is rotated if it only fits the current column in that way, or if
+ * it does not fit the sheet otherwise.
+ *
+ * The packing takes linear time and only a constant amount of memory besides
+ * the clone of the dataset, which makes it suitable for instances that are
+ * too large for the other packers. The columns waste little space if the
+ * entries are ordered on decreasing width.
+ */
+class ShelfPacker extends Packer {
+    // The size of the sheet.
+    private int width;
+    private int height;
+
+
+    /**-------------------------------------------------------------------------
+     * Constructor
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * @param width the width of the sheet.
+     * @param height the height of the sheet.
+     */
+    public ShelfPacker(int width, int height) {
+        reset(width, height);
+    }
+
+
+    /**-------------------------------------------------------------------------
+     * Functions
+     * -------------------------------------------------------------------------
+     */
+    @Override
+    public boolean reset(int width, int height) {
+        this.width = width;
+        this.height = height;
+        resetCutoff();
+        return true;
+    }
+
+    @Override
+    public Dataset pack(Dataset dataset) {
+        packs.increment();
+        Object event = SearchTrace.beginPack();
+        Dataset result = packEntries(dataset);
+        SearchTrace.commitPack(event, this, dataset, width, height, result);
+        return result;
+    }
+
+    /**
+     * Packs the entries of the dataset.
+     *
+     * @param dataset the rectangles and the box data.
+     * @return the packed dataset, or {@code null} if no packing was found.
+     */
+    private Dataset packEntries(Dataset dataset) {
+        numPlaced = 0;
+        cutOff = false;
+
+        Dataset clone = dataset.clone();
+        clone.setSize(width, height);
+        boolean rotation = clone.allowRotation();
+
+        // The left side and the width of the current column, and the
+        // height of the entries in it.
+        int x = 0;
+        int colWidth = 0;
+        int y = 0;
+        for (CompareEntry entry : clone) {
+            Rectangle rec = entry.getRec();
+            if (rotation && (rec.height > height ||
+                    (y + rec.height > height && y + rec.width <= height
+                            && rec.height <= colWidth))) {
+                entry.rotate();
+                rec = entry.getRec();
+            }
+            if (rec.height > height) return null;
+
+            if (y + rec.height > height) {
+                x += colWidth;
+                colWidth = 0;
+                y = 0;
+            }
+
+            if ((long) x + rec.width > width) return null;
+            entry.setLocation(x, y);
+            y += rec.height;
+            numPlaced++;
+
+            if (rec.width > colWidth) {
+                colWidth = rec.width;
+                if (exceedsCutoff(x + colWidth, height)) {
+                    cutOff = true;
+                    return null;
+                }
+            }
+        }
+
+        clone.setWidth(x + colWidth);
+        return clone;
+    }
+
+}
@@ -0,0 +1,11 @@
+
+package packing.packer;
+
+//##########
+
+public class ShelfPackerFactory extends PackerFactory {
+    @Override
+    public Packer create(int width, int height) {
+        return new ShelfPacker(width, height);
+    }
+}
@@ -6,6 +6,9 @@ package packing.packer;
 import packing.data.CompareEntry;
 import packing.data.Dataset;
 import packing.tools.Logger;
+import packing.tools.Logger.Type;
+import packing.tools.Metrics;
+import packing.tools.SearchTrace;
 
 
 //##########
@@ -27,6 +30,16 @@ import java.util.Stack;
  * Used in the absolute placement approach.
  */
 public class XCoordinatePacker extends Packer {
+    // The statistics of all X-packers.
+    final private static Metrics.Counter NODES
+            = Metrics.counter("XCoordinatePacker.nodes");
+    final private static Metrics.Counter PRUNED
+            = Metrics.counter("XCoordinatePacker.pruned");
+    final private static Metrics.Counter PLACES
+            = Metrics.counter("XCoordinatePacker.places");
+    final private static Metrics.Counter Y_TIME
+            = Metrics.counter("XCoordinatePacker.yTimeMs");
+
     private Packer yPacker;
 
     public long recursions = 0;
@@ -40,9 +53,9 @@ public class XCoordinatePacker extends Packer {
     // The empty space in each column.
     private int[] columns;
     // Histogram of empty space, such that emptySpace[i] is the number of empty cells in empty columns of height i.
-    private int[] emptySpace;
+    private long[] emptySpace;
     // The sum of areas of rectangles, grouped by height.
-    private int[] rectangleAreaByHeight;
+    private long[] rectangleAreaByHeight;
 
     private boolean allowRotation;
 
@@ -85,20 +98,41 @@ public class XCoordinatePacker extends Packer {
         Arrays.fill(columns, dataset.getHeight());
 
         // Histogram of number of empty cells in empty columns of height i.
-        emptySpace = new int[dataset.getHeight() + 1];
+        emptySpace = new long[dataset.getHeight() + 1];
         emptySpace[dataset.getHeight()] = dataset.getArea();
 
-        rectangleAreaByHeight = new int[dataset.getHeight() + 1];
+        rectangleAreaByHeight = new long[dataset.getHeight() + 1];
         for (CompareEntry entry : entries) {
             Rectangle rec = entry.getRec();
             int side = allowRotation ? Math.min(rec.width, rec.height) : rec.height;
-            rectangleAreaByHeight[side] += rec.width * rec.height;
+            rectangleAreaByHeight[side] += (long) rec.width * rec.height;
         }
 
-        solution = backtrack(entries, solution);
+        packs.increment();
+        Object event = SearchTrace.beginPack();
+        long prevRecursions = recursions;
+        long prevPruned = pruned;
+        long prevPlaces = places;
+        long prevYTime = yTime;
+        try {
+            solution = backtrack(entries, solution);
+
+        } finally {
+            // Publish the statistics once per call to keep the
+            // backtracking free of shared writes.
+            NODES.add(recursions - prevRecursions);
+            PRUNED.add(pruned - prevPruned);
+            PLACES.add(places - prevPlaces);
+            Y_TIME.add(yTime - prevYTime);
+        }
+        // The dataset holds the size of the bounding box to fill.
+        SearchTrace.commitPack(event, this, dataset, dataset.getWidth(),
+                dataset.getHeight(), solution);
 
-        Logger.write(String.format("X-packer: %,d recursions, %,d branches pruned, %,d places", recursions, pruned, places));
-        Logger.write(String.format("Y-packer: %,d calls, %,d ms", yNumCalls, yTime));
+        if (Logger.isEnabled(Type.DEBUG)) {
+            Logger.write(String.format("X-packer: %,d recursions, %,d branches pruned, %,d places", recursions, pruned, places));
+            Logger.write(String.format("Y-packer: %,d calls, %,d ms", yNumCalls, yTime));
+        }
         return solution;
     }
 
@@ -159,7 +193,7 @@ public class XCoordinatePacker extends Packer {
      */
     private void placeRectangle(Rectangle rec) {
         int side = allowRotation ? Math.min(rec.width, rec.height) : rec.height;
-        rectangleAreaByHeight[side] -= rec.width * rec.height;
+        rectangleAreaByHeight[side] -= (long) rec.width * rec.height;
 
         for (int i = rec.x; i < rec.x + rec.width; i++) {
             emptySpace[columns[i]] -= columns[i];
@@ -176,7 +210,7 @@ public class XCoordinatePacker extends Packer {
      */
     private void removeRectangle(Rectangle rec) {
         int side = allowRotation ? Math.min(rec.width, rec.height) : rec.height;
-        rectangleAreaByHeight[side] += rec.width * rec.height;
+        rectangleAreaByHeight[side] += (long) rec.width * rec.height;
 
         for (int i = rec.x; i < rec.x + rec.width; i++) {
             emptySpace[columns[i]] -= columns[i];
@@ -197,8 +231,8 @@ public class XCoordinatePacker extends Packer {
      */
     private boolean pruneWastedSpace(Dataset solution) {
         int height = solution.getHeight();
-        int rectangles = 0;
-        int free = 0;
+        long rectangles = 0;
+        long free = 0;
 
         for (int i = height; i >= 0; i--) {
             rectangles += rectangleAreaByHeight[i];
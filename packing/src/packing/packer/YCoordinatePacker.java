@@ -6,6 +6,7 @@ package packing.packer;
 import packing.data.CompareEntry;
 import packing.data.Dataset;
 import packing.tools.Logger;
+import packing.tools.Metrics;
 
 
 //##########
@@ -22,6 +23,10 @@ import java.util.*;
  * Used in the absolute placement approach.
  */
 public class YCoordinatePacker extends Packer {
+    // The number of recursions of all Y-packers.
+    final private static Metrics.Counter NODES
+            = Metrics.counter("YCoordinatePacker.nodes");
+
     public long recursions = 0;
     public long numCalls = 0;
 
@@ -39,6 +44,7 @@ public class YCoordinatePacker extends Packer {
         X-coordinate.
          */
         numCalls++;
+        packs.increment();
         corners = new ArrayDeque<>();
         corners.add(new Point(0,0));
 
@@ -73,7 +79,13 @@ public class YCoordinatePacker extends Packer {
         // cells[x][y] is true if (x, y) is filled by some rectangle
         cells = new boolean[dataset.getWidth()][dataset.getHeight()];
 
-        solution =  backtrack(entryLists, solution);
+        long prevRecursions = recursions;
+        try {
+            solution = backtrack(entryLists, solution);
+
+        } finally {
+            NODES.add(recursions - prevRecursions);
+        }
         //Logger.write(String.format("Y-packer: %,d recursions", recursions));
         return solution;
     }
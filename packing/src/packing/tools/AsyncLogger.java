@@ -0,0 +1,199 @@
+
+package packing.tools;
+
+
+//##########
+// Java imports
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/*
+ * Logger that hands the log actions to a background thread, which
+ * performs them on another logger.
+ *
+ * The log actions are kept in a bounded ring buffer. When the buffer is
+ * full, new log actions are dropped instead of blocking the caller, and
+ * the number of dropped actions is logged later on. Exceptions are never
+ * dropped; logging them waits for space in the buffer instead.
+ * The background thread performs the log actions in batches, and only
+ * flushes the other logger after every batch.
+ */
+public class AsyncLogger extends Logger {
+    // The default capacity of the buffer.
+    final public static int DEFAULT_CAPACITY = 4096;
+    // The maximum number of log actions per batch.
+    final private static int MAX_BATCH = 256;
+
+    // The logger that performs the log actions.
+    final private Logger target;
+    // The buffer with the pending log actions.
+    final private BlockingQueue<Runnable> buffer;
+    // The number of log actions dropped since the last batch.
+    final private AtomicLong dropped = new AtomicLong();
+    // The background thread.
+    final private Thread writer;
+    // Whether the logger has been closed.
+    private volatile boolean closed = false;
+
+
+    /* -------------------------------------------------------------------------
+     * Constructor
+     * -------------------------------------------------------------------------
+     */
+    /*
+     * @param target the logger that performs the log actions.
+     * @param capacity the capacity of the buffer.
+     */
+    public AsyncLogger(Logger target) {
+        this(target, DEFAULT_CAPACITY);
+    }
+
+    public AsyncLogger(Logger target, int capacity) {
+        this.target = target;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        target.autoFlush = false;
+
+        writer = new Thread(this::processBatches, "Async-Log-Thread");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+
+    /* -------------------------------------------------------------------------
+     * Functions
+     * -------------------------------------------------------------------------
+     */
+    /*
+     * Adds a log action to the buffer, or drops it if the buffer is full.
+     *
+     * @param action the log action.
+     */
+    private void submit(Runnable action) {
+        if (closed || !buffer.offer(action)) dropped.incrementAndGet();
+    }
+
+    /*
+     * Adds a log action to the buffer, and waits for space if the buffer
+     * is full. Performs the log action directly if the logger is closed.
+     *
+     * @param action the log action.
+     */
+    private void submitAndWait(Runnable action) {
+        try {
+            while (!closed) {
+                if (buffer.offer(action, 10, TimeUnit.MILLISECONDS)) return;
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized(target) {
+            action.run();
+        }
+    }
+
+    /*
+     * Performs the log actions until the logger is closed, after which
+     * the remaining log actions are performed.
+     */
+    private void processBatches() {
+        List<Runnable> batch = new ArrayList<>(MAX_BATCH);
+        while (!closed || !buffer.isEmpty()) {
+            try {
+                Runnable first = buffer.take();
+                batch.add(first);
+
+            } catch (InterruptedException e) {
+                // Closed, so perform the remaining log actions.
+            }
+
+            buffer.drainTo(batch, MAX_BATCH - batch.size());
+            synchronized(target) {
+                writeDropped();
+                for (Runnable action : batch) {
+                    action.run();
+                }
+                target.flush();
+            }
+            batch.clear();
+        }
+
+        synchronized(target) {
+            writeDropped();
+            target.flush();
+        }
+    }
+
+    /*
+     * Logs the number of dropped log actions since the previous call,
+     * if any.
+     */
+    private void writeDropped() {
+        long numDropped = dropped.getAndSet(0);
+        if (numDropped > 0) {
+            target.writeO("Dropped " + numDropped + " log messages",
+                    Type.WARNING, new Date());
+        }
+    }
+
+    @Override
+    protected void writeE(Exception e, Type type, Date timeStamp) {
+        submitAndWait(() -> target.writeE(e, type, timeStamp));
+    }
+
+    @Override
+    protected void writeO(Object obj, Type type, Date timeStamp) {
+        // Convert the object now, since it might change later on.
+        String text = String.valueOf(obj);
+        submit(() -> target.writeO(text, type, timeStamp));
+    }
+
+    @Override
+    protected void writeOA(Object[] objArr, Type type, Date timeStamp) {
+        Object[] copy = (objArr == null ? null : new Object[objArr.length]);
+        for (int i = 0; copy != null && i < copy.length; i++) {
+            copy[i] = (objArr[i] instanceof Exception
+                    ? objArr[i]
+                    : String.valueOf(objArr[i]));
+        }
+
+        submit(() -> target.writeOA(copy, type, timeStamp));
+    }
+
+    /*
+     * Performs the pending log actions and closes the other logger.
+     */
+    @Override
+    protected void close() {
+        if (closed) return;
+        closed = true;
+        writer.interrupt();
+
+        try {
+            writer.join();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized(target) {
+            target.close();
+        }
+    }
+
+    /*
+     * Flushes the other logger after the pending log actions.
+     */
+    @Override
+    protected void flush() {
+        submit(target::flush);
+    }
+
+}
@@ -66,7 +66,7 @@ public abstract class DefaultLogger extends Logger {
                     processText(text[i], Type.NONE, timeStamp, false);
                 }
                 
-                flush();
+                if (autoFlush) flush();
                 
             } finally {
                 if (lock != null) lock.unlock();
@@ -78,7 +78,7 @@ public abstract class DefaultLogger extends Logger {
             if (lock != null) lock.lock();
             try {
                 processText(message, Type.ERROR, timeStamp, useTimeStamp);
-                flush();
+                if (autoFlush) flush();
                 
             } finally {
                 if (lock != null) lock.unlock();
@@ -91,7 +91,7 @@ public abstract class DefaultLogger extends Logger {
         if (lock != null) lock.lock();
         try {
             processText(obj.toString(), type, timeStamp, useTimeStamp);
-            flush();
+            if (autoFlush) flush();
             
         } finally {
             if (lock != null) lock.unlock();
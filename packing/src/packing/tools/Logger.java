@@ -55,13 +55,27 @@ public abstract class Logger {
     // The date format used for logging
     protected static DateFormat dateFormat = DEFAULT_DATE_FORMAT;
     
+    // The lowest severity that is logged.
+    private static volatile Type level = Type.DEBUG;
+    
     /* Non-static variables */
     // The lock of the writer.
     protected Lock lock;
     
+    // Whether the writer is flushed after every log action.
+    protected boolean autoFlush = true;
+    
     // Enum denoting the severity type of a log action.
     public enum Type {
-        NONE, INFO, WARNING, ERROR, DEBUG;
+        NONE(1), INFO(1), WARNING(2), ERROR(3), DEBUG(0);
+        
+        // The severity of the type. Higher is more severe.
+        final private int severity;
+        
+        private Type(int severity) {
+            this.severity = severity;
+        }
+        
     }
     
     
@@ -144,7 +158,7 @@ public abstract class Logger {
     
     protected void writeOA(Object[] objArr, Type type,
                                     Date timeStamp) {
-        if (defLog.lock != null) defLog.lock.lock();
+        if (lock != null) lock.lock();
         try {
             if (objArr == null) {
                 writeO("null", timeStamp);
@@ -155,16 +169,16 @@ public abstract class Logger {
                         writeO("null", type, timeStamp);
                         
                     } else if (obj instanceof Exception) {
-                        defLog.writeE((Exception) obj, type, timeStamp);
+                        writeE((Exception) obj, type, timeStamp);
                         
                     } else {
-                        defLog.writeO(obj, type, timeStamp);
+                        writeO(obj, type, timeStamp);
                     }
                 }
             }
             
         } finally {
-            if (defLog.lock != null) defLog.lock.unlock();
+            if (lock != null) lock.unlock();
         }
     }
     
@@ -189,7 +203,7 @@ public abstract class Logger {
      * See {@link writeE(Exception, Date)}.
      */
     public static void write(Exception e) {
-        checkDef();
+        if (!isEnabled(Type.ERROR)) return;
         defLog.writeE(e, new Date());
     }
     
@@ -199,7 +213,7 @@ public abstract class Logger {
      * See {@link writeE(Exception, Type, Date)}.
      */
     public static void write(Exception e, Type type) {
-        checkDef();
+        if (!isEnabled(type)) return;
         defLog.writeE(e, checkType(type), new Date());
     }
     
@@ -209,7 +223,7 @@ public abstract class Logger {
      * See {@link writeO(Object, Date)}.
      */
     public static void write(Object obj) {
-        checkDef();
+        if (!isEnabled(Type.DEBUG)) return;
         defLog.writeO(obj, new Date());
     }
     
@@ -219,7 +233,7 @@ public abstract class Logger {
      * See {@link writeO(Object, Type, Date)}.
      */
     public static void write(Object obj, Type type) {
-        checkDef();
+        if (!isEnabled(type)) return;
         defLog.writeO(obj, checkType(type), new Date());
     }
     
@@ -233,7 +247,7 @@ public abstract class Logger {
      * See {@link writeOA(Object[], Date)}
      */
     public static void write(Object[] objArr) {
-        checkDef();
+        if (!isEnabled(Type.DEBUG)) return;
         defLog.writeOA(objArr, new Date());
     }
     
@@ -246,10 +260,35 @@ public abstract class Logger {
      * See {@link writeOA(Object[], Type, Date)}.
      */
     public static void write(Object[] objArr, Type type) {
-        checkDef();
+        if (!isEnabled(type)) return;
         defLog.writeOA(objArr, checkType(type), new Date());
     }
     
+    /* 
+     * Checks whether messages of the given type are logged. Use this
+     * to skip the construction of expensive messages, e.g.
+     * {@code if (Logger.isEnabled(Type.DEBUG)) Logger.write(...)}.
+     * 
+     * @param type the severity type of the message.
+     * @return whether a default logger is set that doesn't ignore all
+     *     messages, and the type is at least as severe as the log level.
+     */
+    public static boolean isEnabled(Type type) {
+        Logger log = defLog;
+        return log != null && !(log instanceof NullLog)
+                && checkType(type).severity >= level.severity;
+    }
+    
+    /* 
+     * Sets the lowest severity that is logged.
+     * Use {@code Type.DEBUG} to log everything.
+     * 
+     * @param type the lowest logged severity.
+     */
+    public static void setLevel(Type type) {
+        level = checkType(type);
+    }
+    
     /* 
      * Closes the log file and releases system resources.
      * Note that no default log is created here if none existed yet.
@@ -0,0 +1,347 @@
+
+package packing.tools;
+
+
+//##########
+// Java imports
+import java.io.PrintStream;
+
+import java.lang.management.ManagementFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+
+/**
+ * Registry of the counters, histograms and series of the search engine.
+ *
+ * The counters and histograms are striped, such that they can be updated
+ * from many threads without contention. The metrics are named
+ * {@code <class>.<metric>}, e.g. {@code GreedyPacker.packs}, and are
+ * created on first use.
+ *
+ * The metrics can be exported as a JMX MBean (see {@link #registerMBean()})
+ * and periodically dumped in text form (see {@link #startDump}), in which
+ * case the rate per second of every counter is shown as well.
+ */
+public class Metrics {
+    // The name of the MBean.
+    final public static String MBEAN_NAME = "packing:type=Metrics";
+
+    // The registered metrics.
+    final private static ConcurrentMap<String, Counter> counters
+            = new ConcurrentHashMap<>();
+    final private static ConcurrentMap<String, Histogram> histograms
+            = new ConcurrentHashMap<>();
+    final private static ConcurrentMap<String, Series> series
+            = new ConcurrentHashMap<>();
+
+    // The values of the counters at the previous dump.
+    final private static Map<String, Long> prevValues = new HashMap<>();
+    // The time of the previous dump.
+    private static long prevDump = System.currentTimeMillis();
+
+
+    /**-------------------------------------------------------------------------
+     * Metric classes
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * Monotonically increasing counter.
+     */
+    public static class Counter {
+        final private LongAdder value = new LongAdder();
+
+        private Counter() { }
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long delta) {
+            value.add(delta);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+
+    }
+
+
+    /**
+     * Histogram of non-negative values with power of two buckets.
+     */
+    public static class Histogram {
+        // The number of buckets. Bucket i holds the values in [2^(i-1), 2^i).
+        final private static int NUM_BUCKETS = 64;
+
+        final private LongAdder[] buckets = new LongAdder[NUM_BUCKETS];
+        final private LongAdder count = new LongAdder();
+        final private LongAdder sum = new LongAdder();
+        final private LongAccumulator max
+                = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+        private Histogram() {
+            for (int i = 0; i < NUM_BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * @param value the value to record. Negative values are
+         *     recorded as 0.
+         */
+        public void record(long value) {
+            value = Math.max(0, value);
+            buckets[Math.min(NUM_BUCKETS - 1,
+                    64 - Long.numberOfLeadingZeros(value))].increment();
+            count.increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getMean() {
+            long c = count.sum();
+            return (c == 0 ? 0 : sum.sum() / c);
+        }
+
+        public long getMax() {
+            return (count.sum() == 0 ? 0 : max.get());
+        }
+
+        /**
+         * @param p the percentile, between 0 and 1.
+         * @return an upper bound on the given percentile of the values.
+         */
+        public long getPercentile(double p) {
+            long c = count.sum();
+            if (c == 0) return 0;
+
+            long target = (long) Math.ceil(p * c);
+            long seen = 0;
+            for (int i = 0; i < NUM_BUCKETS; i++) {
+                seen += buckets[i].sum();
+                if (seen >= target) {
+                    return Math.min(getMax(), (i == 0 ? 0 : (1L << i) - 1));
+                }
+            }
+            return getMax();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("n=%d mean=%d p50=%d p99=%d max=%d",
+                    getCount(), getMean(), getPercentile(0.5),
+                    getPercentile(0.99), getMax());
+        }
+
+    }
+
+
+    /**
+     * Bounded series of (time, value) samples. Only the most recent
+     * samples are kept. Intended for rare events, like the improvements
+     * of the best solution.
+     */
+    public static class Series {
+        // The maximum number of kept samples.
+        final private static int CAPACITY = 64;
+
+        final private Deque<long[]> samples = new ArrayDeque<>();
+
+        private Series() { }
+
+        /**
+         * @param time the time of the sample in ms.
+         * @param value the value of the sample.
+         */
+        public synchronized void record(long time, long value) {
+            if (samples.size() == CAPACITY) samples.removeFirst();
+            samples.addLast(new long[] {time, value});
+        }
+
+        /**
+         * @return the last recorded value, or {@code -1} if there
+         *     are no samples.
+         */
+        public synchronized long getLast() {
+            return (samples.isEmpty() ? -1 : samples.getLast()[1]);
+        }
+
+        @Override
+        public synchronized String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (long[] sample : samples) {
+                if (sb.length() > 0) sb.append(' ');
+                sb.append(sample[0]).append("ms:").append(sample[1]);
+            }
+            return sb.toString();
+        }
+
+    }
+
+
+    /**-------------------------------------------------------------------------
+     * JMX interface
+     * -------------------------------------------------------------------------
+     */
+    public static interface MetricsMXBean {
+        public Map<String, Long> getCounters();
+        public Map<String, String> getHistograms();
+        public Map<String, String> getSeries();
+        public String getDump();
+    }
+
+
+    private static class MetricsBean
+            implements MetricsMXBean {
+        @Override
+        public Map<String, Long> getCounters() {
+            Map<String, Long> map = new TreeMap<>();
+            counters.forEach((name, counter) -> map.put(name, counter.get()));
+            return map;
+        }
+
+        @Override
+        public Map<String, String> getHistograms() {
+            Map<String, String> map = new TreeMap<>();
+            histograms.forEach((name, hist) -> map.put(name, hist.toString()));
+            return map;
+        }
+
+        @Override
+        public Map<String, String> getSeries() {
+            Map<String, String> map = new TreeMap<>();
+            series.forEach((name, s) -> map.put(name, s.toString()));
+            return map;
+        }
+
+        @Override
+        public String getDump() {
+            return dump();
+        }
+
+    }
+
+
+    /**-------------------------------------------------------------------------
+     * Functions
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * @param name the name of the counter.
+     * @return the counter with the given name.
+     */
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    /**
+     * @param name the name of the histogram.
+     * @return the histogram with the given name.
+     */
+    public static Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    /**
+     * @param name the name of the series.
+     * @return the series with the given name.
+     */
+    public static Series series(String name) {
+        return series.computeIfAbsent(name, n -> new Series());
+    }
+
+    /**
+     * Registers the metrics as MBean at the platform MBean server.
+     * Does nothing if the MBean is already registered.
+     */
+    public static void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MetricsBean(), name);
+            }
+
+        } catch (JMException e) {
+            System.err.println(e);
+        }
+    }
+
+    /**
+     * Creates a text dump of all metrics. For every counter, the rate per
+     * second since the previous dump is shown as well.
+     *
+     * @return the text dump.
+     */
+    public static synchronized String dump() {
+        long now = System.currentTimeMillis();
+        double seconds = Math.max(1, now - prevDump) / 1000.0;
+        prevDump = now;
+
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Counter> e : new TreeMap<>(counters).entrySet()) {
+            long value = e.getValue().get();
+            Long prev = prevValues.put(e.getKey(), value);
+            double rate = (value - (prev == null ? 0 : prev)) / seconds;
+            sb.append(String.format("%-40s %,16d %,14.1f/s%n",
+                    e.getKey(), value, rate));
+        }
+
+        for (Map.Entry<String, Histogram> e
+                : new TreeMap<>(histograms).entrySet()) {
+            sb.append(String.format("%-40s %s%n", e.getKey(), e.getValue()));
+        }
+
+        for (Map.Entry<String, Series> e : new TreeMap<>(series).entrySet()) {
+            sb.append(String.format("%-40s %s%n", e.getKey(), e.getValue()));
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Starts a daemon thread that periodically writes a text dump
+     * of all metrics to the given stream.
+     *
+     * @param out the stream to write to.
+     * @param period the time between two dumps in ms.
+     * @return the started thread.
+     */
+    public static Thread startDump(PrintStream out, long period) {
+        Thread thread = new Thread(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(period);
+                    out.print("--- metrics ---" + System.lineSeparator()
+                            + dump());
+                    out.flush();
+                }
+
+            } catch (InterruptedException e) {
+                // Stop dumping.
+            }
+        }, "metrics-dump");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+}
@@ -0,0 +1,183 @@
+
+package packing.tools;
+
+
+// Packing imports
+import packing.data.Dataset;
+
+
+/**
+ * Traces the search over time with Java Flight Recorder events.
+ *
+ * The events themselves are defined by {@code JfrSearchTrace} in the
+ * {@code src-jfr} source root, which is only compiled when the flight
+ * recorder API is available (JDK 11+ or 8u262+), and is loaded by name.
+ * Hence this class, and the classes using it, don't depend on that API.
+ *
+ * The events are only recorded while a flight recording is running, e.g.
+ * when started with {@code -XX:StartFlightRecording} or with
+ * {@link #startRecording(String)}. Otherwise the functions of this class
+ * return before creating an event. Events are passed around as opaque
+ * objects, where {@code null} denotes an event that isn't recorded.
+ */
+public class SearchTrace {
+    // The name of the tracer that records the flight recorder events.
+    final private static String JFR_TRACER = "packing.tools.JfrSearchTrace";
+    // The tracer used to record the events.
+    final private static Tracer TRACER = loadTracer();
+
+
+    /**-------------------------------------------------------------------------
+     * Tracer class
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * Records the events. This implementation is used when the flight
+     * recorder is not available, and records nothing.
+     */
+    static class Tracer {
+        Object beginRun() {
+            return null;
+        }
+
+        void commitRun(Object event, Object generator, Dataset dataset,
+                Dataset best, long timeToBest) { }
+
+        void newBest(Object generator, Dataset solution) { }
+
+        Object beginPack() {
+            return null;
+        }
+
+        void commitPack(Object event, Object packer, Dataset dataset,
+                int width, int height, Dataset result) { }
+
+        Object beginGeneration() {
+            return null;
+        }
+
+        void commitGeneration(Object event, Object population,
+                long generation, int size, long bestArea) { }
+
+        boolean startRecording(String file) {
+            System.err.println("Flight recorder is not available");
+            return false;
+        }
+
+    }
+
+
+    /**-------------------------------------------------------------------------
+     * Functions
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * @return the flight recorder tracer, or a tracer that records
+     *     nothing if the flight recorder is not available.
+     */
+    private static Tracer loadTracer() {
+        try {
+            return (Tracer) Class.forName(JFR_TRACER)
+                    .getDeclaredConstructor().newInstance();
+
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new Tracer();
+        }
+    }
+
+    /**
+     * Starts a generator run event.
+     *
+     * @return the started event, or {@code null} if it isn't recorded.
+     */
+    public static Object beginRun() {
+        return TRACER.beginRun();
+    }
+
+    /**
+     * Ends and commits a generator run event.
+     *
+     * @param event the event to commit, or {@code null}.
+     * @param generator the generator that ran.
+     * @param dataset the dataset that was solved.
+     * @param best the best solution, or {@code null} if there is none.
+     * @param timeToBest the time it took to find the best solution in ms.
+     */
+    public static void commitRun(Object event, Object generator,
+            Dataset dataset, Dataset best, long timeToBest) {
+        if (event == null) return;
+        TRACER.commitRun(event, generator, dataset, best, timeToBest);
+    }
+
+    /**
+     * Records a new best solution.
+     *
+     * @param generator the generator that found the solution.
+     * @param solution the new best solution.
+     */
+    public static void newBest(Object generator, Dataset solution) {
+        TRACER.newBest(generator, solution);
+    }
+
+    /**
+     * Starts a pack event.
+     *
+     * @return the started event, or {@code null} if it isn't recorded.
+     */
+    public static Object beginPack() {
+        return TRACER.beginPack();
+    }
+
+    /**
+     * Ends and commits a pack event.
+     *
+     * @param event the event to commit, or {@code null}.
+     * @param packer the packer that was invoked.
+     * @param dataset the packed dataset.
+     * @param width the width of the sheet of the packer.
+     * @param height the height of the sheet of the packer.
+     * @param result the result of the packer.
+     */
+    public static void commitPack(Object event, Object packer,
+            Dataset dataset, int width, int height, Dataset result) {
+        if (event == null) return;
+        TRACER.commitPack(event, packer, dataset, width, height, result);
+    }
+
+    /**
+     * Starts a generation event.
+     *
+     * @return the started event, or {@code null} if it isn't recorded.
+     */
+    public static Object beginGeneration() {
+        return TRACER.beginGeneration();
+    }
+
+    /**
+     * Ends and commits a generation event.
+     *
+     * @param event the event to commit, or {@code null}.
+     * @param population the population of the generation.
+     * @param generation the number of the generation.
+     * @param size the number of instances of the population.
+     * @param bestArea the area of the best instance, or {@code -1}
+     *     if there is none.
+     */
+    public static void commitGeneration(Object event, Object population,
+            long generation, int size, long bestArea) {
+        if (event == null) return;
+        TRACER.commitGeneration(event, population, generation, size, bestArea);
+    }
+
+    /**
+     * Starts a flight recording of the events of this class, which is
+     * written to the given file when the application terminates.
+     *
+     * @param file the file to write the recording to.
+     * @return whether the recording was started.
+     */
+    public static boolean startRecording(String file) {
+        return TRACER.startRecording(file);
+    }
+
+}
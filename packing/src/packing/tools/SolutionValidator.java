@@ -0,0 +1,226 @@
+
+package packing.tools;
+
+
+// Packing imports
+import packing.data.CompareEntry;
+import packing.data.Dataset;
+
+
+//##########
+// Java imports
+import java.awt.Rectangle;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * Checks solutions for correctness in O(n log n) time.
+ *
+ * A solution is valid if every rectangle lies within the sheet, no two
+ * rectangles overlap, the height restriction is met and the rotation
+ * flags are consistent. The overlap check sweeps a vertical line over the
+ * x-axis, and keeps the y-intervals of the rectangles crossing the line
+ * in a search tree. Since these intervals never overlap in a valid
+ * solution, an overlap is found by only comparing a new interval with
+ * the interval that starts last below its end.
+ */
+public class SolutionValidator {
+    /**-------------------------------------------------------------------------
+     * Functions
+     * -------------------------------------------------------------------------
+     */
+    /**
+     * @param solution the solution to check.
+     * @return whether the solution is valid.
+     */
+    public static boolean isValid(Dataset solution) {
+        return validate(solution) == null;
+    }
+
+    /**
+     * Checks whether the solution is valid.
+     *
+     * @param solution the solution to check.
+     * @return a description of the first violation that was found,
+     *     or {@code null} if the solution is valid.
+     */
+    public static String validate(Dataset solution) {
+        int n = solution.size();
+        Rectangle[] recs = new Rectangle[n];
+        int i = 0;
+        for (CompareEntry entry : solution) {
+            String error = checkEntry(solution, entry);
+            if (error != null) return error;
+            recs[i++] = entry.getRec();
+        }
+
+        if (solution.isFixedHeight() &&
+                solution.getEffectiveHeight() > solution.getHeight()) {
+            return "height violation: " + solution.getEffectiveHeight()
+                    + " > " + solution.getHeight();
+        }
+
+        return checkOverlap(recs);
+    }
+
+    /**
+     * Checks whether the solution is a valid solution of the input, i.e.
+     * whether it is valid and consists of exactly the entries of the input.
+     *
+     * @param solution the solution to check.
+     * @param input the problem that was solved.
+     * @return a description of the first violation that was found,
+     *     or {@code null} if the solution is valid.
+     */
+    public static String validate(Dataset solution, Dataset input) {
+        if (solution.size() != input.size()) {
+            return "expected " + input.size() + " rectangles, but found "
+                    + solution.size();
+        }
+
+        if (solution.isFixedHeight() != input.isFixedHeight() ||
+                solution.allowRotation() != input.allowRotation() ||
+                (input.isFixedHeight() &&
+                        solution.getHeight() != input.getHeight())) {
+            return "the settings of the solution differ from the input";
+        }
+
+        // Match the entries on id by sorting both, which avoids a map
+        // with an object for every entry.
+        CompareEntry[] inEntries = sortedOnId(input);
+        CompareEntry[] solEntries = sortedOnId(solution);
+        for (int i = 0; i < solEntries.length; i++) {
+            CompareEntry entry = solEntries[i];
+            if (entry.getId() != inEntries[i].getId()) {
+                return "unknown or duplicate rectangle: " + entry.getId();
+            }
+
+            Rectangle in = inEntries[i].getNormalRec();
+            Rectangle rec = entry.getNormalRec();
+
+            if (in.width != rec.width || in.height != rec.height) {
+                return "rectangle " + entry.getId() + " has size "
+                        + rec.width + "x" + rec.height + ", but expected "
+                        + in.width + "x" + in.height;
+            }
+        }
+
+        return validate(solution);
+    }
+
+    /**
+     * @param dataset the dataset to get the entries of.
+     * @return the entries of the dataset, sorted on id.
+     */
+    private static CompareEntry[] sortedOnId(Dataset dataset) {
+        CompareEntry[] entries = new CompareEntry[dataset.size()];
+        int i = 0;
+        for (CompareEntry entry : dataset) {
+            entries[i++] = entry;
+        }
+
+        Arrays.sort(entries, CompareEntry.SORT_ID);
+        return entries;
+    }
+
+    /**
+     * Checks the bounds and the rotation of a single entry.
+     *
+     * @param solution the solution containing the entry.
+     * @param entry the entry to check.
+     * @return a description of the violation, or {@code null} if none.
+     */
+    private static String checkEntry(Dataset solution, CompareEntry entry) {
+        if (entry.useRotation()) {
+            if (!solution.allowRotation()) {
+                return "rectangle " + entry.getId()
+                        + " is rotated, but rotations are not allowed";
+            }
+
+            Rectangle normal = entry.getNormalRec();
+            Rectangle rotated = entry.getRotatedRec();
+            if (normal.width != rotated.height ||
+                    normal.height != rotated.width) {
+                return "rectangle " + entry.getId()
+                        + " has an inconsistent rotated size";
+            }
+        }
+
+        Rectangle rec = entry.getRec();
+        if (rec.width <= 0 || rec.height <= 0) {
+            return "rectangle " + entry.getId() + " is empty";
+        }
+
+        if (rec.x < 0 || rec.y < 0 ||
+                (long) rec.x + rec.width > solution.getWidth() ||
+                (long) rec.y + rec.height > solution.getHeight()) {
+            return "rectangle " + entry.getId() + " " + toString(rec)
+                    + " is outside the sheet " + solution.getWidth()
+                    + "x" + solution.getHeight();
+        }
+
+        return null;
+    }
+
+    /**
+     * Checks whether any two rectangles overlap using a sweep line.
+     *
+     * @param recs the rectangles to check. Must have a positive size.
+     * @return a description of the first overlap that was found,
+     *     or {@code null} if no rectangles overlap.
+     */
+    private static String checkOverlap(Rectangle[] recs) {
+        int n = recs.length;
+        // The events encode the x-coordinate, the type and the index of the
+        // rectangle. Ends sort before starts at the same x-coordinate,
+        // since touching rectangles do not overlap.
+        long[] events = new long[2 * n];
+        for (int i = 0; i < n; i++) {
+            events[2*i] = ((long) (recs[i].x + recs[i].width) << 32) | i;
+            events[2*i + 1] = ((long) recs[i].x << 32)
+                    | (1L << 31) | i;
+        }
+        Arrays.sort(events);
+
+        // The y-intervals crossing the sweep line, mapped from the start
+        // to the index of the rectangle.
+        TreeMap<Integer, Integer> active = new TreeMap<>();
+        for (long event : events) {
+            int i = (int) (event & 0x7FFFFFFF);
+            Rectangle rec = recs[i];
+            if ((event & (1L << 31)) == 0) {
+                active.remove(rec.y);
+                continue;
+            }
+
+            // The interval starting below the end of the rectangle with the
+            // highest start is the only one that can overlap it.
+            Map.Entry<Integer, Integer> below
+                    = active.lowerEntry(rec.y + rec.height);
+            if (below != null) {
+                Rectangle other = recs[below.getValue()];
+                if (other.y + other.height > rec.y) {
+                    return "rectangles " + toString(other) + " and "
+                            + toString(rec) + " overlap";
+                }
+            }
+
+            active.put(rec.y, i);
+        }
+
+        return null;
+    }
+
+    /**
+     * @param rec the rectangle to give the representation of.
+     * @return a simple String representation of {@code rec}.
+     */
+    private static String toString(Rectangle rec) {
+        return "[x=" + rec.x + ", y=" + rec.y + ", width=" + rec.width
+                + ", height=" + rec.height + "]";
+    }
+
+}
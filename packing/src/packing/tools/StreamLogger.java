@@ -77,6 +77,13 @@ public class StreamLogger extends DefaultLogger {
     }
     
     @Override
-    protected void flush() { }
+    protected void flush() {
+        try {
+            if (stream != null) stream.flush();
+            
+        } catch (IOException e) {
+            System.err.println(e);
+        }
+    }
     
 }
\ No newline at end of file
@@ -5,7 +5,9 @@ package packing.tools;
 //##########
 // Java imports
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 
 /**
@@ -15,32 +17,40 @@ import java.util.List;
 public class ThreadMonitor {
     // List containing all currently active threads.
     final private static List<Thread> threads = new ArrayList<Thread>();
-    // Whether the threads are being stopped.
-    private static boolean stoppingThreads = false;
+    // The thread groups of which the threads are being stopped.
+    final private static Set<ThreadGroup> stoppingGroups = new HashSet<>();
     
     /**
      * Creates and starts a new thread that runs the given runnable.
      * 
      * @param r the function to be executed.
-     * @return the created thread. Returns {@code null} if the threads are
-     *     being stopped.
+     * @return the created thread. Returns {@code null} if the threads of
+     *     the group of the calling thread are being stopped.
      */
     public static Thread startThread(Runnable r) {
-        if (stoppingThreads) return null;
-        
-        Thread thread = new Thread() {
-            @Override
-                public void run() {
-                r.run();
-                
-                synchronized(threads) {
-                    threads.remove(this);
-                }
+        return startThread(Thread.currentThread().getThreadGroup(), r);
+    }
+    
+    /**
+     * Creates and starts a new thread in the given group that runs
+     * the given runnable.
+     * 
+     * @param group the group of the new thread.
+     * @param r the function to be executed.
+     * @return the created thread. Returns {@code null} if the threads of
+     *     the given group are being stopped.
+     */
+    public static Thread startThread(ThreadGroup group, Runnable r) {
+        Thread thread = new Thread(group, () -> {
+            r.run();
+            
+            synchronized(threads) {
+                threads.remove(Thread.currentThread());
             }
-        };
+        });
         
         synchronized(threads) {
-            if (stoppingThreads) return null;
+            if (isStopping(group)) return null;
             threads.add(thread);
             thread.start();
         }
@@ -58,7 +68,8 @@ public class ThreadMonitor {
     }
     
     /**
-     * Kills all threads.
+     * Kills all threads in the thread group of the calling thread,
+     * including its subgroups. The calling thread itself is never killed.
      * 
      * IMPORTANT NOTE:
      * This way of stopping threads should only be used when you are
@@ -69,15 +80,67 @@ public class ThreadMonitor {
      */
     @SuppressWarnings("deprecation")
     public static void killAll() {
+        Thread current = Thread.currentThread();
+        ThreadGroup group = current.getThreadGroup();
         synchronized(threads) {
-            stoppingThreads = true;
-            for (Thread thread : threads) {
-                thread.stop();
+            stoppingGroups.add(group);
+            try {
+                for (Thread thread : threads) {
+                    if (thread != current && isInGroup(thread, group)) {
+                        thread.stop();
+                    }
+                }
+                
+            } finally {
+                stoppingGroups.remove(group);
             }
-            stoppingThreads = false;
         }
     }
     
+    /**
+     * Destroys the given thread group, such that the groups created for a
+     * single run don't pile up in a long running process. A group that
+     * still has threads is destroyed as soon as its last thread finishes.
+     * 
+     * @param group the group to destroy.
+     */
+    @SuppressWarnings({"deprecation", "removal"})
+    public static void destroyGroup(ThreadGroup group) {
+        // A daemon group is destroyed when its last thread finishes.
+        group.setDaemon(true);
+        try {
+            if (!group.isDestroyed()) group.destroy();
+            
+        } catch (IllegalThreadStateException e) {
+            // The group still has threads, or was destroyed concurrently.
+        }
+    }
+    
+    /**
+     * @param group the group to check.
+     * @return whether the threads of the given group are being stopped,
+     *     either directly or via one of its parent groups.
+     */
+    private static boolean isStopping(ThreadGroup group) {
+        for (ThreadGroup stopping : stoppingGroups) {
+            if (stopping.parentOf(group)) return true;
+        }
+        
+        return false;
+    }
+    
+    /**
+     * @param thread the thread to check.
+     * @param group the group to check for.
+     * @return whether the thread is in the given group or in one
+     *     of its subgroups.
+     */
+    private static boolean isInGroup(Thread thread, ThreadGroup group) {
+        ThreadGroup threadGroup = thread.getThreadGroup();
+        // Threads that are finished don't have a group anymore.
+        return threadGroup != null && group.parentOf(threadGroup);
+    }
+    
     /**
      * Interrupts all threads.
      * 
@@ -87,11 +150,9 @@ public class ThreadMonitor {
      */
     public static void interruptAll() {
         synchronized(threads) {
-            stoppingThreads = true;
             for (Thread thread : threads) {
                 thread.interrupt();
             }
-            stoppingThreads = false;
         }
     }
     
@@ -0,0 +1,85 @@
+import org.junit.jupiter.api.Test;
+
+import packing.data.Dataset;
+import packing.packer.ArraySheet;
+import packing.packer.Packer;
+import packing.packer.Sheet;
+
+import java.awt.*;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ArraySheetTest {
+
+    protected Dataset randomDataset(Random random) {
+        int numRect = 1 + random.nextInt(40);
+        Dataset dataset = new Dataset(-1, false, numRect);
+        for (int i = 0; i < numRect; i++) {
+            dataset.add(new Rectangle(1 + random.nextInt(10), 1 + random.nextInt(10)));
+        }
+        return dataset;
+    }
+
+    protected void assertSamePacking(Packer expected, Packer actual, Dataset dataset) {
+        Dataset expectedResult = expected.pack(dataset);
+        Dataset actualResult = actual.pack(dataset);
+
+        assertEquals(expected.getNumPlaced(), actual.getNumPlaced());
+        assertEquals(expected.wasCutOff(), actual.wasCutOff());
+        if (expectedResult == null) {
+            assertNull(actualResult);
+            return;
+        }
+
+        assertEquals(expectedResult.size(), actualResult.size());
+        for (int i = 0; i < expectedResult.size(); i++) {
+            assertEquals(expectedResult.get(i).getRec(),
+                    actualResult.get(i).getRec(), "rectangle " + i);
+        }
+    }
+
+    @Test
+    public void testSamePacking() {
+        Random random = new Random(1);
+        for (int t = 0; t < 500; t++) {
+            Dataset dataset = randomDataset(random);
+            int width = 10 + random.nextInt(30);
+            int height = 10 + random.nextInt(30);
+            assertSamePacking(new Sheet(width, height),
+                    new ArraySheet(width, height), dataset);
+        }
+    }
+
+    @Test
+    public void testSamePackingAfterReset() {
+        Random random = new Random(2);
+        ArraySheet sheet = new ArraySheet(1, 1);
+        for (int t = 0; t < 500; t++) {
+            Dataset dataset = randomDataset(random);
+            int width = 10 + random.nextInt(30);
+            int height = 10 + random.nextInt(30);
+            assertTrue(sheet.reset(width, height));
+            assertSamePacking(new Sheet(width, height), sheet, dataset);
+        }
+    }
+
+    @Test
+    public void testSameCutoff() {
+        Random random = new Random(3);
+        for (int t = 0; t < 500; t++) {
+            Dataset dataset = randomDataset(random);
+            int width = 10 + random.nextInt(30);
+            int height = 10 + random.nextInt(30);
+            long area = 1 + random.nextInt(width * height);
+
+            Packer sheet = new Sheet(width, height);
+            Packer arraySheet = new ArraySheet(width, height);
+            sheet.setCutoffArea(area);
+            arraySheet.setCutoffArea(area);
+            assertSamePacking(sheet, arraySheet, dataset);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Exhaustive packing of small instances, used as reference by the tests.
+ *
+ * The first free cell of the sheet, in row-major order, is either covered
+ * by the bottom left corner of one of the remaining rectangles, or is left
+ * empty. Every packing can be transformed into one that is found this way.
+ */
+public class BruteForce {
+
+    /**
+     * @param recs the widths and heights of the rectangles.
+     * @param rotation whether the rectangles may be rotated.
+     * @param width the width of the sheet.
+     * @param height the height of the sheet.
+     * @return whether the rectangles fit in the sheet.
+     */
+    public static boolean fits(int[][] recs, boolean rotation, int width, int height) {
+        long free = (long) width * height;
+        for (int[] rec : recs) {
+            free -= (long) rec[0] * rec[1];
+        }
+        if (free < 0) return false;
+
+        return fill(recs, rotation, new boolean[height][width],
+                new boolean[recs.length], recs.length, 0, free);
+    }
+
+    /**
+     * @return the minimal height of a sheet with the given width, or
+     *     {@link Integer#MAX_VALUE} if the rectangles don't fit any height.
+     */
+    public static int minHeight(int[][] recs, boolean rotation, int width) {
+        int maxHeight = 0;
+        for (int[] rec : recs) {
+            int minWidth = (rotation ? Math.min(rec[0], rec[1]) : rec[0]);
+            if (minWidth > width) return Integer.MAX_VALUE;
+            maxHeight += (rotation ? Math.max(rec[0], rec[1]) : rec[1]);
+        }
+
+        for (int height = 1; height <= maxHeight; height++) {
+            if (fits(recs, rotation, width, height)) return height;
+        }
+        return maxHeight;
+    }
+
+    /**
+     * @return the minimal area of a sheet without height restriction.
+     */
+    public static long minArea(int[][] recs, boolean rotation) {
+        int maxWidth = 0;
+        for (int[] rec : recs) {
+            maxWidth += (rotation ? Math.max(rec[0], rec[1]) : rec[0]);
+        }
+
+        long best = Long.MAX_VALUE;
+        for (int width = 1; width <= maxWidth; width++) {
+            int height = minHeight(recs, rotation, width);
+            if (height != Integer.MAX_VALUE) {
+                best = Math.min(best, (long) width * height);
+            }
+        }
+        return best;
+    }
+
+    private static boolean fill(int[][] recs, boolean rotation, boolean[][] used,
+                                boolean[] placed, int remaining, int cell, long free) {
+        if (remaining == 0) return true;
+
+        int width = used[0].length;
+        int height = used.length;
+        while (cell < width * height && used[cell / width][cell % width]) {
+            cell++;
+        }
+        if (cell == width * height) return false;
+        int x = cell % width;
+        int y = cell / width;
+
+        for (int i = 0; i < recs.length; i++) {
+            if (placed[i]) continue;
+            for (int turn = 0; turn < (rotation && recs[i][0] != recs[i][1] ? 2 : 1); turn++) {
+                int w = recs[i][turn];
+                int h = recs[i][1 - turn];
+                if (!isFree(used, x, y, w, h)) continue;
+
+                set(used, x, y, w, h, true);
+                placed[i] = true;
+                boolean found = fill(recs, rotation, used, placed, remaining - 1, cell + 1, free);
+                placed[i] = false;
+                set(used, x, y, w, h, false);
+                if (found) return true;
+            }
+        }
+
+        if (free == 0) return false;
+        used[y][x] = true;
+        boolean found = fill(recs, rotation, used, placed, remaining, cell + 1, free - 1);
+        used[y][x] = false;
+        return found;
+    }
+
+    private static boolean isFree(boolean[][] used, int x, int y, int w, int h) {
+        if (x + w > used[0].length || y + h > used.length) return false;
+        for (int j = y; j < y + h; j++) {
+            for (int i = x; i < x + w; i++) {
+                if (used[j][i]) return false;
+            }
+        }
+        return true;
+    }
+
+    private static void set(boolean[][] used, int x, int y, int w, int h, boolean value) {
+        for (int j = y; j < y + h; j++) {
+            for (int i = x; i < x + w; i++) {
+                used[j][i] = value;
+            }
+        }
+    }
+}
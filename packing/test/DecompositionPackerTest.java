@@ -0,0 +1,146 @@
+import org.junit.jupiter.api.Test;
+
+import packing.data.Dataset;
+import packing.packer.ArraySheetPackerFactory;
+import packing.packer.DecompositionPackerFactory;
+import packing.packer.GreedyPackerFactory;
+import packing.packer.Packer;
+import packing.packer.PackerFactory;
+import packing.packer.Partition;
+import packing.tools.SolutionValidator;
+
+import java.awt.*;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DecompositionPackerTest {
+
+    protected Dataset randomDataset(Random random, int height, boolean rotation) {
+        int numRect = 30 + random.nextInt(120);
+        Dataset dataset = new Dataset(height, rotation, numRect);
+        for (int i = 0; i < numRect; i++) {
+            dataset.add(new Rectangle(1 + random.nextInt(20), 1 + random.nextInt(height)));
+        }
+        return dataset;
+    }
+
+    /**
+     * Packs the dataset in a sheet with little waste, and doubles the
+     * width until the packer succeeds.
+     */
+    protected Dataset pack(PackerFactory factory, Dataset dataset) {
+        long area = 0;
+        for (int i = 0; i < dataset.size(); i++) {
+            area += dataset.get(i).area();
+        }
+        int width = (int) ((area + dataset.getHeight() - 1) / dataset.getHeight());
+        width += width / 10;
+
+        for (int t = 0; t < 10; t++, width *= 2) {
+            Dataset result = factory.create(width, dataset.getHeight()).pack(dataset);
+            if (result != null) return result;
+        }
+        return null;
+    }
+
+    @Test
+    public void testValidPacking() {
+        Random random = new Random(1);
+        PackerFactory[] factories = {new GreedyPackerFactory(), new ArraySheetPackerFactory()};
+        for (int t = 0; t < 100; t++) {
+            Dataset dataset = randomDataset(random, 10 + random.nextInt(40), random.nextBoolean());
+            PackerFactory factory = new DecompositionPackerFactory(
+                    factories[t % factories.length],
+                    Partition.values()[random.nextInt(Partition.values().length)],
+                    5 + random.nextInt(20), 1 + random.nextInt(4));
+
+            Dataset result = pack(factory, dataset);
+            assertNotNull(result);
+            assertNull(SolutionValidator.validate(result, dataset));
+        }
+    }
+
+    @Test
+    public void testCutoff() {
+        Random random = new Random(2);
+        for (int t = 0; t < 100; t++) {
+            Dataset dataset = randomDataset(random, 10 + random.nextInt(40), random.nextBoolean());
+            PackerFactory factory = new DecompositionPackerFactory(
+                    new GreedyPackerFactory(), Partition.BALANCED, 10, 4);
+            Dataset full = pack(factory, dataset);
+            assertNotNull(full);
+            int width = full.getWidth();
+            full.calcEffectiveSize();
+
+            // Packing the same sheet again only succeeds when the packing
+            // beats the cutoff.
+            long cutoff = full.getArea() + (random.nextBoolean() ? 1 : 0);
+            Packer packer = factory.create(width, dataset.getHeight());
+            packer.setCutoffArea(cutoff);
+            Dataset result = packer.pack(dataset);
+            if (cutoff > full.getArea()) {
+                assertNotNull(result);
+                assertNull(SolutionValidator.validate(result, dataset));
+
+            } else {
+                assertNull(result);
+                assertTrue(packer.wasCutOff());
+            }
+        }
+    }
+
+    @Test
+    public void testGroupsArePackedInGroupOfCaller()
+            throws InterruptedException {
+        // Records the threads that pack a group, and their groups.
+        Set<Thread> packers = Collections.synchronizedSet(new HashSet<>());
+        Set<ThreadGroup> groups
+                = Collections.synchronizedSet(new HashSet<>());
+        PackerFactory greedy = new GreedyPackerFactory();
+        PackerFactory recording = new PackerFactory() {
+            @Override
+            public Packer create(int width, int height) {
+                return greedy.create(width, height);
+            }
+
+            @Override
+            public Packer obtain(int width, int height) {
+                packers.add(Thread.currentThread());
+                groups.add(Thread.currentThread().getThreadGroup());
+                // Give the helper threads time to start.
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.obtain(width, height);
+            }
+        };
+        PackerFactory factory = new DecompositionPackerFactory(
+                recording, Partition.BALANCED, 10, 3);
+        // Low entries, such that the bands fit the sheet.
+        Random random = new Random(3);
+        Dataset dataset = new Dataset(40, false, 60);
+        for (int i = 0; i < 60; i++) {
+            dataset.add(new Rectangle(1 + random.nextInt(20), 1 + random.nextInt(3)));
+        }
+
+        ThreadGroup group = new ThreadGroup("packer");
+        Dataset[] result = new Dataset[1];
+        Thread thread = new Thread(group,
+                () -> result[0] = pack(factory, dataset));
+        thread.start();
+        thread.join();
+
+        assertNotNull(result[0]);
+        assertTrue(packers.size() > 1);
+        assertEquals(Collections.singleton(group), groups);
+    }
+}
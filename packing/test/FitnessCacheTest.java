@@ -0,0 +1,82 @@
+import org.junit.jupiter.api.Test;
+
+import packing.data.CompareEntry;
+import packing.data.Dataset;
+import packing.genetic.FitnessCache;
+
+import java.awt.*;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FitnessCacheTest {
+
+    @Test
+    public void testHits() {
+        FitnessCache cache = new FitnessCache(4);
+        assertNull(cache.get(1));
+        cache.put(1, 0.5);
+        cache.put(2, 0.25);
+
+        assertEquals(0.5, cache.get(1), 0.0);
+        assertEquals(0.25, cache.get(2), 0.0);
+        assertNull(cache.get(3));
+        assertEquals(0.5, cache.getHitRate(), 1e-9);
+
+        cache.clear();
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    public void testEviction() {
+        FitnessCache cache = new FitnessCache(2);
+        cache.put(1, 1.0);
+        cache.put(2, 2.0);
+        // Using 1 makes 2 the least recently used.
+        assertNotNull(cache.get(1));
+        cache.put(3, 3.0);
+
+        assertNull(cache.get(2));
+        assertEquals(1.0, cache.get(1), 0.0);
+        assertEquals(3.0, cache.get(3), 0.0);
+    }
+
+    @Test
+    public void testInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new FitnessCache(0));
+    }
+
+    @Test
+    public void testIncrementalHash() {
+        Random random = new Random(1);
+        Dataset dataset = new Dataset(-1, true, 8);
+        for (int i = 0; i < 8; i++) {
+            dataset.add(new Rectangle(1 + random.nextInt(10), 1 + random.nextInt(10)));
+        }
+
+        // Update the hash the same way as the mutations of a population.
+        long hash = FitnessCache.hash(dataset);
+        for (int t = 0; t < 100; t++) {
+            int i = random.nextInt(dataset.size());
+            CompareEntry entry = dataset.get(i);
+            if (random.nextBoolean()) {
+                entry.setRotation(!entry.useRotation());
+                hash ^= FitnessCache.rotationKey(entry);
+
+            } else {
+                int j = random.nextInt(dataset.size());
+                if (j == i) continue;
+                CompareEntry other = dataset.get(j);
+                hash ^= FitnessCache.positionKey(entry, i)
+                        ^ FitnessCache.positionKey(other, j)
+                        ^ FitnessCache.positionKey(entry, j)
+                        ^ FitnessCache.positionKey(other, i);
+                dataset.swap(i, j);
+            }
+            assertEquals(FitnessCache.hash(dataset), hash);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+import org.junit.jupiter.api.Test;
+
+import packing.data.Dataset;
+import packing.generator.LowerBound;
+import packing.generator.OptimalBoundingBoxGenerator;
+import packing.packer.OptimalPackerFactory;
+
+import java.awt.*;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LowerBoundTest {
+
+    protected Dataset createDataset(int height, boolean rotation, int[][] recs) {
+        Dataset dataset = new Dataset(height, rotation, recs.length);
+        for (int[] rec : recs) {
+            dataset.add(new Rectangle(rec[0], rec[1]));
+        }
+        return dataset;
+    }
+
+    protected long totalArea(int[][] recs) {
+        long area = 0;
+        for (int[] rec : recs) {
+            area += (long) rec[0] * rec[1];
+        }
+        return area;
+    }
+
+    @Test
+    public void testOddWidth() {
+        // At width 5, the 3-wide and the 2-wide rectangle fit next to
+        // each other.
+        int[][] recs = {{3, 1}, {2, 1}};
+        Dataset dataset = createDataset(-1, false, recs);
+        assertEquals(1, LowerBound.height(dataset, 5, totalArea(recs)));
+        assertEquals(1, BruteForce.minHeight(recs, false, 5));
+    }
+
+    @Test
+    public void testEvenWidth() {
+        // At width 4, the 2-wide rectangle doesn't fit next to the
+        // 3-wide one.
+        int[][] recs = {{3, 1}, {2, 1}};
+        Dataset dataset = createDataset(-1, false, recs);
+        assertEquals(2, LowerBound.height(dataset, 4, totalArea(recs)));
+    }
+
+    @Test
+    public void testHighestHalfWidth() {
+        // At width 4, the 3-wide rectangles are stacked, and neither of
+        // them fits next to the 3 high rectangle of half the width.
+        int[][] recs = {{3, 1}, {3, 1}, {2, 3}, {2, 1}};
+        Dataset dataset = createDataset(-1, false, recs);
+        assertEquals(5, LowerBound.height(dataset, 4, totalArea(recs)));
+        assertEquals(5, BruteForce.minHeight(recs, false, 4));
+    }
+
+    @Test
+    public void testOptimalBoundingBox() {
+        int[][][] instances = {
+            {{2, 4}, {4, 1}, {3, 5}},
+            {{5, 3}, {7, 5}, {5, 1}, {2, 5}, {4, 4}}
+        };
+        long[] areas = {30, 81};
+
+        for (int i = 0; i < instances.length; i++) {
+            Dataset dataset = createDataset(-1, false, instances[i]);
+            Dataset result = new OptimalBoundingBoxGenerator(
+                    new OptimalPackerFactory()).generate(dataset);
+            result.calcEffectiveSize();
+            assertEquals(areas[i], result.getArea());
+            assertEquals(areas[i], BruteForce.minArea(instances[i], false));
+        }
+    }
+
+    @Test
+    public void testHeightBoundBruteForce() {
+        Random random = new Random(1);
+        for (int t = 0; t < 200; t++) {
+            int[][] recs = new int[2 + random.nextInt(4)][];
+            int maxWidth = 0;
+            int sumWidth = 0;
+            for (int i = 0; i < recs.length; i++) {
+                recs[i] = new int[] {1 + random.nextInt(5), 1 + random.nextInt(5)};
+                maxWidth = Math.max(maxWidth, recs[i][0]);
+                sumWidth += recs[i][0];
+            }
+            Dataset dataset = createDataset(-1, false, recs);
+            LowerBound.HeightBound bound
+                    = new LowerBound.HeightBound(dataset, totalArea(recs));
+
+            for (int width = maxWidth; width <= sumWidth; width++) {
+                int height = bound.height(width);
+                int optimal = BruteForce.minHeight(recs, false, width);
+                assertTrue(height <= optimal, "height " + height + " > " + optimal
+                        + " at width " + width);
+                assertTrue(bound.quickHeight(width) <= height);
+            }
+        }
+    }
+
+    protected int[][] randomRecs(Random random, int maxSide) {
+        int[][] recs = new int[2 + random.nextInt(3)][];
+        for (int i = 0; i < recs.length; i++) {
+            recs[i] = new int[] {1 + random.nextInt(maxSide), 1 + random.nextInt(maxSide)};
+        }
+        return recs;
+    }
+
+    @Test
+    public void testWidthBruteForce() {
+        Random random = new Random(2);
+        for (int t = 0; t < 200; t++) {
+            boolean rotation = random.nextBoolean();
+            int[][] recs = randomRecs(random, 5);
+            // The transposed rectangles, such that the minimal width at a
+            // fixed height is the minimal height at that width.
+            int[][] transposed = new int[recs.length][];
+            int height = 0;
+            for (int i = 0; i < recs.length; i++) {
+                transposed[i] = new int[] {recs[i][1], recs[i][0]};
+                int side = (rotation ? Math.min(recs[i][0], recs[i][1]) : recs[i][1]);
+                height = Math.max(height, side);
+            }
+            height += random.nextInt(4);
+
+            Dataset dataset = createDataset(height, rotation, recs);
+            int width = LowerBound.width(dataset);
+            int optimal = BruteForce.minHeight(transposed, rotation, height);
+            assertTrue(width <= optimal, "width " + width + " > " + optimal
+                    + " at height " + height);
+            assertTrue((long) width * height >= totalArea(recs));
+            assertEquals((long) width * height, LowerBound.area(dataset));
+        }
+    }
+
+    @Test
+    public void testAreaBruteForce() {
+        Random random = new Random(3);
+        for (int t = 0; t < 100; t++) {
+            boolean rotation = random.nextBoolean();
+            int[][] recs = randomRecs(random, 4);
+
+            long area = LowerBound.area(createDataset(-1, rotation, recs));
+            long optimal = BruteForce.minArea(recs, rotation);
+            assertTrue(area <= optimal, "area " + area + " > " + optimal);
+            assertTrue(area >= totalArea(recs));
+        }
+    }
+}
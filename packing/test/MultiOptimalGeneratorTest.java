@@ -0,0 +1,101 @@
+import org.junit.jupiter.api.Test;
+
+import packing.data.Dataset;
+import packing.generator.Generator;
+import packing.generator.MultiOptimalGenerator;
+
+import java.awt.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MultiOptimalGeneratorTest {
+
+    /**
+     * Generator that finds a solution of the given width after the given
+     * delay, and then optionally fails.
+     */
+    protected static class StubGenerator extends Generator {
+        final private boolean exact;
+        final private long delay;
+        final private int width;
+        final private boolean fail;
+
+        public StubGenerator(boolean exact, long delay, int width, boolean fail) {
+            super(null);
+            this.exact = exact;
+            this.delay = delay;
+            this.width = width;
+            this.fail = fail;
+            name = "stub";
+        }
+
+        @Override
+        public boolean isExact() {
+            return exact;
+        }
+
+        @Override
+        public void generateSolution(Dataset dataset) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            Dataset solution = new Dataset(-1, false, 1);
+            solution.add(new Rectangle(0, 0, width, 1));
+            solution.setSize(width, 1);
+            updateBest(solution);
+            if (fail) throw new IllegalStateException("failure of the stub");
+        }
+    }
+
+    protected Dataset createDataset() {
+        Dataset dataset = new Dataset(-1, false, 1);
+        dataset.add(new Rectangle(1, 1));
+        return dataset;
+    }
+
+    @Test
+    public void testFailedExactGeneratorDoesNotEndRace() {
+        Generator gen = new MultiOptimalGenerator(true,
+                new StubGenerator(true, 0, 100, true),
+                new StubGenerator(false, 300, 50, false));
+        Dataset result = gen.generate(createDataset());
+        assertEquals(50, result.getArea());
+        assertTrue(!gen.hasProvedOptimality());
+    }
+
+    @Test
+    public void testExactGeneratorEndsRace() {
+        Generator gen = new MultiOptimalGenerator(true,
+                new StubGenerator(true, 0, 100, false),
+                new StubGenerator(false, 10000, 50, false));
+        long start = System.currentTimeMillis();
+        Dataset result = gen.generate(createDataset());
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertEquals(100, result.getArea());
+        assertTrue(gen.hasProvedOptimality());
+    }
+
+    @Test
+    public void testThreadGroupsAreDestroyed() throws InterruptedException {
+        ThreadGroup group = Thread.currentThread().getThreadGroup();
+        for (int i = 0; i < 20; i++) {
+            new MultiOptimalGenerator(true,
+                    new StubGenerator(true, 0, 100, false),
+                    new StubGenerator(false, 0, 50, false)).generate(createDataset());
+        }
+
+        // Groups of which a thread was still finishing are destroyed
+        // when that thread ends.
+        Thread.sleep(100);
+        ThreadGroup[] groups = new ThreadGroup[group.activeGroupCount() + 1];
+        int count = group.enumerate(groups, false);
+        for (int i = 0; i < count; i++) {
+            assertTrue(!groups[i].getName().startsWith("gen"),
+                    "thread group " + groups[i].getName() + " remains");
+        }
+    }
+}
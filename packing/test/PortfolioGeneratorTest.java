@@ -0,0 +1,91 @@
+import org.junit.jupiter.api.Test;
+
+import packing.data.Dataset;
+import packing.generator.Generator;
+import packing.generator.PortfolioGenerator;
+import packing.tools.ThreadMonitor;
+
+import java.awt.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PortfolioGeneratorTest {
+
+    /**
+     * Generator that runs a search thread for every thread it may use, and
+     * counts the iterations of these threads. Improves the shared best
+     * solution every few iterations if requested.
+     */
+    protected static class CountingGenerator extends Generator {
+        final protected AtomicLong iterations = new AtomicLong();
+        final private boolean improving;
+        private int width = 1000000;
+
+        public CountingGenerator(boolean improving) {
+            super(null);
+            this.improving = improving;
+            name = (improving ? "improving" : "idle");
+        }
+
+        @Override
+        public void generateSolution(Dataset dataset) {
+            for (int i = 1; i < getMaxThreads(); i++) {
+                int worker = i;
+                ThreadMonitor.startThread(() -> search(worker));
+            }
+            search(0);
+        }
+
+        private void search(int worker) {
+            while (true) {
+                checkPause(worker);
+                if (iterations.incrementAndGet() % 5 == 0 && improving) {
+                    improve();
+                }
+
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        private synchronized void improve() {
+            Dataset solution = new Dataset(-1, false, 1);
+            solution.add(new Rectangle(0, 0, 1, 1));
+            solution.setSize(--width, 1);
+            updateBest(solution);
+        }
+    }
+
+    @Test
+    public void testThreadsShiftToImprovingGenerator() throws InterruptedException {
+        CountingGenerator idle = new CountingGenerator(false);
+        CountingGenerator improving = new CountingGenerator(true);
+        // The idle generator wins ties and starts with the higher prior.
+        PortfolioGenerator portfolio = new PortfolioGenerator(2,
+                new Generator[] {idle, improving}, new double[] {0.6, 0.4});
+        portfolio.setMaxThreads(4);
+
+        Dataset dataset = new Dataset(-1, false, 1);
+        dataset.add(new Rectangle(1, 1));
+        Thread thread = new Thread(() -> portfolio.generate(dataset));
+        thread.start();
+
+        // Measure after the first epochs.
+        Thread.sleep(1000);
+        long idleStart = idle.iterations.get();
+        long improvingStart = improving.iterations.get();
+        Thread.sleep(1000);
+        long idleCount = idle.iterations.get() - idleStart;
+        long improvingCount = improving.iterations.get() - improvingStart;
+
+        portfolio.interrupt();
+        thread.join();
+
+        assertTrue(improvingCount > 3 * idleCount, "improving generator ran "
+                + improvingCount + " iterations, idle generator " + idleCount);
+    }
+}
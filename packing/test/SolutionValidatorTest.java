@@ -0,0 +1,56 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import packing.data.Dataset;
+import packing.tools.SolutionValidator;
+
+import java.awt.*;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class SolutionValidatorTest {
+
+    protected Dataset dataset;
+
+    @BeforeEach
+    public void setUp() {
+        dataset = new Dataset(4, false, 3);
+        dataset.add(new Rectangle(0, 0, 2, 4));
+        dataset.add(new Rectangle(2, 0, 3, 2));
+        dataset.add(new Rectangle(2, 2, 3, 2));
+        dataset.setWidth(5);
+    }
+
+    @Test
+    public void testValid() {
+        assertNull(SolutionValidator.validate(dataset));
+        assertNull(SolutionValidator.validate(dataset, dataset.clone()));
+    }
+
+    @Test
+    public void testOverlap() {
+        dataset.get(2).setLocation(2, 1);
+        assertNotNull(SolutionValidator.validate(dataset));
+    }
+
+    @Test
+    public void testOutsideSheet() {
+        dataset.get(2).setLocation(2, 3);
+        assertNotNull(SolutionValidator.validate(dataset));
+    }
+
+    @Test
+    public void testRotationNotAllowed() {
+        Dataset rotated = new Dataset(-1, true, 1);
+        rotated.add(new Rectangle(0, 0, 1, 2));
+        rotated.setSize(2, 1);
+        rotated.get(0).rotate();
+        rotated.get(0).setLocation(0, 0);
+        assertNull(SolutionValidator.validate(rotated));
+
+        Dataset input = new Dataset(-1, false, 1);
+        input.add(new Rectangle(0, 0, 1, 2));
+        assertNotNull(SolutionValidator.validate(rotated, input));
+    }
+}